@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code generate-dolphin-service-descriptor} goal over plugins of growing size: a full scan without a previous state,
+ * and an incremental scan after one class changed, which reads that class and reuses the headers of all the others.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class DescriptorScanBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    private int classes;
+
+    @Param({"10", "100", "500"})
+    private int dependencies;
+
+    private SyntheticProject project;
+    private File stateFile;
+    private File servicesDirectory;
+    private DolphinDescriptorGenerator generator;
+
+    @Setup(Level.Trial)
+    public void generate()
+            throws IOException, MojoExecutionException
+    {
+        project = SyntheticProject.generate(classes, dependencies);
+        stateFile = new File(project.getRoot(), "target/dolphinscheduler-descriptor.state");
+        servicesDirectory = new File(project.getClassesDirectory(), "META-INF/services");
+
+        generator = Mojos.configure(new DolphinDescriptorGenerator());
+        Mojos.set(generator, "pluginClassName", SyntheticProject.PLUGIN_CLASS_NAME);
+        Mojos.set(generator, "servicesDirectory", servicesDirectory);
+        Mojos.set(generator, "classesDirectory", project.getClassesDirectory());
+        Mojos.set(generator, "generatePluginIndex", true);
+        Mojos.set(generator, "pluginIndexFile", new File(project.getClassesDirectory(), PluginIndex.RESOURCE));
+        Mojos.set(generator, "stateFile", stateFile);
+        Mojos.set(generator, "skipMetrics", true);
+        Mojos.set(generator, "project", project.newMavenProject());
+        Mojos.set(generator, "session", SyntheticProject.newMavenSession(project.getRepository().newSession()));
+        generator.execute();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete()
+            throws IOException
+    {
+        project.delete();
+    }
+
+    /**
+     * a clean build, without the state or the services file of the previous one
+     */
+    @State(Scope.Thread)
+    public static class FullState {
+        @Setup(Level.Invocation)
+        public void clean(DescriptorScanBenchmark benchmark)
+        {
+            benchmark.stateFile.delete();
+            new File(benchmark.servicesDirectory, SyntheticProject.PLUGIN_CLASS_NAME).delete();
+        }
+    }
+
+    /**
+     * a build after one class changed
+     */
+    @State(Scope.Thread)
+    public static class IncrementalState {
+        @Setup(Level.Invocation)
+        public void touch(DescriptorScanBenchmark benchmark)
+        {
+            benchmark.project.touchClass();
+        }
+    }
+
+    @Benchmark
+    public void full(FullState state)
+            throws MojoExecutionException
+    {
+        generator.execute();
+    }
+
+    @Benchmark
+    public void incremental(IncrementalState state)
+            throws MojoExecutionException
+    {
+        generator.execute();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.CollectResult;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.LocalArtifactRegistration;
+import org.eclipse.aether.repository.LocalArtifactRequest;
+import org.eclipse.aether.repository.LocalArtifactResult;
+import org.eclipse.aether.repository.LocalMetadataRegistration;
+import org.eclipse.aether.repository.LocalMetadataRequest;
+import org.eclipse.aether.repository.LocalMetadataResult;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * A local repository on disk with just enough of the repository system to run the plugin goals offline.
+ *
+ * Artifacts are laid out like in a Maven repository, and each one has a {@code .dependencies} file next to it
+ * with the coordinates of its direct dependencies, one per line, which stands in for its pom. A dependency
+ * collection reads those files transitively from disk, so it pays for file access like the real collector does.
+ */
+final class LocalRepositoryStandIn
+        implements LocalRepositoryManager {
+    private static final String DEPENDENCIES_EXTENSION = "dependencies";
+
+    private final LocalRepository repository;
+
+    LocalRepositoryStandIn(File basedir)
+    {
+        this.repository = new LocalRepository(basedir);
+    }
+
+    File getBasedir()
+    {
+        return repository.getBasedir();
+    }
+
+    /**
+     * Adds an artifact and the coordinates of its direct dependencies.
+     *
+     * @return the file of the artifact in the repository
+     */
+    File install(String coordinates, byte[] content, List<String> dependencies)
+    {
+        Artifact artifact = new DefaultArtifact(coordinates);
+        File file = new File(repository.getBasedir(), getPathForLocalArtifact(artifact));
+        File dependenciesFile = new File(repository.getBasedir(), getPathForLocalArtifact(dependenciesArtifact(artifact)));
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), content);
+            Files.write(dependenciesFile.toPath(), dependencies, UTF_8);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file;
+    }
+
+    /**
+     * @return a new session, with empty session data, that uses this repository
+     */
+    RepositorySystemSession newSession()
+    {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        session.setLocalRepositoryManager(this);
+        session.setOffline(true);
+        return session;
+    }
+
+    /**
+     * @return a repository system that only collects dependencies, from the dependencies files of this repository
+     */
+    RepositorySystem newRepositorySystem()
+    {
+        return (RepositorySystem) Proxy.newProxyInstance(
+                LocalRepositoryStandIn.class.getClassLoader(),
+                new Class<?>[] {RepositorySystem.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("collectDependencies") && args[1] instanceof CollectRequest) {
+                        return collect((CollectRequest) args[1]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private CollectResult collect(CollectRequest request)
+    {
+        Dependency root = request.getRoot();
+        DefaultDependencyNode node = new DefaultDependencyNode(root);
+        node.setChildren(collectChildren(root.getArtifact(), new ArrayList<>()));
+        return new CollectResult(request).setRoot(node);
+    }
+
+    private List<DependencyNode> collectChildren(Artifact artifact, List<String> path)
+    {
+        String key = artifact.getGroupId() + ":" + artifact.getArtifactId();
+        List<DependencyNode> children = new ArrayList<>();
+        if (path.contains(key)) {
+            return children;
+        }
+        path.add(key);
+        File file = new File(repository.getBasedir(), getPathForLocalArtifact(dependenciesArtifact(artifact)));
+        try {
+            for (String coordinates : Files.readAllLines(file.toPath(), UTF_8)) {
+                Artifact child = new DefaultArtifact(coordinates);
+                DefaultDependencyNode childNode = new DefaultDependencyNode(new Dependency(child, "compile"));
+                childNode.setChildren(collectChildren(child, path));
+                children.add(childNode);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        path.remove(path.size() - 1);
+        return children;
+    }
+
+    private static Artifact dependenciesArtifact(Artifact artifact)
+    {
+        return new DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(), null, DEPENDENCIES_EXTENSION, artifact.getVersion());
+    }
+
+    @Override
+    public LocalRepository getRepository()
+    {
+        return repository;
+    }
+
+    @Override
+    public String getPathForLocalArtifact(Artifact artifact)
+    {
+        StringBuilder path = new StringBuilder()
+                .append(artifact.getGroupId().replace('.', '/')).append('/')
+                .append(artifact.getArtifactId()).append('/')
+                .append(artifact.getBaseVersion()).append('/')
+                .append(artifact.getArtifactId()).append('-').append(artifact.getVersion());
+        if (!artifact.getClassifier().isEmpty()) {
+            path.append('-').append(artifact.getClassifier());
+        }
+        return path.append('.').append(artifact.getExtension()).toString();
+    }
+
+    @Override
+    public String getPathForRemoteArtifact(Artifact artifact, RemoteRepository repository, String context)
+    {
+        return getPathForLocalArtifact(artifact);
+    }
+
+    @Override
+    public String getPathForLocalMetadata(Metadata metadata)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getPathForRemoteMetadata(Metadata metadata, RemoteRepository repository, String context)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LocalArtifactResult find(RepositorySystemSession session, LocalArtifactRequest request)
+    {
+        LocalArtifactResult result = new LocalArtifactResult(request);
+        File file = new File(repository.getBasedir(), getPathForLocalArtifact(request.getArtifact()));
+        if (file.isFile()) {
+            result.setFile(file);
+            result.setAvailable(true);
+        }
+        return result;
+    }
+
+    @Override
+    public void add(RepositorySystemSession session, LocalArtifactRegistration request)
+    {
+    }
+
+    @Override
+    public LocalMetadataResult find(RepositorySystemSession session, LocalMetadataRequest request)
+    {
+        return new LocalMetadataResult(request);
+    }
+
+    @Override
+    public void add(RepositorySystemSession session, LocalMetadataRegistration request)
+    {
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import java.lang.reflect.Field;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/**
+ * Configures mojos the way Maven does, by setting their parameter fields, and silences their log
+ * so that logging does not end up in the measurements.
+ */
+final class Mojos {
+    private Mojos()
+    {
+    }
+
+    static <T extends AbstractMojo> T configure(T mojo)
+    {
+        mojo.setLog(new QuietLog());
+        return mojo;
+    }
+
+    static void set(Object mojo, String name, Object value)
+    {
+        try {
+            Field field = mojo.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(mojo, value);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No parameter " + name + " in " + mojo.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * a log that only writes warnings and errors
+     */
+    private static final class QuietLog
+            extends SystemStreamLog {
+        @Override
+        public boolean isDebugEnabled()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isInfoEnabled()
+        {
+            return false;
+        }
+
+        @Override
+        public void debug(CharSequence content)
+        {
+        }
+
+        @Override
+        public void debug(CharSequence content, Throwable error)
+        {
+        }
+
+        @Override
+        public void debug(Throwable error)
+        {
+        }
+
+        @Override
+        public void info(CharSequence content)
+        {
+        }
+
+        @Override
+        public void info(CharSequence content, Throwable error)
+        {
+        }
+
+        @Override
+        public void info(Throwable error)
+        {
+        }
+    }
+}
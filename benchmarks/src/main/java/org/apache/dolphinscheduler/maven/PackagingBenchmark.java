@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code package-plugin} goal: writing the whole archive, and updating it after only the plugin jar changed,
+ * which keeps the bundled jars in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PackagingBenchmark {
+    @Param({"1000", "10000"})
+    private int classes;
+
+    @Param({"10", "100", "500"})
+    private int dependencies;
+
+    private SyntheticProject project;
+    private PluginPackager full;
+    private PluginPackager incremental;
+
+    @Setup(Level.Trial)
+    public void generate()
+            throws IOException, MojoExecutionException
+    {
+        project = SyntheticProject.generate(classes, dependencies);
+        full = packager("full", false);
+        incremental = packager("incremental", true);
+        incremental.execute();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete()
+            throws IOException
+    {
+        project.delete();
+    }
+
+    @Setup(Level.Invocation)
+    public void rebuildPluginJar()
+    {
+        project.touchPluginJar();
+    }
+
+    @Benchmark
+    public void full()
+            throws MojoExecutionException
+    {
+        full.execute();
+    }
+
+    @Benchmark
+    public void incremental()
+            throws MojoExecutionException
+    {
+        incremental.execute();
+    }
+
+    private PluginPackager packager(String name, boolean incremental)
+    {
+        File target = new File(project.getRoot(), "target/" + name);
+        PluginPackager packager = Mojos.configure(new PluginPackager());
+        Mojos.set(packager, "pluginJar", project.getPluginJar());
+        Mojos.set(packager, "outputFile", new File(target, "plugin.zip"));
+        Mojos.set(packager, "compressionLevel", 6);
+        Mojos.set(packager, "incremental", incremental);
+        Mojos.set(packager, "stateFile", new File(target, "dolphinscheduler-package.state"));
+        Mojos.set(packager, "sharedLibraries", false);
+        Mojos.set(packager, "libraryManifestFile", new File(target, LibraryManifest.BUILD_FILE));
+        Mojos.set(packager, "project", project.newMavenProject());
+        Mojos.set(packager, "session", SyntheticProject.newMavenSession(project.getRepository().newSession()));
+        return packager;
+    }
+}
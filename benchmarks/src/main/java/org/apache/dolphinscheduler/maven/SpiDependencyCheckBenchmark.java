@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.RepositorySystemSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code check-spi-dependencies} goal, which checks the scope of every artifact against the SPI dependencies,
+ * with the three ways it gets those: collecting the dependency graph in a new build, reading the manifest
+ * a previous build left in the cache directory, and taking them from the cache of the running build.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class SpiDependencyCheckBenchmark {
+    @Param({"10", "100", "500"})
+    private int artifacts;
+
+    private SyntheticProject project;
+    private SpiDependencyChecker collecting;
+    private SpiDependencyChecker reading;
+    private SpiDependencyChecker cached;
+
+    @Setup(Level.Trial)
+    public void generate()
+            throws IOException, MojoExecutionException
+    {
+        project = SyntheticProject.generate(1, artifacts);
+        collecting = checker(false);
+        reading = checker(true);
+        // writes the manifest the reading checker finds in the cache directory
+        reading.execute();
+        cached = checker(true);
+        cached.execute();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete()
+            throws IOException
+    {
+        project.delete();
+    }
+
+    /**
+     * Every invocation is a new build, whose session does not know the SPI dependencies yet.
+     */
+    @Setup(Level.Invocation)
+    public void newBuild()
+    {
+        Mojos.set(collecting, "repositorySession", project.getRepository().newSession());
+        Mojos.set(reading, "repositorySession", project.getRepository().newSession());
+    }
+
+    @Benchmark
+    public void collect()
+            throws MojoExecutionException
+    {
+        collecting.execute();
+    }
+
+    @Benchmark
+    public void manifest()
+            throws MojoExecutionException
+    {
+        reading.execute();
+    }
+
+    @Benchmark
+    public void cachedInSession()
+            throws MojoExecutionException
+    {
+        cached.execute();
+    }
+
+    private SpiDependencyChecker checker(boolean useSpiDependencyManifest)
+    {
+        RepositorySystemSession session = project.getRepository().newSession();
+        SpiDependencyChecker checker = Mojos.configure(new SpiDependencyChecker());
+        Mojos.set(checker, "spiGroupId", SyntheticProject.SPI_GROUP_ID);
+        Mojos.set(checker, "spiArtifactId", SyntheticProject.SPI_ARTIFACT_ID);
+        Mojos.set(checker, "skipCheckSpiDependencies", false);
+        Mojos.set(checker, "useSpiDependencyManifest", useSpiDependencyManifest);
+        Mojos.set(checker, "skipMetrics", true);
+        Mojos.set(checker, "mavenProject", project.newMavenProject());
+        Mojos.set(checker, "repositorySession", session);
+        Mojos.set(checker, "session", SyntheticProject.newMavenSession(session));
+        Mojos.set(checker, "repositorySystem", project.getRepository().newRepositorySystem());
+        return checker;
+    }
+}
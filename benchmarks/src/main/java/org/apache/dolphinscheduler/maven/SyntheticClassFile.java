@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the smallest class files the JVM accepts: a header with the class, its super class and
+ * its interfaces, and no fields, methods or attributes. That is all the descriptor scan reads.
+ */
+final class SyntheticClassFile {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int JAVA_8 = 52;
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private SyntheticClassFile()
+    {
+    }
+
+    /**
+     * @param name the internal name, like {@code org/example/Plugin}
+     */
+    static byte[] classFile(String name, String superName, String... interfaces)
+    {
+        return write(ACC_PUBLIC | ACC_SUPER, name, superName, interfaces);
+    }
+
+    static byte[] interfaceFile(String name)
+    {
+        return write(ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT, name, "java/lang/Object");
+    }
+
+    private static byte[] write(int access, String name, String superName, String... interfaces)
+    {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(JAVA_8);
+
+            // every class is a utf8 entry followed by its class entry, so class i sits at 2 * i + 2
+            int classes = 2 + interfaces.length;
+            out.writeShort(2 * classes + 1);
+            writeClass(out, name, 1);
+            writeClass(out, superName, 3);
+            for (int i = 0; i < interfaces.length; i++) {
+                writeClass(out, interfaces[i], 2 * i + 5);
+            }
+
+            out.writeShort(access);
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(interfaces.length);
+            for (int i = 0; i < interfaces.length; i++) {
+                out.writeShort(2 * i + 6);
+            }
+            // fields, methods and attributes
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.flush();
+            return bytes.toByteArray();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeClass(DataOutputStream out, String name, int utf8Index)
+            throws IOException
+    {
+        out.writeByte(CONSTANT_UTF8);
+        out.writeUTF(name);
+        out.writeByte(CONSTANT_CLASS);
+        out.writeShort(utf8Index);
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * A generated plugin project in a temporary directory, with its dependencies in a {@link LocalRepositoryStandIn}:
+ *
+ * <ul>
+ * <li>the SPI jar with the plugin interface, and {@value #SPI_DEPENDENCIES} SPI dependencies that each have one more of their own</li>
+ * <li>the given number of dependency jars of {@value #CLASSES_PER_JAR} classes each, bundled with the plugin</li>
+ * <li>a classes directory of the given number of classes, the first of them the plugin class,
+ * the others extending classes of the dependency jars so that the scan has to follow the hierarchy into the jars</li>
+ * <li>the plugin jar with the same classes, for the packaging goal</li>
+ * </ul>
+ */
+final class SyntheticProject {
+    static final String SPI_GROUP_ID = "org.apache.dolphinscheduler";
+    static final String SPI_ARTIFACT_ID = "dolphinscheduler-spi";
+    static final String PLUGIN_CLASS_NAME = "org.apache.dolphinscheduler.spi.DolphinSchedulerPlugin";
+    static final int SPI_DEPENDENCIES = 10;
+    static final int CLASSES_PER_JAR = 20;
+
+    private static final String VERSION = "1.0";
+    private static final String PLUGIN_INTERFACE = PLUGIN_CLASS_NAME.replace('.', '/');
+    private static final int CLASSES_PER_PACKAGE = 1000;
+    // every dependency class extends the previous one, up to chains of this length
+    private static final int CHAIN_LENGTH = 10;
+
+    private final File root;
+    private final LocalRepositoryStandIn repository;
+    private final File classesDirectory;
+    private final File pluginJar;
+    private final List<Artifact> artifacts = new ArrayList<>();
+    private int classes;
+    private int touches;
+
+    private SyntheticProject(File root)
+    {
+        this.root = root;
+        this.repository = new LocalRepositoryStandIn(new File(root, "repository"));
+        this.classesDirectory = new File(root, "target/classes");
+        this.pluginJar = new File(root, "target/plugin-" + VERSION + ".jar");
+    }
+
+    /**
+     * @param classes the number of classes of the plugin, at least one
+     * @param dependencies the number of bundled dependency jars
+     */
+    static SyntheticProject generate(int classes, int dependencies)
+            throws IOException
+    {
+        SyntheticProject project = new SyntheticProject(Files.createTempDirectory("dolphinscheduler-benchmark").toFile());
+        project.generateSpi();
+        project.generateDependencies(dependencies);
+        project.generateClasses(classes, dependencies);
+        return project;
+    }
+
+    File getRoot()
+    {
+        return root;
+    }
+
+    File getClassesDirectory()
+    {
+        return classesDirectory;
+    }
+
+    File getPluginJar()
+    {
+        return pluginJar;
+    }
+
+    LocalRepositoryStandIn getRepository()
+    {
+        return repository;
+    }
+
+    /**
+     * @return a new project with the resolved artifacts, the SPI and its dependencies provided and the others compile scoped
+     */
+    MavenProject newMavenProject()
+    {
+        MavenProject project = new MavenProject();
+        project.setGroupId("bench");
+        project.setArtifactId("plugin");
+        project.setVersion(VERSION);
+        DefaultArtifactHandler handler = new DefaultArtifactHandler("dolphinscheduler-plugin");
+        handler.setExtension("zip");
+        project.setArtifact(new DefaultArtifact("bench", "plugin", VERSION, null, "dolphinscheduler-plugin", null, handler));
+        project.setArtifacts(new LinkedHashSet<>(artifacts));
+        return project;
+    }
+
+    static MavenSession newMavenSession(RepositorySystemSession repositorySession)
+    {
+        return new MavenSession(null, repositorySession, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+    }
+
+    /**
+     * Marks one class of the plugin as changed, a different one on every call, like an edit between two builds.
+     */
+    void touchClass()
+    {
+        File classFile = new File(classesDirectory, pluginClassPath(touches++ % classes));
+        if (!classFile.setLastModified(classFile.lastModified() + 1000)) {
+            throw new IllegalStateException("Failed to touch " + classFile);
+        }
+    }
+
+    /**
+     * Marks the plugin jar as rebuilt, which is the last entry of the plugin archive.
+     */
+    void touchPluginJar()
+    {
+        if (!pluginJar.setLastModified(pluginJar.lastModified() + 1000)) {
+            throw new IllegalStateException("Failed to touch " + pluginJar);
+        }
+    }
+
+    void delete()
+            throws IOException
+    {
+        Files.walkFileTree(root.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+                    throws IOException
+            {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException e)
+                    throws IOException
+            {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void generateSpi()
+            throws IOException
+    {
+        List<String> spiDependencies = new ArrayList<>();
+        for (int i = 0; i < SPI_DEPENDENCIES; i++) {
+            String transitive = "bench.spi:spi-transitive-" + i + ":" + VERSION;
+            repository.install(transitive, jar("bench/spi/transitive" + i), Collections.emptyList());
+            String dependency = "bench.spi:spi-dependency-" + i + ":" + VERSION;
+            File file = repository.install(dependency, jar("bench/spi/dependency" + i), Collections.singletonList(transitive));
+            artifacts.add(artifact("bench.spi", "spi-dependency-" + i, Artifact.SCOPE_PROVIDED, file));
+            spiDependencies.add(dependency);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            addEntry(zip, PLUGIN_INTERFACE + ".class", SyntheticClassFile.interfaceFile(PLUGIN_INTERFACE));
+        }
+        File spiJar = repository.install(SPI_GROUP_ID + ":" + SPI_ARTIFACT_ID + ":" + VERSION, bytes.toByteArray(), spiDependencies);
+        artifacts.add(0, artifact(SPI_GROUP_ID, SPI_ARTIFACT_ID, Artifact.SCOPE_PROVIDED, spiJar));
+    }
+
+    private void generateDependencies(int dependencies)
+            throws IOException
+    {
+        for (int i = 0; i < dependencies; i++) {
+            File file = repository.install("bench.dependency:dependency-" + i + ":" + VERSION, jar(dependencyPackage(i)), Collections.emptyList());
+            artifacts.add(artifact("bench.dependency", "dependency-" + i, Artifact.SCOPE_COMPILE, file));
+        }
+    }
+
+    private void generateClasses(int classes, int dependencies)
+            throws IOException
+    {
+        this.classes = classes;
+        Files.createDirectories(classesDirectory.toPath());
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(pluginJar.toPath()))) {
+            for (int i = 0; i < classes; i++) {
+                String path = pluginClassPath(i);
+                String name = path.substring(0, path.length() - ".class".length());
+                byte[] content;
+                if (i == 0) {
+                    content = SyntheticClassFile.classFile(name, "java/lang/Object", PLUGIN_INTERFACE);
+                }
+                else if (dependencies == 0) {
+                    content = SyntheticClassFile.classFile(name, "java/lang/Object");
+                }
+                else {
+                    content = SyntheticClassFile.classFile(name, dependencyPackage(i % dependencies) + "/Class" + (i % CLASSES_PER_JAR));
+                }
+                File file = new File(classesDirectory, path);
+                Files.createDirectories(file.getParentFile().toPath());
+                Files.write(file.toPath(), content);
+                addEntry(zip, path, content);
+            }
+        }
+    }
+
+    private static String pluginClassPath(int index)
+    {
+        return "bench/plugin/package" + (index / CLASSES_PER_PACKAGE) + "/Class" + index + ".class";
+    }
+
+    private static String dependencyPackage(int index)
+    {
+        return "bench/dependency" + index;
+    }
+
+    /**
+     * @return a jar of {@value #CLASSES_PER_JAR} classes in the package, in chains of {@value #CHAIN_LENGTH}
+     */
+    private static byte[] jar(String packageName)
+            throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < CLASSES_PER_JAR; i++) {
+                String name = packageName + "/Class" + i;
+                String superName = i % CHAIN_LENGTH == 0 ? "java/lang/Object" : packageName + "/Class" + (i - 1);
+                addEntry(zip, name + ".class", SyntheticClassFile.classFile(name, superName));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, byte[] content)
+            throws IOException
+    {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static Artifact artifact(String groupId, String artifactId, String scope, File file)
+    {
+        DefaultArtifact artifact = new DefaultArtifact(groupId, artifactId, VERSION, scope, "jar", null, new DefaultArtifactHandler("jar"));
+        artifact.setFile(file);
+        return artifact;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Phase timings and counters of one goal execution, written as JSON for CI to aggregate across a reactor:
+ *
+ * <pre>
+ * {
+ *   "goal": "...",
+ *   "project": "groupId:artifactId:version",
+ *   "totalMillis": 12.345,
+ *   "phases": { "&lt;phase&gt;": &lt;milliseconds&gt;, ... },
+ *   "counters": { "&lt;counter&gt;": &lt;count&gt;, ... }
+ * }
+ * </pre>
+ *
+ * Phases and counters keep the order they were first recorded in. A phase that runs more than once adds up.
+ * Counters may be updated from the threads of a {@link ClassScanner}.
+ */
+final class BuildMetrics {
+    private final String goal;
+    private final String project;
+    private final long start = System.nanoTime();
+
+    // guarded by this
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+
+    BuildMetrics(String goal, String project)
+    {
+        this.goal = goal;
+        this.project = project;
+    }
+
+    /**
+     * Starts timing a phase, which ends when the returned phase is closed.
+     */
+    Phase phase(String name)
+    {
+        return new Phase(name, System.nanoTime());
+    }
+
+    synchronized void count(String name, long delta)
+    {
+        counters.merge(name, delta, Long::sum);
+    }
+
+    private synchronized void addTime(String name, long nanos)
+    {
+        phases.merge(name, nanos, Long::sum);
+    }
+
+    /**
+     * Writes the metrics through a temporary file, so an aggregating CI job never reads a partial one,
+     * and logs the summary line if asked to.
+     */
+    synchronized void report(File file, boolean logSummary, Log log)
+            throws MojoExecutionException
+    {
+        long total = System.nanoTime() - start;
+        try {
+            File directory = file.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Failed to create directory: " + directory);
+            }
+            File temporary = new File(directory, file.getName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(temporary.toPath(), UTF_8);
+                    JsonWriter json = new JsonWriter(out)) {
+                json.beginObject()
+                        .name("goal").value(goal)
+                        .name("project").value(project)
+                        .name("totalMillis").value(toMillis(total))
+                        .name("phases").beginObject();
+                for (Map.Entry<String, Long> phase : phases.entrySet()) {
+                    json.name(phase.getKey()).value(toMillis(phase.getValue()));
+                }
+                json.endObject().name("counters").beginObject();
+                for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                    json.name(counter.getKey()).value(counter.getValue());
+                }
+                json.endObject().endObject();
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", file), e);
+        }
+
+        if (logSummary) {
+            log.info(summary(total));
+        }
+    }
+
+    private String summary(long total)
+    {
+        StringBuilder summary = new StringBuilder(String.format("Dolphinscheduler plugin %s took %.1f ms", goal, toMillis(total)));
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            summary.append(String.format(", %s %.1f ms", phase.getKey(), toMillis(phase.getValue())));
+        }
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            summary.append(", ").append(counter.getKey()).append(' ').append(counter.getValue());
+        }
+        return summary.toString();
+    }
+
+    private static double toMillis(long nanos)
+    {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * a running phase, timed until it is closed
+     */
+    final class Phase
+            implements AutoCloseable {
+        private final String name;
+        private final long start;
+
+        private Phase(String name, long start)
+        {
+            this.name = name;
+            this.start = start;
+        }
+
+        @Override
+        public void close()
+        {
+            addTime(name, System.nanoTime() - start);
+        }
+    }
+}
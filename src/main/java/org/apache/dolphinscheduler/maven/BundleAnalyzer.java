@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * report the bundled dependency jars no class reachable from the plugin class refers to, and optionally leave them out of the bundle.
+ *
+ * Binds to process-classes after the descriptor generator, whose plugin index names the root classes. Excluded jars are marked
+ * in the report, which the goals that assemble the bundle read, and removed from the plugin index. The project artifacts are left
+ * as they are, so the other goals see the same dependencies whether or not this one ran before them.
+ */
+@Mojo(name = "analyze-bundle",
+        defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class BundleAnalyzer extends AbstractMojo {
+    static final String KEPT = "kept";
+    static final String UNUSED = "unused";
+    static final String EXCLUDED = "excluded";
+    static final String REPORT_FILE = "dolphinscheduler-bundle-report.txt";
+    static final String NATIVE_PACKAGING = "dolphinscheduler-plugin-native";
+
+    @Parameter(defaultValue = "false")
+    private boolean skipBundleAnalysis;
+
+    /**
+     * Whether to leave the unused jars out of the plugin bundle, rather than only reporting them. Takes the
+     * {@code dolphinscheduler-plugin-native} packaging, the {@code dolphinscheduler-plugin} packaging bundles
+     * the whole runtime classpath, so there the unused jars are only reported.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean excludeUnusedJars;
+
+    /**
+     * Classes that are loaded by name, e.g. {@code com.example.Driver}, or {@code com.example.*} for a package
+     * and its sub packages. They and everything they refer to are kept.
+     */
+    @Parameter
+    private final Set<String> keepClasses = new HashSet<>();
+
+    /**
+     * Dependencies, as {@code groupId:artifactId}, that are always kept.
+     */
+    @Parameter
+    private final Set<String> keepArtifacts = new HashSet<>();
+
+    /**
+     * Whether a string constant holding the name of a bundled class counts as a reference, for {@code Class.forName}.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean keepStringReferences;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classesDirectory;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + PluginIndex.RESOURCE)
+    private File pluginIndexFile;
+
+    @Parameter(defaultValue = "${project.build.directory}/" + REPORT_FILE)
+    private File reportFile;
+
+    /**
+     * The number of threads that read class files, 0 to share the available processors
+     * with the other modules the parallel builder runs at the same time.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (skipBundleAnalysis) {
+            getLog().info("Skipping Dolphinscheduler bundle analysis");
+            // the jars a previous analysis excluded are bundled again
+            reportFile.delete();
+            return;
+        }
+
+        List<Artifact> bundled = new ArrayList<>();
+        List<File> sources = new ArrayList<>();
+        sources.add(classesDirectory);
+        for (Artifact artifact : project.getArtifacts()) {
+            if (PluginArtifacts.isBundled(artifact)) {
+                bundled.add(artifact);
+                sources.add(artifact.getFile());
+            }
+        }
+
+        PluginIndex index = readPluginIndex();
+        List<Set<String>> classesBySource;
+        Set<String> reached;
+        try (ClassScanner scanner = new ClassScanner(ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()));
+                ClassReachability reachability = new ClassReachability(sources, keepStringReferences, scanner)) {
+            classesBySource = reachability.getClassesBySource();
+            Set<String> roots = new LinkedHashSet<>();
+            if (index == null) {
+                getLog().info("No plugin index, every class of the plugin is a root of the analysis");
+                roots.addAll(classesBySource.get(0));
+            }
+            else {
+                if (index.getPluginClassName() != null) {
+                    roots.add(index.getPluginClassName());
+                }
+                index.getServices().values().forEach(roots::addAll);
+            }
+            reached = reachability.findReachableClasses(roots, className -> PluginArtifacts.matchesAny(keepClasses, className), scanner);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException("Failed to analyze the classes of the plugin bundle.", e);
+        }
+
+        boolean exclude = excludeUnusedJars;
+        if (exclude && !NATIVE_PACKAGING.equals(project.getPackaging())) {
+            getLog().warn(String.format("Dolphinscheduler plugin packaging %s bundles every runtime dependency, the unused jars are only reported. "
+                    + "Use the %s packaging to exclude them.", project.getPackaging(), NATIVE_PACKAGING));
+            exclude = false;
+        }
+
+        List<Artifact> unused = new ArrayList<>();
+        long totalSize = 0;
+        long unusedSize = 0;
+        List<String> lines = new ArrayList<>();
+        lines.add("status\tbytes\treached\tclasses\tjar");
+        for (int i = 0; i < bundled.size(); i++) {
+            Artifact artifact = bundled.get(i);
+            Set<String> classes = classesBySource.get(i + 1);
+            long reachedCount = classes.stream().filter(reached::contains).count();
+            long size = artifact.getFile().length();
+            totalSize += size;
+            // jars without classes, e.g. of resources or native libraries, are beyond a bytecode analysis
+            boolean used = reachedCount > 0 || classes.isEmpty()
+                    || keepArtifacts.contains(artifact.getGroupId() + ":" + artifact.getArtifactId());
+            if (!used) {
+                unused.add(artifact);
+                unusedSize += size;
+            }
+            String status = used ? KEPT : exclude ? EXCLUDED : UNUSED;
+            lines.add(status + "\t" + size + "\t" + reachedCount + "\t" + classes.size() + "\t" + PluginArtifacts.bundleFileName(artifact));
+        }
+        writeReport(lines);
+
+        getLog().info(String.format("%d of %d bundled jars are never reached from the plugin, %d of %d bytes, see %s",
+                unused.size(), bundled.size(), unusedSize, totalSize, reportFile));
+        for (Artifact artifact : unused) {
+            getLog().info((exclude ? "Excluding " : "Unused: ") + PluginArtifacts.bundleFileName(artifact));
+        }
+
+        if (exclude && !unused.isEmpty() && index != null) {
+            writePluginIndex(index, unused);
+        }
+    }
+
+    /**
+     * @return the bundle file names of the jars the report excludes, none if there is no report
+     */
+    static Set<String> readExcludedJars(File reportFile)
+            throws IOException
+    {
+        Set<String> excluded = new HashSet<>();
+        if (reportFile.isFile()) {
+            for (String line : Files.readAllLines(reportFile.toPath(), UTF_8)) {
+                String[] columns = line.split("\t");
+                if (columns.length == 5 && columns[0].equals(EXCLUDED)) {
+                    excluded.add(columns[4]);
+                }
+            }
+        }
+        return excluded;
+    }
+
+    private PluginIndex readPluginIndex()
+            throws MojoExecutionException
+    {
+        if (!pluginIndexFile.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(pluginIndexFile.toPath())) {
+            return PluginIndex.read(in);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to read %s.", pluginIndexFile), e);
+        }
+    }
+
+    private void writePluginIndex(PluginIndex index, List<Artifact> excluded)
+            throws MojoExecutionException
+    {
+        Set<String> excludedJars = new HashSet<>();
+        for (Artifact artifact : excluded) {
+            excludedJars.add(PluginArtifacts.bundleFileName(artifact));
+        }
+        PluginIndex.Builder builder = PluginIndex.builder()
+                .pluginClassName(index.getPluginClassName())
+                .spiInterfaceName(index.getSpiInterfaceName());
+        index.getServices().forEach((interfaceName, implementations) -> implementations.forEach(implementation -> builder.addService(interfaceName, implementation)));
+        for (String jar : index.getJars()) {
+            if (!excludedJars.contains(jar)) {
+                builder.addJar(jar);
+                for (String className : index.getClasses(jar)) {
+                    builder.addClass(jar, className);
+                }
+            }
+        }
+        try (OutputStream out = Files.newOutputStream(pluginIndexFile.toPath())) {
+            builder.build().write(out);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", pluginIndexFile), e);
+        }
+    }
+
+    private void writeReport(List<String> lines)
+            throws MojoExecutionException
+    {
+        File directory = reportFile.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile.toPath(), UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", reportFile), e);
+        }
+    }
+}
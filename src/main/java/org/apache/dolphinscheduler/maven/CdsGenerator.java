@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * record the classes the plugin loads at startup as an AppCDS class list, with a launcher snippet that uses it
+ *
+ * Forks a JVM on the plugin's class path that loads and instantiates the plugin class and the services of the plugin index,
+ * and writes the class list it dumps, sorted so builds stay reproducible, and a shell snippet to
+ * {@code META-INF/dolphinscheduler/cds/} in the classes directory, so both end up in the plugin jar. An archive is not
+ * built here: it is only valid for the class path and jar files it was dumped with, so the snippet has the worker
+ * create it on its first start instead. Needs Java 11 or later to run the forked JVM, and skips on older ones.
+ */
+@Mojo(name = "generate-cds",
+        defaultPhase = LifecyclePhase.PREPARE_PACKAGE,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class CdsGenerator extends AbstractMojo {
+    static final String CDS_DIRECTORY = "META-INF/dolphinscheduler/cds";
+    static final String CLASS_LIST = CDS_DIRECTORY + "/classlist";
+    static final String LAUNCHER = CDS_DIRECTORY + "/launcher.sh";
+
+    private static final int MINIMUM_JAVA_VERSION = 11;
+
+    @Parameter(defaultValue = "false")
+    private boolean skipCds;
+
+    /**
+     * The java executable of the forked JVM, which should be of the Java version the workers run.
+     */
+    @Parameter(defaultValue = "${java.home}/bin/java")
+    private File jvm;
+
+    /**
+     * Whether a JVM that cannot dump a class list fails the build, rather than skipping the goal.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean failOnUnsupportedJvm;
+
+    /**
+     * The seconds the forked JVM may run.
+     */
+    @Parameter(defaultValue = "60")
+    private int timeout;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classesDirectory;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + PluginIndex.RESOURCE)
+    private File pluginIndexFile;
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-cds.state")
+    private File stateFile;
+
+    @Parameter(defaultValue = "${project}")
+    private MavenProject project;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (skipCds) {
+            getLog().info("Skipping Dolphinscheduler AppCDS class list");
+            return;
+        }
+        PluginIndex index = readPluginIndex();
+        if (index == null || index.getPluginClassName() == null) {
+            getLog().info(String.format("Skipping Dolphinscheduler AppCDS class list, there is no plugin class in %s", pluginIndexFile));
+            return;
+        }
+        Set<String> classNames = new LinkedHashSet<>();
+        classNames.add(index.getPluginClassName());
+        for (List<String> implementations : index.getServices().values()) {
+            classNames.addAll(implementations);
+        }
+
+        File classList = new File(classesDirectory, CLASS_LIST);
+        File launcher = new File(classesDirectory, LAUNCHER);
+        try {
+            List<File> classPath = new ArrayList<>();
+            classPath.add(classesDirectory);
+            for (Artifact artifact : project.getArtifacts()) {
+                if (artifact.getFile() != null && artifact.getArtifactHandler().isAddedToClasspath()) {
+                    classPath.add(artifact.getFile());
+                }
+            }
+            classPath.add(getLoaderLocation());
+
+            String fingerprint = fingerprint(classPath, classNames);
+            if (classList.isFile() && launcher.isFile() && stateFile.isFile()
+                    && fingerprint.equals(new String(Files.readAllBytes(stateFile.toPath()), UTF_8))) {
+                getLog().info(String.format("%s is up to date", classList));
+                return;
+            }
+
+            File directory = classList.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+            }
+            File dump = new File(directory, "classlist.tmp");
+            try {
+                if (!dumpClassList(classPath, classNames, dump)) {
+                    return;
+                }
+                Files.write(classList.toPath(), normalize(dump));
+            }
+            finally {
+                Files.deleteIfExists(dump.toPath());
+            }
+            Files.write(launcher.toPath(), launcherSnippet().getBytes(UTF_8));
+            Files.write(stateFile.toPath(), fingerprint.getBytes(UTF_8));
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", classList), e);
+        }
+    }
+
+    /**
+     * @return false if the JVM cannot dump the classes the plugin loads and the goal is skipped
+     */
+    private boolean dumpClassList(List<File> classPath, Set<String> classNames, File dump)
+            throws IOException, MojoExecutionException
+    {
+        List<String> command = new ArrayList<>();
+        command.add(jvm.getPath());
+        command.add("-Xshare:off");
+        command.add("-XX:DumpLoadedClassList=" + dump.getAbsolutePath());
+        command.add("-cp");
+        command.add(join(classPath));
+        command.add(CdsLoader.class.getName());
+        command.addAll(classNames);
+        getLog().debug("Forking " + command);
+
+        Process process = new ProcessBuilder(command)
+                .directory(project.getBasedir())
+                .redirectErrorStream(true)
+                .start();
+        process.getOutputStream().close();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+            if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new MojoExecutionException(String.format("%n%nThe JVM recording the AppCDS class list did not finish within %d seconds.", timeout));
+            }
+        }
+        catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while recording the AppCDS class list.", e);
+        }
+
+        String javaVersion = null;
+        for (String line : output.toString("UTF-8").split("\\r?\\n")) {
+            if (line.startsWith(CdsLoader.VERSION_MARKER)) {
+                javaVersion = line.substring(CdsLoader.VERSION_MARKER.length());
+            }
+            else if (line.startsWith("Failed to load ")) {
+                getLog().warn(line);
+            }
+            else if (!line.isEmpty()) {
+                getLog().debug(line);
+            }
+        }
+        if (process.exitValue() != 0 || javaVersion == null || majorVersion(javaVersion) < MINIMUM_JAVA_VERSION) {
+            String message = String.format("The JVM %s cannot record the classes of the plugin for AppCDS, which needs Java %d or later%s",
+                    jvm, MINIMUM_JAVA_VERSION, javaVersion == null ? ": " + output.toString("UTF-8").trim() : ", not " + javaVersion);
+            if (failOnUnsupportedJvm) {
+                throw new MojoExecutionException(String.format("%n%n%s", message));
+            }
+            getLog().info("Skipping Dolphinscheduler AppCDS class list. " + message);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the class list without comments, lambda form lines, ids and the loader, sorted
+     */
+    private static byte[] normalize(File dump)
+            throws IOException
+    {
+        Set<String> classes = new TreeSet<>();
+        String loader = CdsLoader.class.getName().replace('.', '/');
+        for (String line : Files.readAllLines(dump.toPath(), UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("@")) {
+                continue;
+            }
+            String name = line.split("\\s+", 2)[0];
+            if (!name.equals(loader)) {
+                classes.add(name);
+            }
+        }
+        StringBuilder content = new StringBuilder();
+        for (String name : classes) {
+            content.append(name).append('\n');
+        }
+        return content.toString().getBytes(UTF_8);
+    }
+
+    private String launcherSnippet()
+    {
+        String archive = project.getArtifactId() + "-" + project.getVersion() + ".jsa";
+        return "# AppCDS for the " + project.getArtifactId() + " plugin, to source from the worker start script.\n"
+                + "# Java 13 or later: the first start writes a dynamic archive, later starts map it.\n"
+                + "# Java 11 and 12: dump a static archive from the class list once, with the class path of the worker:\n"
+                + "#   java -Xshare:dump -XX:SharedClassListFile=" + CLASS_LIST + " -XX:SharedArchiveFile=$CDS_ARCHIVE -cp \"$CLASSPATH\"\n"
+                + "CDS_ARCHIVE=\"${CDS_DIR:-cds}/" + archive + "\"\n"
+                + "if [ -f \"$CDS_ARCHIVE\" ]; then\n"
+                + "    JAVA_OPTS=\"$JAVA_OPTS -XX:SharedArchiveFile=$CDS_ARCHIVE -Xshare:auto\"\n"
+                + "else\n"
+                + "    mkdir -p \"$(dirname \"$CDS_ARCHIVE\")\"\n"
+                + "    JAVA_OPTS=\"$JAVA_OPTS -XX:ArchiveClassesAtExit=$CDS_ARCHIVE\"\n"
+                + "fi\n";
+    }
+
+    private PluginIndex readPluginIndex()
+            throws MojoExecutionException
+    {
+        if (!pluginIndexFile.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(pluginIndexFile.toPath())) {
+            return PluginIndex.read(in);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to read %s.", pluginIndexFile), e);
+        }
+    }
+
+    /**
+     * @return a digest over the JVM, the class path with every class file of the plugin, and the loaded classes
+     */
+    private String fingerprint(List<File> classPath, Set<String> classNames)
+            throws IOException
+    {
+        List<File> files = new ArrayList<>();
+        files.add(jvm);
+        for (File file : classPath) {
+            if (file.isDirectory()) {
+                for (String path : new TreeSet<>(FileUtils.getFileNames(file, "**/*.class", null, false))) {
+                    files.add(new File(file, path));
+                }
+            }
+            else {
+                files.add(file);
+            }
+        }
+        return DescriptorState.fingerprint(files) + "\t" + String.join(",", classNames);
+    }
+
+    private static File getLoaderLocation()
+            throws IOException
+    {
+        try {
+            return new File(CdsLoader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        }
+        catch (URISyntaxException e) {
+            throw new IOException("Cannot locate " + CdsLoader.class.getName(), e);
+        }
+    }
+
+    private static int majorVersion(String specificationVersion)
+    {
+        try {
+            return specificationVersion.startsWith("1.") ? Integer.parseInt(specificationVersion.substring(2)) : Integer.parseInt(specificationVersion);
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String join(List<File> files)
+    {
+        StringBuilder path = new StringBuilder();
+        for (File file : files) {
+            if (path.length() > 0) {
+                path.append(File.pathSeparatorChar);
+            }
+            path.append(file.getAbsolutePath());
+        }
+        return path.toString();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+/**
+ * The main class of the JVM the {@code generate-cds} goal forks: loads, initializes and instantiates the classes
+ * named on the command line, the way a server starting the plugin would, so the JVM records them in its class list.
+ *
+ * It runs on the plugin's class path only, and must not use anything but the JDK.
+ */
+public final class CdsLoader {
+    static final String VERSION_MARKER = "java.specification.version=";
+
+    private CdsLoader()
+    {
+    }
+
+    public static void main(String[] args)
+    {
+        System.out.println(VERSION_MARKER + System.getProperty("java.specification.version"));
+        ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+        for (String className : args) {
+            try {
+                Class<?> type = Class.forName(className, true, classLoader);
+                if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+                    Constructor<?> constructor = type.getDeclaredConstructor();
+                    constructor.setAccessible(true);
+                    constructor.newInstance();
+                }
+            }
+            catch (Throwable e) {
+                // a class that cannot be instantiated here still had its dependencies loaded as far as it got
+                System.out.println("Failed to load " + className + ": " + (e instanceof InvocationTargetException ? e.getCause() : e));
+            }
+        }
+    }
+}
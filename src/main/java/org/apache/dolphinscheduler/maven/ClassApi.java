@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * the linkage facts of a class file: its header, the members other classes can link against,
+ * and the classes, fields and methods its own code links against
+ */
+final class ClassApi {
+    private final ClassHeader header;
+    private final Map<String, Integer> fields;
+    private final Map<String, Integer> methods;
+    private final Set<String> referencedClasses;
+    private final List<MemberReference> references;
+
+    /**
+     * @param fields the access flags of the non-private fields, by {@link #key(String, String)}
+     * @param methods the access flags of the non-private methods, by {@link #key(String, String)}
+     */
+    ClassApi(ClassHeader header, Map<String, Integer> fields, Map<String, Integer> methods, Set<String> referencedClasses, List<MemberReference> references)
+    {
+        this.header = header;
+        this.fields = Collections.unmodifiableMap(fields);
+        this.methods = Collections.unmodifiableMap(methods);
+        this.referencedClasses = Collections.unmodifiableSet(referencedClasses);
+        this.references = Collections.unmodifiableList(references);
+    }
+
+    /**
+     * @return the key of a member, its name and descriptor, e.g. {@code createTask(Ljava/lang/String;)V}
+     * or {@code name Ljava/lang/String;} for a field
+     */
+    static String key(String name, String descriptor)
+    {
+        return descriptor.startsWith("(") ? name + descriptor : name + " " + descriptor;
+    }
+
+    ClassHeader getHeader()
+    {
+        return header;
+    }
+
+    String getName()
+    {
+        return header.getName();
+    }
+
+    Map<String, Integer> getFields()
+    {
+        return fields;
+    }
+
+    Map<String, Integer> getMethods()
+    {
+        return methods;
+    }
+
+    /**
+     * @return the binary names of the class constants, with the element types of array classes
+     */
+    Set<String> getReferencedClasses()
+    {
+        return referencedClasses;
+    }
+
+    List<MemberReference> getReferences()
+    {
+        return references;
+    }
+
+    /**
+     * a field, method or interface method constant, whose owner is not an array class
+     */
+    static final class MemberReference {
+        private final int tag;
+        private final String owner;
+        private final String name;
+        private final String descriptor;
+
+        MemberReference(int tag, String owner, String name, String descriptor)
+        {
+            this.tag = tag;
+            this.owner = owner;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        boolean isField()
+        {
+            return tag == ClassFileReader.CONSTANT_FIELDREF;
+        }
+
+        boolean isInterfaceMethod()
+        {
+            return tag == ClassFileReader.CONSTANT_INTERFACE_METHODREF;
+        }
+
+        /**
+         * @return the binary name of the class the member is looked up in
+         */
+        String getOwner()
+        {
+            return owner;
+        }
+
+        String getName()
+        {
+            return name;
+        }
+
+        String getDescriptor()
+        {
+            return descriptor;
+        }
+
+        String getKey()
+        {
+            return key(name, descriptor);
+        }
+
+        @Override
+        public String toString()
+        {
+            return isField() ? owner + "." + name + " " + descriptor : owner + "." + name + descriptor;
+        }
+    }
+}
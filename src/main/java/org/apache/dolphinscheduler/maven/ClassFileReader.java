@@ -0,0 +1,487 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal class file reader, see chapter 4 of the JVM specification.
+ * It only decodes what the plugin needs and never defines or links the class.
+ */
+final class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+    // an object type in a descriptor or signature, e.g. Ljava/util/List; or the raw type of Ljava/util/List<TT;>;
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([^;<>()\\[\\s:.]+)[;<]");
+    private static final Pattern BINARY_NAME = Pattern.compile("[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*(\\.[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*)+");
+
+    static final int CONSTANT_UTF8 = 1;
+    static final int CONSTANT_INTEGER = 3;
+    static final int CONSTANT_FLOAT = 4;
+    static final int CONSTANT_LONG = 5;
+    static final int CONSTANT_DOUBLE = 6;
+    static final int CONSTANT_CLASS = 7;
+    static final int CONSTANT_STRING = 8;
+    static final int CONSTANT_FIELDREF = 9;
+    static final int CONSTANT_METHODREF = 10;
+    static final int CONSTANT_INTERFACE_METHODREF = 11;
+    static final int CONSTANT_NAME_AND_TYPE = 12;
+    static final int CONSTANT_METHOD_HANDLE = 15;
+    static final int CONSTANT_METHOD_TYPE = 16;
+    static final int CONSTANT_DYNAMIC = 17;
+    static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    static final int CONSTANT_MODULE = 19;
+    static final int CONSTANT_PACKAGE = 20;
+
+    private final DataInputStream in;
+    private final int[] tags;
+    private final Object[] values;
+
+    private ClassFileReader(InputStream inputStream)
+            throws IOException
+    {
+        this.in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        // minor_version, major_version
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int count = in.readUnsignedShort();
+        tags = new int[count];
+        values = new Object[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    values[i] = in.readUTF();
+                    break;
+                case CONSTANT_INTEGER:
+                    values[i] = in.readInt();
+                    break;
+                case CONSTANT_FLOAT:
+                    values[i] = in.readFloat();
+                    break;
+                case CONSTANT_LONG:
+                    values[i] = in.readLong();
+                    // 8-byte constants take up two entries
+                    i++;
+                    break;
+                case CONSTANT_DOUBLE:
+                    values[i] = in.readDouble();
+                    i++;
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    values[i] = in.readUnsignedShort();
+                    break;
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    values[i] = new int[] {in.readUnsignedShort(), in.readUnsignedShort()};
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    values[i] = new int[] {in.readUnsignedByte(), in.readUnsignedShort()};
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+    }
+
+    /**
+     * Reads the constant pool, access flags, super class and interfaces of a class file.
+     * The stream is not closed, and may have been read past the interfaces table.
+     */
+    static ClassHeader readHeader(InputStream inputStream)
+            throws IOException
+    {
+        return new ClassFileReader(inputStream).readHeader();
+    }
+
+    private ClassHeader readHeader()
+            throws IOException
+    {
+        int access = in.readUnsignedShort();
+        String name = className(in.readUnsignedShort());
+        String superName = className(in.readUnsignedShort());
+        int interfaceCount = in.readUnsignedShort();
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(className(in.readUnsignedShort()));
+        }
+        return new ClassHeader(name, access, superName, interfaces);
+    }
+
+    /**
+     * Reads the classes a class file refers to: its class constants and the object types of every descriptor,
+     * signature and annotation in its constant pool. Descriptors are matched loosely, so the result can contain names
+     * of classes that do not exist but never misses a type the constant pool mentions.
+     * The stream is not closed.
+     *
+     * @param includeStrings whether string constants that look like binary class names count as well, for classes loaded by reflection
+     * @return the binary names of the referenced classes
+     */
+    static Set<String> readReferences(InputStream inputStream, boolean includeStrings)
+            throws IOException
+    {
+        return new ClassFileReader(inputStream).readReferences(includeStrings);
+    }
+
+    private Set<String> readReferences(boolean includeStrings)
+            throws IOException
+    {
+        Set<String> references = new HashSet<>();
+        for (int i = 1; i < tags.length; i++) {
+            switch (tags[i]) {
+                case CONSTANT_CLASS:
+                    String name = utf8((Integer) values[i]);
+                    // array classes are descriptors and matched below
+                    if (!name.startsWith("[")) {
+                        references.add(toBinaryName(name));
+                    }
+                    break;
+                case CONSTANT_UTF8:
+                    String value = (String) values[i];
+                    if (value.indexOf(';') >= 0) {
+                        Matcher matcher = DESCRIPTOR_TYPE.matcher(value);
+                        while (matcher.find()) {
+                            references.add(toBinaryName(matcher.group(1)));
+                        }
+                    }
+                    break;
+                case CONSTANT_STRING:
+                    if (includeStrings) {
+                        String string = utf8((Integer) values[i]);
+                        if (BINARY_NAME.matcher(string).matches()) {
+                            references.add(string);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Reads the string constants of a class file, the names a class may hand to {@code Class.forName} or
+     * {@code getResource}. The stream is not closed.
+     */
+    static Set<String> readStrings(InputStream inputStream)
+            throws IOException
+    {
+        return new ClassFileReader(inputStream).readStrings();
+    }
+
+    private Set<String> readStrings()
+            throws IOException
+    {
+        Set<String> strings = new HashSet<>();
+        for (int i = 1; i < tags.length; i++) {
+            if (tags[i] == CONSTANT_STRING) {
+                strings.add(utf8((Integer) values[i]));
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Reads the header, the non-private fields and methods, and the class and member constants of a class file.
+     * Attributes, and with them the code, are skipped. The stream is not closed.
+     */
+    static ClassApi readApi(InputStream inputStream)
+            throws IOException
+    {
+        return new ClassFileReader(inputStream).readApi();
+    }
+
+    private ClassApi readApi()
+            throws IOException
+    {
+        ClassHeader header = readHeader();
+        Map<String, Integer> fields = readMembers();
+        Map<String, Integer> methods = readMembers();
+
+        Set<String> referencedClasses = new HashSet<>();
+        List<ClassApi.MemberReference> references = new ArrayList<>();
+        for (int i = 1; i < tags.length; i++) {
+            switch (tags[i]) {
+                case CONSTANT_CLASS:
+                    String name = utf8((Integer) values[i]);
+                    int elementType = name.lastIndexOf('[') + 1;
+                    if (elementType == 0) {
+                        referencedClasses.add(toBinaryName(name));
+                    }
+                    else if (name.charAt(elementType) == 'L') {
+                        referencedClasses.add(toBinaryName(name.substring(elementType + 1, name.length() - 1)));
+                    }
+                    break;
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                    int[] reference = (int[]) values[i];
+                    String owner = utf8((Integer) constant(reference[0], CONSTANT_CLASS));
+                    // the methods of array classes are those of java.lang.Object
+                    if (owner.startsWith("[")) {
+                        break;
+                    }
+                    int[] nameAndType = (int[]) constant(reference[1], CONSTANT_NAME_AND_TYPE);
+                    references.add(new ClassApi.MemberReference(tags[i], toBinaryName(owner), utf8(nameAndType[0]), utf8(nameAndType[1])));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new ClassApi(header, fields, methods, referencedClasses, references);
+    }
+
+    /**
+     * Reads the header, the public constant fields and the class annotations of a class file, visible and invisible
+     * at runtime alike. Annotation elements left at their default are not part of the class file and not read.
+     * The stream is not closed.
+     */
+    static ClassMetadata readMetadata(InputStream inputStream)
+            throws IOException
+    {
+        return new ClassFileReader(inputStream).readMetadata();
+    }
+
+    private ClassMetadata readMetadata()
+            throws IOException
+    {
+        ClassHeader header = readHeader();
+
+        Map<String, String> constants = new LinkedHashMap<>();
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            int access = in.readUnsignedShort();
+            String name = utf8(in.readUnsignedShort());
+            String descriptor = utf8(in.readUnsignedShort());
+            int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = utf8(in.readUnsignedShort());
+                long length = in.readInt() & 0xFFFFFFFFL;
+                int constantField = ClassHeader.ACC_PUBLIC | ClassHeader.ACC_STATIC | ClassHeader.ACC_FINAL;
+                if ("ConstantValue".equals(attributeName) && (access & constantField) == constantField) {
+                    constants.put(name, constantValue(descriptor.charAt(0), in.readUnsignedShort()));
+                }
+                else {
+                    skipFully(length);
+                }
+            }
+        }
+        readMembers();
+
+        Map<String, Map<String, String>> annotations = new LinkedHashMap<>();
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8(in.readUnsignedShort());
+            long length = in.readInt() & 0xFFFFFFFFL;
+            if (!"RuntimeVisibleAnnotations".equals(attributeName) && !"RuntimeInvisibleAnnotations".equals(attributeName)) {
+                skipFully(length);
+                continue;
+            }
+            int annotationCount = in.readUnsignedShort();
+            for (int j = 0; j < annotationCount; j++) {
+                String type = typeName(utf8(in.readUnsignedShort()));
+                Map<String, String> elements = new LinkedHashMap<>();
+                readAnnotationElements("", elements);
+                annotations.put(type, elements);
+            }
+        }
+        return new ClassMetadata(header, constants, annotations);
+    }
+
+    /**
+     * Reads the element value pairs of an annotation, see section 4.7.16 of the JVM specification.
+     */
+    private void readAnnotationElements(String prefix, Map<String, String> elements)
+            throws IOException
+    {
+        int pairCount = in.readUnsignedShort();
+        for (int i = 0; i < pairCount; i++) {
+            readElementValue(prefix + utf8(in.readUnsignedShort()), elements);
+        }
+    }
+
+    private void readElementValue(String path, Map<String, String> elements)
+            throws IOException
+    {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 's':
+                elements.put(path, utf8(in.readUnsignedShort()));
+                break;
+            case 'e':
+                // the enum type, then the name of the constant
+                in.readUnsignedShort();
+                elements.put(path, utf8(in.readUnsignedShort()));
+                break;
+            case 'c':
+                elements.put(path, typeName(utf8(in.readUnsignedShort())));
+                break;
+            case '@':
+                in.readUnsignedShort();
+                readAnnotationElements(path + ".", elements);
+                break;
+            case '[':
+                int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    readElementValue(path + "." + i, elements);
+                }
+                break;
+            default:
+                elements.put(path, constantValue((char) tag, in.readUnsignedShort()));
+                break;
+        }
+    }
+
+    /**
+     * @param type the field descriptor or annotation tag of the value, which tells booleans and chars from ints
+     */
+    private String constantValue(char type, int index)
+            throws IOException
+    {
+        if (index <= 0 || index >= tags.length) {
+            throw new IOException("Invalid constant pool reference " + index);
+        }
+        switch (tags[index]) {
+            case CONSTANT_STRING:
+                return utf8((Integer) values[index]);
+            case CONSTANT_INTEGER:
+                int value = (Integer) values[index];
+                if (type == 'Z') {
+                    return String.valueOf(value != 0);
+                }
+                return type == 'C' ? String.valueOf((char) value) : String.valueOf(value);
+            case CONSTANT_UTF8:
+            case CONSTANT_FLOAT:
+            case CONSTANT_LONG:
+            case CONSTANT_DOUBLE:
+                return String.valueOf(values[index]);
+            default:
+                throw new IOException("Invalid constant pool reference " + index);
+        }
+    }
+
+    /**
+     * @return the binary name for a field descriptor of an object type, e.g. {@code java.lang.String} for {@code Ljava/lang/String;},
+     * or the descriptor itself for primitive and array types
+     */
+    private static String typeName(String descriptor)
+    {
+        if (descriptor.startsWith("L") && descriptor.endsWith(";")) {
+            return toBinaryName(descriptor.substring(1, descriptor.length() - 1));
+        }
+        return descriptor;
+    }
+
+    /**
+     * @return the access flags of the non-private members of a fields or methods table, by {@link ClassApi#key(String, String)}
+     */
+    private Map<String, Integer> readMembers()
+            throws IOException
+    {
+        int count = in.readUnsignedShort();
+        Map<String, Integer> members = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int access = in.readUnsignedShort();
+            String name = utf8(in.readUnsignedShort());
+            String descriptor = utf8(in.readUnsignedShort());
+            int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                // attribute_name_index, then the attribute_length bytes of the attribute
+                in.readUnsignedShort();
+                skipFully(in.readInt() & 0xFFFFFFFFL);
+            }
+            if ((access & ClassHeader.ACC_PRIVATE) == 0) {
+                members.put(ClassApi.key(name, descriptor), access);
+            }
+        }
+        return members;
+    }
+
+    private void skipFully(long length)
+            throws IOException
+    {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Truncated class file");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private String className(int index)
+            throws IOException
+    {
+        if (index == 0) {
+            return null;
+        }
+        return toBinaryName(utf8((Integer) constant(index, CONSTANT_CLASS)));
+    }
+
+    private String utf8(int index)
+            throws IOException
+    {
+        return (String) constant(index, CONSTANT_UTF8);
+    }
+
+    private Object constant(int index, int expectedTag)
+            throws IOException
+    {
+        if (index <= 0 || index >= tags.length || tags[index] != expectedTag) {
+            throw new IOException("Invalid constant pool reference " + index);
+        }
+        return values[index];
+    }
+
+    /**
+     * @return the binary name for an internal name, e.g. {@code java.lang.Object} for {@code java/lang/Object}
+     */
+    static String toBinaryName(String internalName)
+    {
+        return internalName.replace('/', '.');
+    }
+}
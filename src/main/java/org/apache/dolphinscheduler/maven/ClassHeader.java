@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * the type facts of a class file: name, access flags, super class and interfaces
+ */
+final class ClassHeader {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_INTERFACE = 0x0200;
+    static final int ACC_ABSTRACT = 0x0400;
+    static final int ACC_ANNOTATION = 0x2000;
+    static final int ACC_MODULE = 0x8000;
+
+    private final String name;
+    private final int access;
+    private final String superName;
+    private final List<String> interfaces;
+
+    ClassHeader(String name, int access, String superName, List<String> interfaces)
+    {
+        this.name = name;
+        this.access = access;
+        this.superName = superName;
+        this.interfaces = Collections.unmodifiableList(interfaces);
+    }
+
+    /**
+     * @return the binary class name, e.g. {@code org.apache.Outer$Inner}
+     */
+    String getName()
+    {
+        return name;
+    }
+
+    int getAccess()
+    {
+        return access;
+    }
+
+    /**
+     * @return the binary name of the super class, or null for {@code java.lang.Object} and modules
+     */
+    String getSuperName()
+    {
+        return superName;
+    }
+
+    List<String> getInterfaces()
+    {
+        return interfaces;
+    }
+
+    boolean isInterface()
+    {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    boolean isAbstract()
+    {
+        return (access & ACC_ABSTRACT) != 0;
+    }
+
+    boolean isModule()
+    {
+        return (access & ACC_MODULE) != 0;
+    }
+
+    /**
+     * @return true if the class can be instantiated, i.e. it is neither an interface, an abstract class nor a module descriptor
+     */
+    boolean isConcrete()
+    {
+        return !isInterface() && !isAbstract() && !isModule();
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Resolves the type hierarchy of classes from their class file headers.
+ *
+ * Classes are looked up in the output directory first, then in the dependencies in classpath order.
+ * A dependency is only opened and indexed when a class cannot be found in the ones indexed before it,
+ * so a hierarchy that stays inside the output directory never touches a jar.
+ * JDK classes are read as resources of the system class loader. Classes that cannot be found
+ * anywhere are treated as having no super types.
+ *
+ * Lookups are safe from several threads; the dependency index is built under a lock.
+ */
+final class ClassHierarchy implements Closeable {
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final File classesDirectory;
+    private final Iterator<File> unindexedDependencies;
+
+    private final Map<String, ClassHeader> headers = new ConcurrentHashMap<>();
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private final Map<String, Boolean> subtypes = new ConcurrentHashMap<>();
+    private final AtomicInteger readHeaders = new AtomicInteger();
+
+    // guarded by this
+    private final Map<String, File> dependencyIndex = new HashMap<>();
+    private final Map<File, ZipFile> openJars = new HashMap<>();
+    private int indexedDependencies;
+    private int openedJars;
+
+    ClassHierarchy(File classesDirectory, List<File> dependencies)
+    {
+        this.classesDirectory = classesDirectory;
+        this.unindexedDependencies = dependencies.iterator();
+    }
+
+    /**
+     * Registers an already read header, e.g. one read while scanning the output directory.
+     */
+    void addHeader(ClassHeader header)
+    {
+        headers.put(header.getName(), header);
+    }
+
+    /**
+     * @return the header of the class, or null if it cannot be found
+     */
+    ClassHeader getHeader(String className)
+            throws IOException
+    {
+        ClassHeader header = headers.get(className);
+        if (header != null || missing.contains(className)) {
+            return header;
+        }
+        header = readHeader(className);
+        if (header == null) {
+            missing.add(className);
+        }
+        else {
+            readHeaders.incrementAndGet();
+            headers.put(className, header);
+        }
+        return header;
+    }
+
+    /**
+     * @return true if the class is the target type or extends or implements it, directly or indirectly
+     */
+    boolean isSubtypeOf(String className, String targetName)
+            throws IOException
+    {
+        if (className.equals(targetName)) {
+            return true;
+        }
+        String key = targetName + '\n' + className;
+        Boolean cached = subtypes.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean result = false;
+        ClassHeader header = getHeader(className);
+        if (header != null) {
+            Deque<String> supertypes = new ArrayDeque<>(header.getInterfaces());
+            if (header.getSuperName() != null) {
+                supertypes.addFirst(header.getSuperName());
+            }
+            for (String supertype : supertypes) {
+                if (isSubtypeOf(supertype, targetName)) {
+                    result = true;
+                    break;
+                }
+            }
+        }
+        subtypes.put(key, result);
+        return result;
+    }
+
+    private ClassHeader readHeader(String className)
+            throws IOException
+    {
+        String resourceName = className.replace('.', '/') + CLASS_SUFFIX;
+
+        File classFile = new File(classesDirectory, resourceName);
+        if (classFile.isFile()) {
+            try (InputStream in = new FileInputStream(classFile)) {
+                return ClassFileReader.readHeader(in);
+            }
+        }
+
+        if (className.startsWith("java.")) {
+            try (InputStream in = ClassLoader.getSystemResourceAsStream(resourceName)) {
+                return in == null ? null : ClassFileReader.readHeader(in);
+            }
+        }
+
+        File dependency = findDependency(resourceName);
+        if (dependency == null) {
+            return null;
+        }
+        if (dependency.isDirectory()) {
+            try (InputStream in = new FileInputStream(new File(dependency, resourceName))) {
+                return ClassFileReader.readHeader(in);
+            }
+        }
+        ZipFile jar = openJar(dependency);
+        try (InputStream in = jar.getInputStream(jar.getEntry(resourceName))) {
+            return ClassFileReader.readHeader(in);
+        }
+    }
+
+    private synchronized File findDependency(String resourceName)
+            throws IOException
+    {
+        File dependency = dependencyIndex.get(resourceName);
+        while (dependency == null && unindexedDependencies.hasNext()) {
+            index(unindexedDependencies.next());
+            dependency = dependencyIndex.get(resourceName);
+        }
+        return dependency;
+    }
+
+    private void index(File dependency)
+            throws IOException
+    {
+        indexedDependencies++;
+        if (dependency.isDirectory()) {
+            for (String path : FileUtils.getFileNames(dependency, "**/*" + CLASS_SUFFIX, null, false)) {
+                dependencyIndex.putIfAbsent(path.replace(File.separatorChar, '/'), dependency);
+            }
+        }
+        else if (dependency.isFile()) {
+            Enumeration<? extends ZipEntry> entries;
+            try {
+                entries = openJar(dependency).entries();
+            }
+            catch (ZipException e) {
+                // not an archive, e.g. the file of a pom dependency
+                return;
+            }
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(CLASS_SUFFIX)) {
+                    dependencyIndex.putIfAbsent(name, dependency);
+                }
+            }
+        }
+    }
+
+    private synchronized ZipFile openJar(File jar)
+            throws IOException
+    {
+        ZipFile zipFile = openJars.get(jar);
+        if (zipFile == null) {
+            zipFile = new ZipFile(jar);
+            openJars.put(jar, zipFile);
+            openedJars++;
+        }
+        return zipFile;
+    }
+
+    /**
+     * @return the number of class headers read for lookups, as opposed to registered with {@link #addHeader}
+     */
+    int getReadHeaders()
+    {
+        return readHeaders.get();
+    }
+
+    /**
+     * @return the number of dependencies indexed so far, in classpath order
+     */
+    synchronized int getIndexedDependencies()
+    {
+        return indexedDependencies;
+    }
+
+    synchronized int getOpenedJars()
+    {
+        return openedJars;
+    }
+
+    @Override
+    public synchronized void close()
+            throws IOException
+    {
+        IOException failure = null;
+        for (ZipFile zipFile : openJars.values()) {
+            try {
+                zipFile.close();
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+        openJars.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * the declared metadata of a class file: its public constant fields and the elements of its class annotations,
+ * see {@link ClassFileReader#readMetadata(java.io.InputStream)}
+ */
+final class ClassMetadata {
+    private final ClassHeader header;
+    private final Map<String, String> constants;
+    private final Map<String, Map<String, String>> annotations;
+
+    ClassMetadata(ClassHeader header, Map<String, String> constants, Map<String, Map<String, String>> annotations)
+    {
+        this.header = header;
+        this.constants = Collections.unmodifiableMap(constants);
+        this.annotations = Collections.unmodifiableMap(annotations);
+    }
+
+    ClassHeader getHeader()
+    {
+        return header;
+    }
+
+    /**
+     * @return the values of the public static final fields with a constant value, by field name, in declaration order
+     */
+    Map<String, String> getConstants()
+    {
+        return constants;
+    }
+
+    /**
+     * @return the explicitly given elements of every class annotation, by annotation binary name. An element of an
+     * array is keyed by the element name and its index, an element of a nested annotation by the path to it,
+     * e.g. {@code params.0.name}. A marker annotation has no elements.
+     */
+    Map<String, Map<String, String>> getAnnotations()
+    {
+        return annotations;
+    }
+}
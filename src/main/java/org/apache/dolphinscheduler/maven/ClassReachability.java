@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds the classes of a plugin bundle that can be reached from a set of root classes by following the references
+ * in their class files, one breadth-first level at a time on {@link ClassScanner} threads.
+ *
+ * A bundle is a list of sources, the plugin's classes directory and the bundled jars, in class path order.
+ * Besides bytecode references, a class is reached when:
+ * <ul>
+ * <li>it implements a reached interface in a {@code META-INF/services} file, for {@link java.util.ServiceLoader}</li>
+ * <li>it is registered in a {@code META-INF/services} file of an interface the bundle does not contain,
+ * since the server or the JDK may load it</li>
+ * <li>a reached class names it in a string constant, for reflection, if enabled</li>
+ * </ul>
+ */
+final class ClassReachability
+        implements Closeable {
+    private static final String SERVICES = "META-INF/services/";
+
+    private final List<File> sources;
+    private final boolean includeStrings;
+    private final Map<String, Integer> sourceByClass = new HashMap<>();
+    private final List<Set<String>> classesBySource = new ArrayList<>();
+    private final List<Set<String>> resourcesBySource = new ArrayList<>();
+    private final Map<String, Set<String>> servicesByInterface = new HashMap<>();
+    private final Map<Integer, ZipFile> jars = new HashMap<>();
+
+    ClassReachability(List<File> sources, boolean includeStrings, ClassScanner scanner)
+            throws IOException
+    {
+        this.sources = sources;
+        this.includeStrings = includeStrings;
+        List<Listing> listings = scanner.map(sources, Listing::new);
+        for (int i = 0; i < listings.size(); i++) {
+            Listing listing = listings.get(i);
+            classesBySource.add(listing.classes);
+            resourcesBySource.add(listing.resources);
+            for (String className : listing.classes) {
+                sourceByClass.putIfAbsent(className, i);
+            }
+            for (Map.Entry<String, Set<String>> service : listing.services.entrySet()) {
+                servicesByInterface.computeIfAbsent(service.getKey(), key -> new LinkedHashSet<>()).addAll(service.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the classes of each source, in source order
+     */
+    List<Set<String>> getClassesBySource()
+    {
+        return Collections.unmodifiableList(classesBySource);
+    }
+
+    /**
+     * @return the paths of the entries of each source that are not class files, in source order
+     */
+    List<Set<String>> getResourcesBySource()
+    {
+        return Collections.unmodifiableList(resourcesBySource);
+    }
+
+    /**
+     * @return the implementations registered in the {@code META-INF/services} files of all sources, by interface
+     */
+    Map<String, Set<String>> getServices()
+    {
+        return Collections.unmodifiableMap(servicesByInterface);
+    }
+
+    /**
+     * @return the index of the first source with the class, or -1 if the bundle does not contain it
+     */
+    int findSource(String className)
+    {
+        return sourceByClass.getOrDefault(className, -1);
+    }
+
+    /**
+     * @param classes classes of the bundle
+     * @return the string constants of each class, in the order of the classes
+     */
+    List<Set<String>> readStrings(List<String> classes, ClassScanner scanner)
+            throws IOException
+    {
+        return scanner.map(classes, className -> readClass(className, ClassFileReader::readStrings));
+    }
+
+    /**
+     * @param roots the classes to start from, those not in the bundle are ignored
+     * @param keep whether a bundled class is always reached, for classes only loaded by name
+     * @return the reached classes of the bundle
+     */
+    Set<String> findReachableClasses(Collection<String> roots, Predicate<String> keep, ClassScanner scanner)
+            throws IOException
+    {
+        Set<String> reached = new HashSet<>();
+        List<String> frontier = new ArrayList<>();
+        for (String root : roots) {
+            visit(root, reached, frontier);
+        }
+        for (String className : sourceByClass.keySet()) {
+            if (keep.test(className)) {
+                visit(className, reached, frontier);
+            }
+        }
+        for (Map.Entry<String, Set<String>> service : servicesByInterface.entrySet()) {
+            if (!sourceByClass.containsKey(service.getKey())) {
+                for (String implementation : service.getValue()) {
+                    visit(implementation, reached, frontier);
+                }
+            }
+        }
+
+        while (!frontier.isEmpty()) {
+            List<Set<String>> references = scanner.map(frontier, this::readReferences);
+            List<String> next = new ArrayList<>();
+            for (String className : frontier) {
+                for (String implementation : servicesByInterface.getOrDefault(className, Collections.emptySet())) {
+                    visit(implementation, reached, next);
+                }
+            }
+            for (Set<String> classReferences : references) {
+                for (String reference : classReferences) {
+                    visit(reference, reached, next);
+                }
+            }
+            frontier = next;
+        }
+        return reached;
+    }
+
+    private void visit(String className, Set<String> reached, List<String> frontier)
+    {
+        if (sourceByClass.containsKey(className) && reached.add(className)) {
+            frontier.add(className);
+        }
+    }
+
+    private Set<String> readReferences(String className)
+            throws IOException
+    {
+        return readClass(className, in -> ClassFileReader.readReferences(in, includeStrings));
+    }
+
+    private <T> T readClass(String className, ClassScanner.ScanFunction<InputStream, T> reader)
+            throws IOException
+    {
+        int source = sourceByClass.get(className);
+        String path = className.replace('.', '/') + ".class";
+        File file = sources.get(source);
+        if (file.isDirectory()) {
+            try (InputStream in = Files.newInputStream(new File(file, path).toPath())) {
+                return reader.apply(in);
+            }
+        }
+        ZipFile zipFile = openJar(source);
+        ZipEntry entry = zipFile.getEntry(path);
+        if (entry == null) {
+            throw new IOException("Missing " + path + " in " + file);
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            return reader.apply(in);
+        }
+    }
+
+    private synchronized ZipFile openJar(int source)
+            throws IOException
+    {
+        ZipFile zipFile = jars.get(source);
+        if (zipFile == null) {
+            zipFile = new ZipFile(sources.get(source));
+            jars.put(source, zipFile);
+        }
+        return zipFile;
+    }
+
+    @Override
+    public synchronized void close()
+            throws IOException
+    {
+        IOException failure = null;
+        for (ZipFile zipFile : jars.values()) {
+            try {
+                zipFile.close();
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+        jars.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * the classes, resources and service registrations of one source
+     */
+    private static final class Listing {
+        private final Set<String> classes;
+        private final Set<String> resources = new LinkedHashSet<>();
+        private final Map<String, Set<String>> services = new HashMap<>();
+
+        Listing(File source)
+                throws IOException
+        {
+            classes = new LinkedHashSet<>(PluginArtifacts.listClasses(source));
+            if (source.isDirectory()) {
+                for (String path : FileUtils.getFileNames(source, "**", "**/*.class", false)) {
+                    resources.add(path.replace(File.separatorChar, '/'));
+                }
+                File servicesDirectory = new File(source, SERVICES);
+                if (servicesDirectory.isDirectory()) {
+                    for (String name : FileUtils.getFileNames(servicesDirectory, "*", null, false)) {
+                        try (InputStream in = Files.newInputStream(new File(servicesDirectory, name).toPath())) {
+                            services.put(name, readServices(in));
+                        }
+                    }
+                }
+            }
+            else if (source.isFile()) {
+                try (ZipFile zipFile = new ZipFile(source)) {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        String name = entry.getName();
+                        if (!entry.isDirectory() && !name.endsWith(".class")) {
+                            resources.add(name);
+                        }
+                        if (name.startsWith(SERVICES) && name.length() > SERVICES.length() && name.indexOf('/', SERVICES.length()) < 0) {
+                            try (InputStream in = zipFile.getInputStream(entry)) {
+                                services.put(name.substring(SERVICES.length()), readServices(in));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private static Set<String> readServices(InputStream in)
+                throws IOException
+        {
+            Set<String> implementations = new LinkedHashSet<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String implementation = (comment < 0 ? line : line.substring(0, comment)).trim();
+                if (!implementation.isEmpty()) {
+                    implementations.add(implementation);
+                }
+            }
+            return implementations;
+        }
+    }
+}
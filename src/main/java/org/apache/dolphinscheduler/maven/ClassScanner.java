@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Applies a function to every element of a list on a fork/join pool.
+ *
+ * The list is split in halves until a slice is small enough, and the results of the slices are
+ * concatenated in list order, so the outcome never depends on how the threads interleave.
+ */
+final class ClassScanner implements AutoCloseable {
+    private static final int SLICE_SIZE = 64;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism the number of worker threads, or 0 or less for one per available processor
+     */
+    ClassScanner(int parallelism)
+    {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the configured parallelism, or else the available processors shared by the modules the builder runs at the same time
+     */
+    static int getParallelism(int configured, int degreeOfConcurrency)
+    {
+        if (configured > 0) {
+            return configured;
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, degreeOfConcurrency));
+    }
+
+    int getParallelism()
+    {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return the results of the function in the order of the input, without the null ones
+     */
+    <T, R> List<R> map(List<T> input, ScanFunction<T, R> function)
+            throws IOException
+    {
+        if (input.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return pool.invoke(new ScanTask<>(input, 0, input.size(), function));
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * the work done for one element, may return null to drop it
+     */
+    interface ScanFunction<T, R> {
+        R apply(T element)
+                throws IOException;
+    }
+
+    private static final class ScanTask<T, R> extends RecursiveTask<List<R>> {
+        private final List<T> input;
+        private final int from;
+        private final int to;
+        private final ScanFunction<T, R> function;
+
+        ScanTask(List<T> input, int from, int to, ScanFunction<T, R> function)
+        {
+            this.input = input;
+            this.from = from;
+            this.to = to;
+            this.function = function;
+        }
+
+        @Override
+        protected List<R> compute()
+        {
+            if (to - from <= SLICE_SIZE) {
+                List<R> results = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    try {
+                        R result = function.apply(input.get(i));
+                        if (result != null) {
+                            results.add(result);
+                        }
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return results;
+            }
+
+            int middle = (from + to) >>> 1;
+            ScanTask<T, R> left = new ScanTask<>(input, from, middle, function);
+            ScanTask<T, R> right = new ScanTask<>(input, middle, to, function);
+            left.fork();
+            List<R> results = new ArrayList<>(right.compute());
+            results.addAll(0, left.join());
+            return results;
+        }
+    }
+}
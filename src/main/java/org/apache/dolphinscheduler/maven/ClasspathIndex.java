@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * The classes of a set of artifacts by name, to find the classes and packages that more than one of them provides.
+ *
+ * The jars are listed from their central directory only, on {@link ClassScanner} threads, and merged in artifact order,
+ * so each class lists its artifacts in classpath order.
+ */
+final class ClasspathIndex {
+    private final Map<String, List<Artifact>> artifactsByClass;
+    private final Map<String, List<Artifact>> artifactsByPackage;
+
+    private ClasspathIndex(Map<String, List<Artifact>> artifactsByClass, Map<String, List<Artifact>> artifactsByPackage)
+    {
+        this.artifactsByClass = artifactsByClass;
+        this.artifactsByPackage = artifactsByPackage;
+    }
+
+    static ClasspathIndex build(List<Artifact> artifacts, int parallelism)
+            throws IOException
+    {
+        List<Listing> listings;
+        try (ClassScanner scanner = new ClassScanner(parallelism)) {
+            listings = scanner.map(artifacts, artifact -> new Listing(artifact, PluginArtifacts.listClasses(artifact.getFile())));
+        }
+        Map<String, List<Artifact>> artifactsByClass = new HashMap<>();
+        Map<String, List<Artifact>> artifactsByPackage = new HashMap<>();
+        for (Listing listing : listings) {
+            for (String className : listing.classes) {
+                addOwner(artifactsByClass, className, listing.artifact);
+            }
+            for (String packageName : listing.packages) {
+                addOwner(artifactsByPackage, packageName, listing.artifact);
+            }
+        }
+        return new ClasspathIndex(artifactsByClass, artifactsByPackage);
+    }
+
+    private static void addOwner(Map<String, List<Artifact>> index, String name, Artifact artifact)
+    {
+        List<Artifact> owners = index.computeIfAbsent(name, key -> new ArrayList<>(1));
+        if (!owners.contains(artifact)) {
+            owners.add(artifact);
+        }
+    }
+
+    int getClassCount()
+    {
+        return artifactsByClass.size();
+    }
+
+    /**
+     * @return the classes provided by more than one artifact, sorted by name and grouped by the artifacts that provide them
+     */
+    Map<List<Artifact>, List<String>> getDuplicateClasses(Predicate<String> ignored)
+    {
+        Map<String, List<Artifact>> duplicateClasses = new TreeMap<>();
+        for (Map.Entry<String, List<Artifact>> entry : artifactsByClass.entrySet()) {
+            if (entry.getValue().size() > 1 && !isPackageInfo(entry.getKey()) && !ignored.test(entry.getKey())) {
+                duplicateClasses.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Map<List<Artifact>, List<String>> duplicates = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Artifact>> entry : duplicateClasses.entrySet()) {
+            duplicates.computeIfAbsent(entry.getValue(), key -> new ArrayList<>()).add(entry.getKey());
+        }
+        return duplicates;
+    }
+
+    /**
+     * @return the packages with classes from more than one artifact, sorted by name, with those artifacts in classpath order
+     */
+    Map<String, List<Artifact>> getSplitPackages(Predicate<String> ignored)
+    {
+        Map<String, List<Artifact>> packages = new TreeMap<>();
+        for (Map.Entry<String, List<Artifact>> entry : artifactsByPackage.entrySet()) {
+            if (entry.getValue().size() > 1 && !ignored.test(entry.getKey())) {
+                packages.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+        }
+        return Collections.unmodifiableMap(packages);
+    }
+
+    /**
+     * @return the artifact first on the classpath that provides the class, or else the first one with classes in its package,
+     * or null if no artifact has either, e.g. for a class of the JDK
+     */
+    Artifact findArtifact(String className)
+    {
+        List<Artifact> owners = artifactsByClass.get(className);
+        if (owners == null) {
+            owners = artifactsByPackage.get(getPackageName(className));
+        }
+        return owners == null ? null : owners.get(0);
+    }
+
+    static String getPackageName(String className)
+    {
+        int dot = className.lastIndexOf('.');
+        return dot < 0 ? "" : className.substring(0, dot);
+    }
+
+    private static boolean isPackageInfo(String className)
+    {
+        return className.endsWith(".package-info") || className.equals("package-info");
+    }
+
+    /**
+     * the classes of one artifact and their packages
+     */
+    private static final class Listing {
+        private final Artifact artifact;
+        private final List<String> classes;
+        private final Set<String> packages = new HashSet<>();
+
+        Listing(Artifact artifact, List<String> classes)
+        {
+            this.artifact = artifact;
+            this.classes = classes;
+            for (String className : classes) {
+                packages.add(getPackageName(className));
+            }
+        }
+    }
+}
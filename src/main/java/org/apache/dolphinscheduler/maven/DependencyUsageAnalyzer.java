@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * report the declared dependencies no class of the plugin refers to, and the ones it refers to without declaring them
+ *
+ * The class references in the constant pools of the compiled classes are mapped onto the classes and packages of every
+ * dependency, first on the classpath winning. A direct dependency nothing refers to is unused, and a transitive one something
+ * refers to is used but undeclared, so that it may go away with the dependency that brings it in. Runtime dependencies are
+ * expected to go unreferenced and are not reported as unused by default. Unlike {@code analyze-bundle}, which follows the
+ * references from the plugin class into the bundled jars, this only looks at what the plugin's own classes refer to.
+ */
+@Mojo(name = "analyze-dependencies",
+        defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class DependencyUsageAnalyzer extends AbstractMojo {
+    static final String USED = "used";
+    static final String UNUSED_DECLARED = "unused-declared";
+    static final String USED_UNDECLARED = "used-undeclared";
+    static final String UNUSED = "unused";
+    private static final int MAX_LISTED_CLASSES = 3;
+
+    @Parameter(defaultValue = "false")
+    private boolean skipDependencyAnalysis;
+
+    /**
+     * Whether a declared dependency no class refers to fails the build rather than being logged as a warning.
+     */
+    @Parameter(defaultValue = "false", property = "dolphinscheduler.failOnUnusedDeclared")
+    private boolean failOnUnusedDeclared;
+
+    /**
+     * Whether a class reference to a transitive dependency fails the build rather than being logged as a warning.
+     */
+    @Parameter(defaultValue = "false", property = "dolphinscheduler.failOnUsedUndeclared")
+    private boolean failOnUsedUndeclared;
+
+    /**
+     * Whether runtime dependencies, which are there to be loaded by name, are left out of the unused ones.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean ignoreRuntimeScope;
+
+    /**
+     * Declared dependencies that may be unused, as {@code groupId:artifactId[:version]} patterns,
+     * in which {@code *} matches any part of a segment.
+     */
+    @Parameter
+    private final Set<String> ignoredUnusedDeclaredDependencies = new HashSet<>();
+
+    /**
+     * Transitive dependencies that may be used, as {@code groupId:artifactId[:version]} patterns.
+     */
+    @Parameter
+    private final Set<String> ignoredUsedUndeclaredDependencies = new HashSet<>();
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classesDirectory;
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-dependency-report.txt")
+    private File reportFile;
+
+    /**
+     * The number of threads that read class files and list the dependencies, 0 to share the available processors
+     * with the other modules the parallel builder runs at the same time.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    @Parameter(defaultValue = "${project}")
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (skipDependencyAnalysis) {
+            getLog().info("Skipping Dolphinscheduler dependency analysis");
+            return;
+        }
+
+        List<Artifact> artifacts = new ArrayList<>();
+        for (Artifact artifact : project.getArtifacts()) {
+            File file = artifact.getFile();
+            if (file != null && (file.isDirectory() || file.getName().endsWith(".jar"))) {
+                artifacts.add(artifact);
+            }
+        }
+
+        int threads = ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency());
+        Map<Artifact, Set<String>> usages = new LinkedHashMap<>();
+        try {
+            ClasspathIndex index = ClasspathIndex.build(artifacts, threads);
+            for (Map.Entry<String, Set<String>> reference : readReferences(threads).entrySet()) {
+                Artifact artifact = isPlatformClass(reference.getKey()) ? null : index.findArtifact(reference.getKey());
+                if (artifact != null) {
+                    usages.computeIfAbsent(artifact, key -> new TreeSet<>()).addAll(reference.getValue());
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException("Failed to analyze the class references of the plugin.", e);
+        }
+
+        List<String> unusedDeclared = new ArrayList<>();
+        List<String> usedUndeclared = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        lines.add("status\tscope\tbytes\tusers\tdependency");
+        for (Artifact artifact : artifacts) {
+            Set<String> users = usages.get(artifact);
+            String coordinates = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+            String status;
+            if (isDeclared(artifact)) {
+                if (users != null) {
+                    status = USED;
+                }
+                else if ((ignoreRuntimeScope && Artifact.SCOPE_RUNTIME.equals(artifact.getScope()))
+                        || PluginArtifacts.matchesAnyArtifact(ignoredUnusedDeclaredDependencies, artifact)) {
+                    status = UNUSED;
+                }
+                else {
+                    status = UNUSED_DECLARED;
+                    unusedDeclared.add(String.format("Dolphinscheduler plugin declares %s (%s), but none of its classes refers to it%s.",
+                            coordinates, artifact.getScope(), PluginArtifacts.isBundled(artifact)
+                                    ? String.format(", leaving it out saves %d bytes of the bundle", artifact.getFile().length()) : ""));
+                }
+            }
+            else if (users == null) {
+                status = UNUSED;
+            }
+            else if (PluginArtifacts.matchesAnyArtifact(ignoredUsedUndeclaredDependencies, artifact)) {
+                status = USED;
+            }
+            else {
+                status = USED_UNDECLARED;
+                usedUndeclared.add(String.format("Dolphinscheduler plugin uses %s (%s) without declaring it, it comes in through %s. Used by %s",
+                        coordinates, artifact.getScope(), describeTrail(artifact), abbreviate(users)));
+            }
+            lines.add(status + "\t" + artifact.getScope() + "\t" + artifact.getFile().length() + "\t" + (users == null ? 0 : users.size()) + "\t" + coordinates);
+        }
+        writeReport(lines);
+
+        getLog().info(String.format("%d of the declared dependencies are unused and %d transitive ones are used, see %s",
+                unusedDeclared.size(), usedUndeclared.size(), reportFile));
+        List<String> failures = new ArrayList<>();
+        report(unusedDeclared, failOnUnusedDeclared, failures);
+        report(usedUndeclared, failOnUsedUndeclared, failures);
+        if (!failures.isEmpty()) {
+            throw new MojoExecutionException(String.format("%n%n%s", String.join(String.format("%n"), failures)));
+        }
+    }
+
+    private void report(List<String> problems, boolean fail, List<String> failures)
+    {
+        if (fail) {
+            failures.addAll(problems);
+            return;
+        }
+        for (String problem : problems) {
+            getLog().warn(problem);
+        }
+    }
+
+    /**
+     * @return the classes the compiled classes refer to, outside the plugin itself, each with the classes that refer to it
+     */
+    private Map<String, Set<String>> readReferences(int threads)
+            throws IOException
+    {
+        List<String> paths = new ArrayList<>();
+        if (classesDirectory.isDirectory()) {
+            paths.addAll(FileUtils.getFileNames(classesDirectory, "**/*.class", null, false));
+        }
+        List<ClassReferences> classes;
+        try (ClassScanner scanner = new ClassScanner(threads)) {
+            classes = scanner.map(paths, path -> {
+                try (InputStream in = Files.newInputStream(new File(classesDirectory, path).toPath())) {
+                    String name = ClassFileReader.toBinaryName(path.substring(0, path.length() - ".class".length()).replace(File.separatorChar, '/'));
+                    return new ClassReferences(name, ClassFileReader.readReferences(in, false));
+                }
+            });
+        }
+        Set<String> own = new HashSet<>();
+        for (ClassReferences references : classes) {
+            own.add(references.className);
+        }
+        Map<String, Set<String>> users = new LinkedHashMap<>();
+        for (ClassReferences references : classes) {
+            for (String reference : references.references) {
+                if (!own.contains(reference)) {
+                    users.computeIfAbsent(reference, key -> new TreeSet<>()).add(references.className);
+                }
+            }
+        }
+        return users;
+    }
+
+    /**
+     * The JDK shares packages such as {@code javax.annotation} with dependencies, its classes must not count for them.
+     */
+    private static boolean isPlatformClass(String className)
+    {
+        return className.startsWith("java.") || ClassLoader.getSystemResource(className.replace('.', '/') + ".class") != null;
+    }
+
+    /**
+     * @return true if the project declares the dependency itself, its trail being the project and the dependency
+     */
+    private static boolean isDeclared(Artifact artifact)
+    {
+        List<String> trail = artifact.getDependencyTrail();
+        return trail == null || trail.size() <= 2;
+    }
+
+    private static String describeTrail(Artifact artifact)
+    {
+        List<String> trail = artifact.getDependencyTrail();
+        return trail == null || trail.size() < 2 ? "an unknown dependency" : trail.get(1);
+    }
+
+    private static String abbreviate(Set<String> classes)
+    {
+        List<String> listed = new ArrayList<>(classes);
+        String joined = String.join(", ", listed.subList(0, Math.min(MAX_LISTED_CLASSES, listed.size())));
+        return listed.size() > MAX_LISTED_CLASSES ? joined + ", ..." : joined;
+    }
+
+    private void writeReport(List<String> lines)
+            throws MojoExecutionException
+    {
+        File directory = reportFile.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile.toPath(), UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", reportFile), e);
+        }
+    }
+
+    /**
+     * the classes one compiled class refers to
+     */
+    private static final class ClassReferences {
+        private final String className;
+        private final Set<String> references;
+
+        ClassReferences(String className, Set<String> references)
+        {
+            this.className = className;
+            this.references = references;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The state the descriptor generator keeps between builds, stored as a tab separated text file:
+ *
+ * <pre>
+ * version  1
+ * classpath  &lt;fingerprint of the dependency files&gt;
+ * index  &lt;fingerprint of the plugin index file&gt;
+ * metadata  &lt;fingerprint of the plugin metadata file&gt;
+ * service  &lt;interface&gt;  &lt;cardinality&gt;  &lt;generated content&gt;
+ * class  &lt;path&gt;  &lt;size&gt;  &lt;last modified&gt;  &lt;name&gt;  &lt;access&gt;  &lt;super class&gt;  &lt;interfaces&gt;
+ * jar  &lt;path&gt;  &lt;size&gt;  &lt;last modified&gt;  &lt;scanned interfaces&gt;
+ * implementation  &lt;jar path&gt;  &lt;name&gt;  &lt;interfaces&gt;
+ * </pre>
+ *
+ * The implementations found in a dependency jar follow the record of the jar.
+ * A service file is only recorded when the plugin wrote it, so a file without a record,
+ * or with a different content, was written by the user.
+ */
+final class DescriptorState {
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "\t";
+    private static final String LIST_SEPARATOR = ",";
+    private static final String NONE = "-";
+
+    private String classpathFingerprint;
+    private String pluginIndexFingerprint;
+    private String pluginMetadataFingerprint;
+    private final Map<String, String> generatedServices = new TreeMap<>();
+    private final Map<String, String> serviceCardinalities = new TreeMap<>();
+    private final Map<String, ClassEntry> classes = new TreeMap<>();
+    private final Map<String, JarEntry> jars = new TreeMap<>();
+
+    /**
+     * @return the stored state, or an empty state if the file is missing, unreadable or of another version
+     */
+    static DescriptorState load(File file)
+    {
+        DescriptorState state = new DescriptorState();
+        if (!file.isFile()) {
+            return state;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+            String line = reader.readLine();
+            if (line == null || !line.equals("version" + SEPARATOR + VERSION)) {
+                return state;
+            }
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, -1);
+                switch (fields[0]) {
+                    case "classpath":
+                        state.classpathFingerprint = fields[1];
+                        break;
+                    case "index":
+                        state.pluginIndexFingerprint = fields[1];
+                        break;
+                    case "metadata":
+                        state.pluginMetadataFingerprint = fields[1];
+                        break;
+                    case "service":
+                        state.serviceCardinalities.put(fields[1], fields[2]);
+                        state.generatedServices.put(fields[1], fields[3].replace(LIST_SEPARATOR, "\n"));
+                        break;
+                    case "class":
+                        ClassHeader header = new ClassHeader(fields[4], Integer.parseInt(fields[5]), fromField(fields[6]), splitList(fields[7]));
+                        state.classes.put(fields[1], new ClassEntry(Long.parseLong(fields[2]), Long.parseLong(fields[3]), header));
+                        break;
+                    case "jar":
+                        state.jars.put(fields[1], new JarEntry(Long.parseLong(fields[2]), Long.parseLong(fields[3]), splitList(fields[4])));
+                        break;
+                    case "implementation":
+                        JarEntry jar = state.jars.get(fields[1]);
+                        if (jar == null) {
+                            throw new IOException("Implementation of an unknown jar " + fields[1]);
+                        }
+                        jar.getImplementations().put(fields[2], splitList(fields[3]));
+                        break;
+                    default:
+                        throw new IOException("Unknown record " + fields[0]);
+                }
+            }
+            return state;
+        }
+        catch (IOException | RuntimeException e) {
+            // a damaged state only costs a full scan
+            return new DescriptorState();
+        }
+    }
+
+    void store(File file)
+            throws IOException
+    {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), UTF_8)) {
+            writer.write("version" + SEPARATOR + VERSION);
+            writer.newLine();
+            if (classpathFingerprint != null) {
+                writer.write("classpath" + SEPARATOR + classpathFingerprint);
+                writer.newLine();
+            }
+            if (pluginIndexFingerprint != null) {
+                writer.write("index" + SEPARATOR + pluginIndexFingerprint);
+                writer.newLine();
+            }
+            if (pluginMetadataFingerprint != null) {
+                writer.write("metadata" + SEPARATOR + pluginMetadataFingerprint);
+                writer.newLine();
+            }
+            for (Map.Entry<String, String> service : generatedServices.entrySet()) {
+                writer.write("service" + SEPARATOR + service.getKey()
+                        + SEPARATOR + serviceCardinalities.get(service.getKey())
+                        + SEPARATOR + service.getValue().replace("\n", LIST_SEPARATOR));
+                writer.newLine();
+            }
+            for (Map.Entry<String, ClassEntry> entry : classes.entrySet()) {
+                ClassEntry classEntry = entry.getValue();
+                ClassHeader header = classEntry.getHeader();
+                writer.write("class" + SEPARATOR + entry.getKey()
+                        + SEPARATOR + classEntry.getSize()
+                        + SEPARATOR + classEntry.getLastModified()
+                        + SEPARATOR + header.getName()
+                        + SEPARATOR + header.getAccess()
+                        + SEPARATOR + toField(header.getSuperName())
+                        + SEPARATOR + joinList(header.getInterfaces()));
+                writer.newLine();
+            }
+            for (Map.Entry<String, JarEntry> entry : jars.entrySet()) {
+                JarEntry jarEntry = entry.getValue();
+                writer.write("jar" + SEPARATOR + entry.getKey()
+                        + SEPARATOR + jarEntry.getSize()
+                        + SEPARATOR + jarEntry.getLastModified()
+                        + SEPARATOR + joinList(jarEntry.getServices()));
+                writer.newLine();
+                for (Map.Entry<String, List<String>> implementation : jarEntry.getImplementations().entrySet()) {
+                    writer.write("implementation" + SEPARATOR + entry.getKey()
+                            + SEPARATOR + implementation.getKey()
+                            + SEPARATOR + joinList(implementation.getValue()));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    String getClasspathFingerprint()
+    {
+        return classpathFingerprint;
+    }
+
+    void setClasspathFingerprint(String classpathFingerprint)
+    {
+        this.classpathFingerprint = classpathFingerprint;
+    }
+
+    /**
+     * @return the fingerprint of the plugin index as written, to notice when another goal rewrote or removed it
+     */
+    String getPluginIndexFingerprint()
+    {
+        return pluginIndexFingerprint;
+    }
+
+    void setPluginIndexFingerprint(String pluginIndexFingerprint)
+    {
+        this.pluginIndexFingerprint = pluginIndexFingerprint;
+    }
+
+    /**
+     * @return the fingerprint of the plugin metadata as written, or null if the plugin has no metadata
+     */
+    String getPluginMetadataFingerprint()
+    {
+        return pluginMetadataFingerprint;
+    }
+
+    void setPluginMetadataFingerprint(String pluginMetadataFingerprint)
+    {
+        this.pluginMetadataFingerprint = pluginMetadataFingerprint;
+    }
+
+    /**
+     * @return the content the plugin wrote to the services file of the interface, or null if it did not write it
+     */
+    String getGeneratedService(String interfaceName)
+    {
+        return generatedServices.get(interfaceName);
+    }
+
+    /**
+     * @return the cardinality the services file of the interface was generated with, or null if the plugin did not write it
+     */
+    String getGeneratedCardinality(String interfaceName)
+    {
+        return serviceCardinalities.get(interfaceName);
+    }
+
+    /**
+     * @return the interfaces the plugin wrote services files for
+     */
+    Set<String> getGeneratedServices()
+    {
+        return generatedServices.keySet();
+    }
+
+    /**
+     * Records a services file written by the plugin, an empty content meaning no file was needed.
+     */
+    void setGeneratedService(String interfaceName, String cardinality, String content)
+    {
+        serviceCardinalities.put(interfaceName, cardinality);
+        generatedServices.put(interfaceName, content);
+    }
+
+    Map<String, ClassEntry> getClasses()
+    {
+        return classes;
+    }
+
+    /**
+     * @return the scanned dependency jars, by absolute path
+     */
+    Map<String, JarEntry> getJars()
+    {
+        return jars;
+    }
+
+    /**
+     * @return a digest over the dependency files, where a directory, e.g. the classes of a module of the reactor, counts
+     * with each of its class files, as changing a class file inside it leaves the modification time of the directory alone
+     */
+    static String fingerprintClasspath(List<File> classpath)
+            throws IOException
+    {
+        List<File> files = new ArrayList<>();
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                for (String path : new TreeSet<>(FileUtils.getFileNames(file, "**/*.class", null, false))) {
+                    files.add(new File(file, path));
+                }
+            }
+            else {
+                files.add(file);
+            }
+        }
+        return fingerprint(files);
+    }
+
+    /**
+     * @return a digest over the path, size and modification time of every file, in order
+     */
+    static String fingerprint(List<File> files)
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (File file : files) {
+                digest.update((file.getAbsolutePath() + SEPARATOR + file.length() + SEPARATOR + file.lastModified() + "\n").getBytes(UTF_8));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toField(String value)
+    {
+        return value == null ? NONE : value;
+    }
+
+    private static String fromField(String field)
+    {
+        return NONE.equals(field) ? null : field;
+    }
+
+    private static String joinList(List<String> values)
+    {
+        return values.isEmpty() ? NONE : String.join(LIST_SEPARATOR, values);
+    }
+
+    private static List<String> splitList(String field)
+    {
+        if (NONE.equals(field)) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(Arrays.asList(field.split(LIST_SEPARATOR)));
+    }
+
+    /**
+     * the fingerprint of a class file and the header read from it
+     */
+    static final class ClassEntry {
+        private final long size;
+        private final long lastModified;
+        private final ClassHeader header;
+
+        ClassEntry(long size, long lastModified, ClassHeader header)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.header = header;
+        }
+
+        long getSize()
+        {
+            return size;
+        }
+
+        long getLastModified()
+        {
+            return lastModified;
+        }
+
+        ClassHeader getHeader()
+        {
+            return header;
+        }
+
+        boolean isUpToDate(File classFile)
+        {
+            return size == classFile.length() && lastModified == classFile.lastModified();
+        }
+    }
+
+    /**
+     * the fingerprint of a dependency jar, the service interfaces it was scanned for and the implementations found in it
+     */
+    static final class JarEntry {
+        private final long size;
+        private final long lastModified;
+        private final List<String> services;
+        private final Map<String, List<String>> implementations = new TreeMap<>();
+
+        JarEntry(long size, long lastModified, List<String> services)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.services = services;
+        }
+
+        long getSize()
+        {
+            return size;
+        }
+
+        long getLastModified()
+        {
+            return lastModified;
+        }
+
+        List<String> getServices()
+        {
+            return services;
+        }
+
+        /**
+         * @return the service interfaces each implementation in the jar implements, by class name
+         */
+        Map<String, List<String>> getImplementations()
+        {
+            return implementations;
+        }
+
+        /**
+         * @return true if the jar is unchanged and was scanned for the same service interfaces
+         */
+        boolean isUpToDate(File jar, List<String> services)
+        {
+            return size == jar.length() && lastModified == jar.lastModified() && this.services.equals(services);
+        }
+    }
+}
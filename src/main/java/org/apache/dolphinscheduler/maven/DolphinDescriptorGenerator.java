@@ -18,6 +18,7 @@
 package org.apache.dolphinscheduler.maven;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -29,121 +30,787 @@ import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.FileUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Modifier;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * create the spi services file
  */
 @Mojo(name = "generate-dolphin-service-descriptor",
         defaultPhase = LifecyclePhase.PACKAGE,
-        requiresDependencyResolution = ResolutionScope.COMPILE)
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
 public class DolphinDescriptorGenerator extends AbstractMojo {
     private static final String LS_ALIAS = System.getProperty("line.separator");
 
     @Parameter(defaultValue = "org.apache.dolphinscheduler.spi.DolphinSchedulerPlugin")
     private String pluginClassName;
 
+    /**
+     * The SPI interfaces to generate services files for, each with the number of implementations it requires.
+     * All of them are discovered in a single scan. When empty, {@link #pluginClassName} must have exactly one implementation.
+     */
+    @Parameter
+    private List<ServiceInterface> serviceInterfaces;
+
     @Parameter(defaultValue = "${project.build.outputDirectory}/META-INF/services")
     private File servicesDirectory;
 
     @Parameter(defaultValue = "${project.build.outputDirectory}")
     private File classesDirectory;
 
+    /**
+     * Dependencies whose classes implement the service interfaces as well, for modules that repackage a plugin implemented
+     * in another jar. Each is a {@code groupId:artifactId[:version]} pattern, in which {@code *} matches any part of a segment,
+     * e.g. {@code org.apache.dolphinscheduler:dolphinscheduler-task-*}.
+     */
+    @Parameter
+    private final Set<String> implementationArtifacts = new HashSet<>();
+
+    /**
+     * The number of threads that read and analyse class files, 0 to share the available processors
+     * with the other modules the parallel builder runs at the same time.
+     */
+    @Parameter(defaultValue = "0", property = "dolphinscheduler.parallelism")
+    private int parallelism;
+
+    /**
+     * Whether to write the {@link PluginIndex} of the plugin class and the bundled jars.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean generatePluginIndex;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + PluginIndex.RESOURCE)
+    private File pluginIndexFile;
+
+    /**
+     * Whether to write the {@link PluginMetadata} the plugin class declares in its constants and annotations.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean generatePluginMetadata;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + PluginMetadata.RESOURCE)
+    private File pluginMetadataFile;
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-descriptor.state")
+    private File stateFile;
+
+    /**
+     * The phase timings and counters of the goal, as JSON, see {@link BuildMetrics}.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-descriptor-metrics.json")
+    private File metricsFile;
+
+    @Parameter(defaultValue = "false")
+    private boolean skipMetrics;
+
+    /**
+     * Whether to log the metrics as a single summary line.
+     */
+    @Parameter(defaultValue = "false", property = "dolphinscheduler.logMetrics")
+    private boolean logMetrics;
+
     @Parameter(defaultValue = "${project}")
     private MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
     @Override
     public void execute()
             throws MojoExecutionException
     {
-        File spiServicesFile = new File(servicesDirectory, pluginClassName);
+        BuildMetrics metrics = new BuildMetrics("generate-dolphin-service-descriptor",
+                project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion());
+        generate(metrics);
+        if (!skipMetrics) {
+            metrics.report(metricsFile, logMetrics, getLog());
+        }
+    }
+
+    private void generate(BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        DescriptorState previousState = DescriptorState.load(stateFile);
 
-        // If users have already provided their own service file then we will not overwrite it
-        if (spiServicesFile.exists()) {
+        List<ServiceInterface> services = new ArrayList<>();
+        for (ServiceInterface service : getServiceInterfaces()) {
+            File spiServicesFile = new File(servicesDirectory, service.getName());
+            // If users have already provided their own service file then we will not overwrite it
+            if (spiServicesFile.exists() && !hasContent(spiServicesFile, previousState.getGeneratedService(service.getName()))) {
+                getLog().debug(String.format("%s was not generated by this plugin, skipping", spiServicesFile));
+                continue;
+            }
+            services.add(service);
+        }
+        deleteUnconfiguredServicesFiles(previousState);
+        if (services.isEmpty()) {
             return;
         }
 
-        if (!spiServicesFile.getParentFile().exists()) {
-            File file = spiServicesFile.getParentFile();
-            file.mkdirs();
-            if (!file.isDirectory()) {
-                throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", file));
+        List<String> classes;
+        try (BuildMetrics.Phase phase = metrics.phase("listClasses")) {
+            classes = getClassFiles();
+        }
+        metrics.count("classes", classes.size());
+        List<File> dependencies = PluginArtifacts.getClasspath(project);
+        List<File> implementationFiles = getImplementationFiles();
+        String classpathFingerprint;
+        try (BuildMetrics.Phase phase = metrics.phase("checkUpToDate")) {
+            classpathFingerprint = DescriptorState.fingerprintClasspath(dependencies);
+            if (isUpToDate(previousState, services, classes, implementationFiles, classpathFingerprint)) {
+                getLog().debug(String.format("Services files for %s are up to date", services));
+                metrics.count("stateCacheHits", classes.size());
+                return;
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException("Failed to list the classes of the plugin dependencies.", e);
+        }
+
+        if (!servicesDirectory.exists()) {
+            servicesDirectory.mkdirs();
+            if (!servicesDirectory.isDirectory()) {
+                throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", servicesDirectory));
             }
         }
 
-        List<Class<?>> pluginImplClasses;
+        DescriptorState state = new DescriptorState();
+        state.setClasspathFingerprint(classpathFingerprint);
+
+        Map<String, List<String>> implementations;
         try {
-            URLClassLoader loader = createCLFromCompileTimeDependencies();
-            pluginImplClasses = findPluginImplClasses(loader);
+            implementations = findPluginImplClasses(services, classes, dependencies, implementationFiles, previousState, state, metrics);
         }
-        catch (Exception e) {
-            throw new MojoExecutionException(String.format("%n%nError for find the classes that implements %s.", pluginClassName), e);
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("%n%nError for find the classes that implements %s.", services), e);
         }
 
-        if (pluginImplClasses.isEmpty()) {
-            throw new MojoExecutionException(String.format("%n%nNot find classes implements %s, You must have at least one class that implements %s.", pluginClassName, pluginClassName));
+        for (ServiceInterface service : services) {
+            checkCardinality(service, implementations.get(service.getName()), previousState);
         }
 
-        if (pluginImplClasses.size() > 1) {
+        for (ServiceInterface service : services) {
+            File spiServicesFile = new File(servicesDirectory, service.getName());
+            String content = String.join("\n", implementations.get(service.getName()));
+            try (BuildMetrics.Phase phase = metrics.phase("writeServices")) {
+                if (content.isEmpty()) {
+                    deleteStaleServicesFile(spiServicesFile, previousState.getGeneratedService(service.getName()));
+                }
+                else if (hasContent(spiServicesFile, content)) {
+                    getLog().debug(String.format("%s already contains %s", spiServicesFile, content));
+                }
+                else {
+                    byte[] bytes = content.getBytes(UTF_8);
+                    Files.write(spiServicesFile.toPath(), bytes);
+                    metrics.count("bytesWritten", bytes.length);
+                    getLog().info(String.format("Wrote %s to %s", content.replace("\n", ", "), spiServicesFile));
+                }
+                state.setGeneratedService(service.getName(), service.getCardinality().name(), content);
+            }
+            catch (IOException e) {
+                throw new MojoExecutionException("Failed to write services JAR file.", e);
+            }
+        }
+
+        if (generatePluginIndex) {
+            try (BuildMetrics.Phase phase = metrics.phase("writePluginIndex")) {
+                writePluginIndex(services, implementations, classes, metrics);
+            }
+            state.setPluginIndexFingerprint(DescriptorState.fingerprint(Collections.singletonList(pluginIndexFile)));
+        }
+
+        if (generatePluginMetadata) {
+            try (BuildMetrics.Phase phase = metrics.phase("writePluginMetadata")) {
+                writePluginMetadata(services, implementations, implementationFiles, previousState, metrics);
+            }
+            state.setPluginMetadataFingerprint(DescriptorState.fingerprint(Collections.singletonList(pluginMetadataFile)));
+        }
+
+        try (BuildMetrics.Phase phase = metrics.phase("storeState")) {
+            state.store(stateFile);
+            metrics.count("bytesWritten", stateFile.length());
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", stateFile), e);
+        }
+    }
+
+    /**
+     * @return the configured service interfaces, or the single {@link #pluginClassName} with exactly one implementation
+     */
+    private List<ServiceInterface> getServiceInterfaces()
+            throws MojoExecutionException
+    {
+        if (serviceInterfaces == null || serviceInterfaces.isEmpty()) {
+            return Collections.singletonList(new ServiceInterface(pluginClassName, ServiceInterface.Cardinality.EXACTLY_ONE));
+        }
+        Set<String> names = new HashSet<>();
+        for (ServiceInterface service : serviceInterfaces) {
+            if (service.getName() == null || service.getName().trim().isEmpty()) {
+                throw new MojoExecutionException(String.format("%n%nEvery serviceInterface must have a name."));
+            }
+            if (service.getCardinality() == null) {
+                service.setCardinality(ServiceInterface.Cardinality.EXACTLY_ONE);
+            }
+            if (!names.add(service.getName())) {
+                throw new MojoExecutionException(String.format("%n%nThe serviceInterface %s is configured more than once.", service.getName()));
+            }
+        }
+        return serviceInterfaces;
+    }
+
+    private void checkCardinality(ServiceInterface service, List<String> pluginImplClasses, DescriptorState previousState)
+            throws MojoExecutionException
+    {
+        String name = service.getName();
+        File spiServicesFile = new File(servicesDirectory, name);
+
+        if (pluginImplClasses.isEmpty() && service.getCardinality() != ServiceInterface.Cardinality.ANY) {
+            deleteStaleServicesFile(spiServicesFile, previousState.getGeneratedService(name));
+            stateFile.delete();
+            throw new MojoExecutionException(String.format("%n%nNot find classes implements %s, You must have at least one class that implements %s.", name, name));
+        }
+
+        if (pluginImplClasses.size() > 1 && service.getCardinality() == ServiceInterface.Cardinality.EXACTLY_ONE) {
+            deleteStaleServicesFile(spiServicesFile, previousState.getGeneratedService(name));
+            stateFile.delete();
             StringBuilder sb = new StringBuilder();
-            for (Class<?> pluginClass : pluginImplClasses) {
-                sb.append(pluginClass.getName()).append(LS_ALIAS);
+            for (String pluginClass : pluginImplClasses) {
+                sb.append(pluginClass).append(LS_ALIAS);
             }
-            throw new MojoExecutionException(String.format("%n%nFound more than one class that implements %s:%n%n%s%nYou can only have one per plugin project.", pluginClassName, sb));
+            throw new MojoExecutionException(String.format("%n%nFound more than one class that implements %s:%n%n%s%nYou can only have one per plugin project.", name, sb));
+        }
+    }
+
+    /**
+     * Writes the implementations of every service interface and the classes of the plugin jar and of every bundled jar.
+     * The first service with exactly one implementation is recorded as the plugin class.
+     */
+    private void writePluginIndex(List<ServiceInterface> services, Map<String, List<String>> implementations, List<String> classes, BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        PluginIndex.Builder index = PluginIndex.builder();
+        for (ServiceInterface service : services) {
+            for (String pluginClass : implementations.get(service.getName())) {
+                index.addService(service.getName(), pluginClass);
+            }
+        }
+        ServiceInterface pluginService = findPluginService(services, implementations);
+        if (pluginService != null) {
+            index.pluginClassName(implementations.get(pluginService.getName()).get(0)).spiInterfaceName(pluginService.getName());
+        }
+
+        String pluginJar = PluginArtifacts.bundleFileName(project.getArtifact());
+        index.addJar(pluginJar);
+        for (String classPath : classes) {
+            index.addClass(pluginJar, ClassFileReader.toBinaryName(classPath.substring(0, classPath.length() - ".class".length())));
+        }
+
+        List<Artifact> bundled = PluginArtifacts.getBundledArtifacts(project);
+        try (ClassScanner scanner = new ClassScanner(getParallelism())) {
+            List<List<String>> bundledClasses = scanner.map(bundled, artifact -> PluginArtifacts.listClasses(artifact.getFile()));
+            metrics.count("jarsOpened", bundled.size());
+            for (int i = 0; i < bundled.size(); i++) {
+                String jar = PluginArtifacts.bundleFileName(bundled.get(i));
+                index.addJar(jar);
+                for (String className : bundledClasses.get(i)) {
+                    index.addClass(jar, className);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException("Failed to read the bundled dependencies.", e);
         }
 
+        File directory = pluginIndexFile.getParentFile();
+        directory.mkdirs();
+        if (!directory.isDirectory()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+        }
+        try (OutputStream out = new FileOutputStream(pluginIndexFile)) {
+            index.build().write(out);
+            metrics.count("bytesWritten", pluginIndexFile.length());
+            getLog().debug(String.format("Wrote the plugin index of %d jars to %s", bundled.size() + 1, pluginIndexFile));
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", pluginIndexFile), e);
+        }
+    }
+
+    /**
+     * @return the first service with exactly one implementation, whose implementation is the plugin class, or null if there is none
+     */
+    private static ServiceInterface findPluginService(List<ServiceInterface> services, Map<String, List<String>> implementations)
+    {
+        for (ServiceInterface service : services) {
+            if (implementations.get(service.getName()).size() == 1) {
+                return service;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the constants and annotations of the plugin class from its class file, in the classes directory
+     * or in one of the {@link #implementationArtifacts}, and writes them as {@link PluginMetadata}.
+     * Metadata a previous build wrote is deleted when there no longer is a plugin class.
+     */
+    private void writePluginMetadata(List<ServiceInterface> services, Map<String, List<String>> implementations, List<File> implementationFiles,
+            DescriptorState previousState, BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        ServiceInterface pluginService = findPluginService(services, implementations);
+        if (pluginService == null) {
+            if (previousState.getPluginMetadataFingerprint() != null && pluginMetadataFile.isFile() && !pluginMetadataFile.delete()) {
+                throw new MojoExecutionException(String.format("%n%nFailed to delete stale plugin metadata: %s", pluginMetadataFile));
+            }
+            return;
+        }
+        String pluginClass = implementations.get(pluginService.getName()).get(0);
+
+        ClassMetadata classMetadata;
         try {
-            Class<?> pluginClass = pluginImplClasses.get(0);
-            Files.write(spiServicesFile.toPath(), pluginClass.getName().getBytes(UTF_8));
-            getLog().info(String.format("Wrote %s to %s", pluginClass.getName(), spiServicesFile));
+            classMetadata = readClassMetadata(pluginClass, implementationFiles);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("%n%nFailed to read the metadata of %s.", pluginClass), e);
+        }
+        if (classMetadata == null) {
+            throw new MojoExecutionException(String.format("%n%nFailed to find the class file of %s.", pluginClass));
+        }
+        metrics.count("classesRead", 1);
+
+        PluginMetadata.Builder metadata = PluginMetadata.builder()
+                .pluginClassName(pluginClass)
+                .spiInterfaceName(pluginService.getName());
+        for (Map.Entry<String, String> constant : classMetadata.getConstants().entrySet()) {
+            metadata.addConstant(constant.getKey(), constant.getValue());
+        }
+        for (Map.Entry<String, Map<String, String>> annotation : classMetadata.getAnnotations().entrySet()) {
+            String annotationName = annotation.getKey();
+            if (annotationName.startsWith("java.") || annotationName.startsWith("javax.") || annotationName.startsWith("kotlin.")) {
+                continue;
+            }
+            metadata.addAnnotation(annotationName);
+            for (Map.Entry<String, String> element : annotation.getValue().entrySet()) {
+                metadata.addAnnotationElement(annotationName, element.getKey(), element.getValue());
+            }
+        }
+
+        File directory = pluginMetadataFile.getParentFile();
+        directory.mkdirs();
+        if (!directory.isDirectory()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+        }
+        try (OutputStream out = new FileOutputStream(pluginMetadataFile)) {
+            metadata.build().write(out);
+            metrics.count("bytesWritten", pluginMetadataFile.length());
+            getLog().debug(String.format("Wrote the metadata of %s to %s", pluginClass, pluginMetadataFile));
         }
         catch (IOException e) {
-            throw new MojoExecutionException("Failed to write services JAR file.", e);
+            throw new MojoExecutionException(String.format("Failed to write %s.", pluginMetadataFile), e);
         }
     }
 
-    private URLClassLoader createCLFromCompileTimeDependencies()
-            throws Exception
+    /**
+     * @return the metadata of the class file in the classes directory or in the first implementation file that has it,
+     * or null if none has it
+     */
+    private ClassMetadata readClassMetadata(String className, List<File> implementationFiles)
+            throws IOException
     {
-        List<URL> classesUrls = new ArrayList<>();
-        classesUrls.add(classesDirectory.toURI().toURL());
+        String classPath = className.replace('.', '/') + ".class";
+        List<File> files = new ArrayList<>();
+        files.add(classesDirectory);
+        files.addAll(implementationFiles);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                File classFile = new File(file, classPath);
+                if (classFile.isFile()) {
+                    try (InputStream in = new FileInputStream(classFile)) {
+                        return ClassFileReader.readMetadata(in);
+                    }
+                }
+            }
+            else if (file.isFile()) {
+                try (ZipFile zipFile = new ZipFile(file)) {
+                    ZipEntry entry = zipFile.getEntry(classPath);
+                    if (entry != null) {
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            return ClassFileReader.readMetadata(in);
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the files of the dependencies that match the {@link #implementationArtifacts}, in resolution order
+     */
+    private List<File> getImplementationFiles()
+    {
+        List<File> files = new ArrayList<>();
+        if (implementationArtifacts.isEmpty()) {
+            return files;
+        }
         for (Artifact artifact : project.getArtifacts()) {
-            if (artifact.getFile() != null) {
-                classesUrls.add(artifact.getFile().toURI().toURL());
+            if (artifact.getFile() != null && PluginArtifacts.matchesAnyArtifact(implementationArtifacts, artifact)) {
+                files.add(artifact.getFile());
             }
         }
-        return new URLClassLoader(classesUrls.toArray(new URL[0]));
+        if (files.isEmpty()) {
+            getLog().warn(String.format("Dolphinscheduler plugin implementationArtifacts %s match no dependency", implementationArtifacts));
+        }
+        return files;
+    }
+
+    private List<String> getClassFiles()
+            throws MojoExecutionException
+    {
+        if (!classesDirectory.isDirectory()) {
+            return new ArrayList<>();
+        }
+        try {
+            List<String> classes = new ArrayList<>();
+            for (String classPath : FileUtils.getFileNames(classesDirectory, "**/*.class", null, false)) {
+                classes.add(classPath.replace(File.separatorChar, '/'));
+            }
+            return classes;
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to list the classes in %s.", classesDirectory), e);
+        }
     }
 
-    private List<Class<?>> findPluginImplClasses(URLClassLoader urlClassLoader)
-            throws IOException, MojoExecutionException
+    /**
+     * @return true if every services file is as generated, and the classpath, every class file and the selection
+     * of implementation jars are unchanged since the state was stored
+     */
+    private boolean isUpToDate(DescriptorState previousState, List<ServiceInterface> services, List<String> classes, List<File> implementationFiles,
+            String classpathFingerprint)
     {
-        List<Class<?>> implementations = new ArrayList<>();
-        List<String> classes = FileUtils.getFileNames(classesDirectory, "**/*.class", null, false);
+        if (previousState.getGeneratedServices().size() != services.size()) {
+            return false;
+        }
+        for (ServiceInterface service : services) {
+            String generatedContent = previousState.getGeneratedService(service.getName());
+            if (generatedContent == null
+                    || !service.getCardinality().name().equals(previousState.getGeneratedCardinality(service.getName()))
+                    || generatedContent.isEmpty() == new File(servicesDirectory, service.getName()).exists()) {
+                return false;
+            }
+        }
+        if (generatePluginIndex
+                && !DescriptorState.fingerprint(Collections.singletonList(pluginIndexFile)).equals(previousState.getPluginIndexFingerprint())) {
+            return false;
+        }
+        if (generatePluginMetadata
+                && !DescriptorState.fingerprint(Collections.singletonList(pluginMetadataFile)).equals(previousState.getPluginMetadataFingerprint())) {
+            return false;
+        }
+        if (!classpathFingerprint.equals(previousState.getClasspathFingerprint())
+                || previousState.getClasses().size() != classes.size()) {
+            return false;
+        }
+        Set<String> implementationJars = new HashSet<>();
+        for (File file : implementationFiles) {
+            // the classpath fingerprint does not cover the content of a classes directory
+            if (!file.isFile()) {
+                return false;
+            }
+            implementationJars.add(file.getAbsolutePath());
+        }
+        if (!implementationJars.equals(previousState.getJars().keySet())) {
+            return false;
+        }
         for (String classPath : classes) {
-            String className = classPath.substring(0, classPath.length() - 6).replace(File.separatorChar, '.');
-            try {
-                Class<?> pluginClass = urlClassLoader.loadClass(pluginClassName);
-                Class<?> clazz = urlClassLoader.loadClass(className);
-                if (isImplementation(clazz, pluginClass)) {
-                    implementations.add(clazz);
+            DescriptorState.ClassEntry entry = previousState.getClasses().get(classPath);
+            if (entry == null || !entry.isUpToDate(new File(classesDirectory, classPath))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * With {@code -T}, every module builder would otherwise start one scan thread per processor.
+     */
+    private int getParallelism()
+    {
+        return ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency());
+    }
+
+    private static boolean hasContent(File file, String content)
+    {
+        if (content == null || !file.isFile()) {
+            return false;
+        }
+        try {
+            return new String(Files.readAllBytes(file.toPath()), UTF_8).trim().equals(content);
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the services files a previous build generated for interfaces that are no longer configured.
+     */
+    private void deleteUnconfiguredServicesFiles(DescriptorState previousState)
+            throws MojoExecutionException
+    {
+        Set<String> configured = new HashSet<>();
+        for (ServiceInterface service : getServiceInterfaces()) {
+            configured.add(service.getName());
+        }
+        for (String interfaceName : previousState.getGeneratedServices()) {
+            if (!configured.contains(interfaceName)) {
+                deleteStaleServicesFile(new File(servicesDirectory, interfaceName), previousState.getGeneratedService(interfaceName));
+            }
+        }
+    }
+
+    /**
+     * A services file written by a previous build names classes that no longer qualify, so it must not be packaged.
+     * The plugin index and metadata describe the plugin class, so they go with the services file of the plugin service only.
+     */
+    private void deleteStaleServicesFile(File spiServicesFile, String generatedContent)
+            throws MojoExecutionException
+    {
+        if (hasContent(spiServicesFile, generatedContent)) {
+            boolean pluginService = spiServicesFile.getName().equals(readPluginServiceName());
+            if (!spiServicesFile.delete()) {
+                throw new MojoExecutionException(String.format("%n%nFailed to delete stale services file: %s", spiServicesFile));
+            }
+            getLog().warn(String.format("Deleted stale services file %s", spiServicesFile));
+            if (pluginService) {
+                pluginIndexFile.delete();
+                pluginMetadataFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @return the interface of the plugin class in the plugin index of the previous build, or {@link #pluginClassName} without one
+     */
+    private String readPluginServiceName()
+    {
+        if (pluginIndexFile.isFile()) {
+            try (InputStream in = Files.newInputStream(pluginIndexFile.toPath())) {
+                String name = PluginIndex.read(in).getSpiInterfaceName();
+                if (name != null) {
+                    return name;
                 }
             }
-            catch (ClassNotFoundException e) {
-                throw new MojoExecutionException("Failed to load class.", e);
+            catch (IOException e) {
+                getLog().debug(String.format("Failed to read %s", pluginIndexFile), e);
             }
         }
-        return implementations;
+        return pluginClassName;
     }
 
-    private static boolean isImplementation(Class<?> clazz, Class<?> pluginClass)
+    /**
+     * Reads the headers of the compiled classes and resolves their super types without loading them,
+     * so that neither the classes nor their dependencies have to be linkable.
+     * Headers of class files that did not change since the previous build are taken from its state.
+     * All service interfaces are matched in the same traversal, which runs on {@link #getParallelism()} threads.
+     * The goal never loads a class, so the headers the hierarchy reads are what it counts as resolved classes.
+     * The classes of the {@link #implementationArtifacts} are matched as well, see {@link #scanImplementationFiles}.
+     *
+     * @return the implementations of each service interface, sorted by name
+     */
+    private Map<String, List<String>> findPluginImplClasses(List<ServiceInterface> services, List<String> classes, List<File> dependencies,
+            List<File> implementationFiles, DescriptorState previousState, DescriptorState state, BuildMetrics metrics)
+            throws IOException
     {
-        return pluginClass.isAssignableFrom(clazz) && !Modifier.isAbstract(clazz.getModifiers()) && !Modifier.isInterface(clazz.getModifiers());
+        try (ClassScanner scanner = new ClassScanner(getParallelism());
+                ClassHierarchy hierarchy = new ClassHierarchy(classesDirectory, dependencies)) {
+            AtomicInteger rescanned = new AtomicInteger();
+            List<DescriptorState.ClassEntry> entries;
+            try (BuildMetrics.Phase phase = metrics.phase("scanClasses")) {
+                entries = scanner.map(classes, classPath -> {
+                    File classFile = new File(classesDirectory, classPath);
+                    DescriptorState.ClassEntry entry = previousState.getClasses().get(classPath);
+                    if (entry != null && entry.isUpToDate(classFile)) {
+                        return entry;
+                    }
+                    long size = classFile.length();
+                    long lastModified = classFile.lastModified();
+                    rescanned.incrementAndGet();
+                    try (InputStream in = new FileInputStream(classFile)) {
+                        return new DescriptorState.ClassEntry(size, lastModified, ClassFileReader.readHeader(in));
+                    }
+                });
+            }
+            getLog().debug(String.format("Read %d of %d class files on %d threads", rescanned.get(), classes.size(), scanner.getParallelism()));
+            metrics.count("classesScanned", rescanned.get());
+            metrics.count("stateCacheHits", classes.size() - rescanned.get());
+
+            for (int i = 0; i < classes.size(); i++) {
+                state.getClasses().put(classes.get(i), entries.get(i));
+                hierarchy.addHeader(entries.get(i).getHeader());
+            }
+
+            // each match is the class name followed by the service interfaces it implements
+            List<List<String>> matches;
+            try (BuildMetrics.Phase phase = metrics.phase("matchServices")) {
+                matches = scanner.map(entries, entry -> {
+                    ClassHeader header = entry.getHeader();
+                    if (!header.isConcrete()) {
+                        return null;
+                    }
+                    List<String> match = new ArrayList<>();
+                    match.add(header.getName());
+                    for (ServiceInterface service : services) {
+                        if (hierarchy.isSubtypeOf(header.getName(), service.getName())) {
+                            match.add(service.getName());
+                        }
+                    }
+                    return match.size() > 1 ? match : null;
+                });
+            }
+            if (!implementationFiles.isEmpty()) {
+                matches = new ArrayList<>(matches);
+                try (BuildMetrics.Phase phase = metrics.phase("scanImplementationArtifacts")) {
+                    boolean classpathUnchanged = state.getClasspathFingerprint().equals(previousState.getClasspathFingerprint());
+                    matches.addAll(scanImplementationFiles(scanner, hierarchy, services, implementationFiles, classpathUnchanged, previousState, state, metrics));
+                }
+            }
+            metrics.count("classesResolved", hierarchy.getReadHeaders());
+            metrics.count("dependenciesIndexed", hierarchy.getIndexedDependencies());
+            metrics.count("jarsOpened", hierarchy.getOpenedJars());
+
+            Map<String, List<String>> implementations = new LinkedHashMap<>();
+            for (ServiceInterface service : services) {
+                implementations.put(service.getName(), new ArrayList<>());
+            }
+            for (List<String> match : matches) {
+                for (String serviceName : match.subList(1, match.size())) {
+                    List<String> pluginImplClasses = implementations.get(serviceName);
+                    // a class of an implementation jar that is on the classpath twice
+                    if (!pluginImplClasses.contains(match.get(0))) {
+                        pluginImplClasses.add(match.get(0));
+                    }
+                }
+            }
+            for (List<String> pluginImplClasses : implementations.values()) {
+                Collections.sort(pluginImplClasses);
+            }
+            return implementations;
+        }
+    }
+
+    /**
+     * Matches the classes of the implementation jars and directories against the service interfaces. The entries of a jar are read
+     * through its central directory, without extracting or loading anything. The implementations found in a jar are kept in the state,
+     * so an unchanged jar is not opened again as long as the classpath is unchanged as well.
+     *
+     * @return a match for every implementation, the class name followed by the service interfaces it implements
+     */
+    private List<List<String>> scanImplementationFiles(ClassScanner scanner, ClassHierarchy hierarchy, List<ServiceInterface> services,
+            List<File> files, boolean classpathUnchanged, DescriptorState previousState, DescriptorState state, BuildMetrics metrics)
+            throws IOException
+    {
+        List<String> serviceNames = new ArrayList<>();
+        for (ServiceInterface service : services) {
+            serviceNames.add(service.getName());
+        }
+        AtomicInteger cacheHits = new AtomicInteger();
+        List<DescriptorState.JarEntry> entries = scanner.map(files, file -> {
+            DescriptorState.JarEntry previousEntry = previousState.getJars().get(file.getAbsolutePath());
+            if (file.isFile() && classpathUnchanged && previousEntry != null && previousEntry.isUpToDate(file, serviceNames)) {
+                cacheHits.incrementAndGet();
+                return previousEntry;
+            }
+            DescriptorState.JarEntry entry = new DescriptorState.JarEntry(file.length(), file.lastModified(), serviceNames);
+            List<ClassHeader> headers = readHeaders(file, metrics);
+            for (ClassHeader header : headers) {
+                hierarchy.addHeader(header);
+            }
+            for (ClassHeader header : headers) {
+                if (!header.isConcrete()) {
+                    continue;
+                }
+                List<String> implemented = new ArrayList<>();
+                for (String serviceName : serviceNames) {
+                    if (hierarchy.isSubtypeOf(header.getName(), serviceName)) {
+                        implemented.add(serviceName);
+                    }
+                }
+                if (!implemented.isEmpty()) {
+                    entry.getImplementations().put(header.getName(), implemented);
+                }
+            }
+            return entry;
+        });
+        metrics.count("implementationJarCacheHits", cacheHits.get());
+
+        List<List<String>> matches = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            DescriptorState.JarEntry entry = entries.get(i);
+            if (file.isFile()) {
+                state.getJars().put(file.getAbsolutePath(), entry);
+            }
+            for (Map.Entry<String, List<String>> implementation : entry.getImplementations().entrySet()) {
+                getLog().debug(String.format("Found %s implementing %s in %s", implementation.getKey(), implementation.getValue(), file));
+                List<String> match = new ArrayList<>();
+                match.add(implementation.getKey());
+                match.addAll(implementation.getValue());
+                matches.add(match);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the headers of the classes in a jar or a classes directory, without module and multi-release descriptors
+     */
+    private static List<ClassHeader> readHeaders(File file, BuildMetrics metrics)
+            throws IOException
+    {
+        List<ClassHeader> headers = new ArrayList<>();
+        if (file.isDirectory()) {
+            for (String path : FileUtils.getFileNames(file, "**/*.class", null, false)) {
+                if (PluginArtifacts.toClassName(path.replace(File.separatorChar, '/')) != null) {
+                    try (InputStream in = new FileInputStream(new File(file, path))) {
+                        headers.add(ClassFileReader.readHeader(in));
+                    }
+                }
+            }
+        }
+        else if (file.isFile()) {
+            metrics.count("jarsOpened", 1);
+            try (ZipFile zipFile = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (PluginArtifacts.toClassName(entry.getName()) != null) {
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            headers.add(ClassFileReader.readHeader(in));
+                        }
+                    }
+                }
+            }
+        }
+        return headers;
     }
 }
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * check that the bundled dependencies do not ship classes or packages that another dependency or the SPI ships as well
+ */
+@Mojo(name = "duplicate-classes-check",
+        defaultPhase = LifecyclePhase.VALIDATE,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class DuplicateClassChecker extends AbstractMojo {
+    private static final int MAX_LISTED_CLASSES = 5;
+
+    @Parameter(defaultValue = "false")
+    private boolean skipDuplicateClassesCheck;
+
+    /**
+     * Whether duplicate classes and split packages fail the build rather than being logged as warnings.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean failOnDuplicates;
+
+    /**
+     * Whether to report packages that several dependencies add classes to, without any class being duplicated.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean checkSplitPackages;
+
+    /**
+     * Dependencies, as {@code groupId:artifactId}, that may overlap with any other one.
+     */
+    @Parameter
+    private final Set<String> allowedDuplicateArtifacts = new HashSet<>();
+
+    /**
+     * Classes or packages that may be duplicated or split, e.g. {@code org.slf4j.impl.StaticLoggerBinder},
+     * or {@code org.slf4j.impl.*} for a package and its sub packages.
+     */
+    @Parameter
+    private final Set<String> allowedDuplicateClasses = new HashSet<>();
+
+    /**
+     * The number of threads that list the dependencies, 0 to share the available processors
+     * with the other modules the parallel builder runs at the same time.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    @Parameter(defaultValue = "${project}")
+    private MavenProject mavenProject;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (skipDuplicateClassesCheck) {
+            getLog().info("Skipping Dolphinscheduler duplicate classes checks");
+            return;
+        }
+
+        List<Artifact> artifacts = new ArrayList<>();
+        for (Artifact artifact : mavenProject.getArtifacts()) {
+            File file = artifact.getFile();
+            if (file != null && (file.isDirectory() || file.getName().endsWith(".jar"))
+                    && !allowedDuplicateArtifacts.contains(artifact.getGroupId() + ":" + artifact.getArtifactId())) {
+                artifacts.add(artifact);
+            }
+        }
+
+        long start = System.nanoTime();
+        ClasspathIndex index;
+        try {
+            index = ClasspathIndex.build(artifacts, ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()));
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException("Failed to list the classes of the dependencies.", e);
+        }
+        getLog().debug(String.format("Indexed %d classes of %d dependencies in %d ms",
+                index.getClassCount(), artifacts.size(), (System.nanoTime() - start) / 1_000_000));
+
+        Predicate<String> allowed = name -> PluginArtifacts.matchesAny(allowedDuplicateClasses, name);
+        List<String> problems = new ArrayList<>();
+        Set<String> duplicatePackages = new HashSet<>();
+        for (Map.Entry<List<Artifact>, List<String>> duplicate : index.getDuplicateClasses(allowed).entrySet()) {
+            if (!hasBundled(duplicate.getKey())) {
+                continue;
+            }
+            List<String> classes = duplicate.getValue();
+            for (String className : classes) {
+                duplicatePackages.add(ClasspathIndex.getPackageName(className));
+            }
+            problems.add(String.format("Dolphinscheduler plugin dependencies %s contain %d of the same classes: %s. Only the first one on the class path is used.",
+                    describe(duplicate.getKey()), classes.size(), abbreviate(classes)));
+        }
+        if (checkSplitPackages) {
+            for (Map.Entry<String, List<Artifact>> split : index.getSplitPackages(allowed).entrySet()) {
+                if (hasBundled(split.getValue()) && !duplicatePackages.contains(split.getKey())) {
+                    problems.add(String.format("Dolphinscheduler plugin dependencies %s split the package %s.",
+                            describe(split.getValue()), split.getKey().isEmpty() ? "<default>" : split.getKey()));
+                }
+            }
+        }
+
+        if (problems.isEmpty()) {
+            return;
+        }
+        if (failOnDuplicates) {
+            throw new MojoExecutionException(String.format("%n%n%s", String.join(String.format("%n"), problems)));
+        }
+        for (String problem : problems) {
+            getLog().warn(problem);
+        }
+    }
+
+    /**
+     * Overlaps among provided dependencies are left to the server, they do not end up in the plugin.
+     */
+    private static boolean hasBundled(List<Artifact> artifacts)
+    {
+        return artifacts.stream().anyMatch(PluginArtifacts::isBundled);
+    }
+
+    private static String describe(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(artifact -> artifact.getGroupId() + ":" + artifact.getArtifactId() + " (" + artifact.getScope() + ")")
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String abbreviate(List<String> classes)
+    {
+        String listed = String.join(", ", classes.subList(0, Math.min(MAX_LISTED_CLASSES, classes.size())));
+        return classes.size() > MAX_LISTED_CLASSES ? listed + ", ..." : listed;
+    }
+}
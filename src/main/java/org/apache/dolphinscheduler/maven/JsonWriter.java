@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Writes JSON reports, indented by two spaces, with the members in the order they are written.
+ *
+ * <pre>
+ * writer.beginObject().name("classes").value(42).name("jars").beginArray().value("a.jar").endArray().endObject();
+ * </pre>
+ *
+ * The writer only checks what it needs to place commas, so the caller is responsible for a well formed document.
+ */
+final class JsonWriter
+        implements Closeable {
+    private final Writer out;
+    // per open object or array, whether it has a member yet
+    private final Deque<Boolean> scopes = new ArrayDeque<>();
+    private boolean afterName;
+
+    JsonWriter(Writer out)
+    {
+        this.out = out;
+    }
+
+    JsonWriter beginObject()
+            throws IOException
+    {
+        return open('{');
+    }
+
+    JsonWriter endObject()
+            throws IOException
+    {
+        return close('}');
+    }
+
+    JsonWriter beginArray()
+            throws IOException
+    {
+        return open('[');
+    }
+
+    JsonWriter endArray()
+            throws IOException
+    {
+        return close(']');
+    }
+
+    JsonWriter name(String name)
+            throws IOException
+    {
+        separate();
+        string(name);
+        out.write(": ");
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value)
+            throws IOException
+    {
+        if (value == null) {
+            return literal("null");
+        }
+        separate();
+        string(value);
+        return this;
+    }
+
+    JsonWriter value(long value)
+            throws IOException
+    {
+        return literal(Long.toString(value));
+    }
+
+    /**
+     * Writes the value with at most three decimals, which is all a report needs and keeps equal values equal in text.
+     */
+    JsonWriter value(double value)
+            throws IOException
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return literal("null");
+        }
+        String text = String.format(Locale.ROOT, "%.3f", value);
+        text = text.replaceAll("0+$", "").replaceAll("\\.$", "");
+        return literal(text);
+    }
+
+    JsonWriter value(boolean value)
+            throws IOException
+    {
+        return literal(Boolean.toString(value));
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        out.write('\n');
+        out.flush();
+    }
+
+    private JsonWriter open(char bracket)
+            throws IOException
+    {
+        separate();
+        out.write(bracket);
+        scopes.push(false);
+        return this;
+    }
+
+    private JsonWriter close(char bracket)
+            throws IOException
+    {
+        boolean hasMembers = scopes.pop();
+        if (hasMembers) {
+            newLine();
+        }
+        out.write(bracket);
+        return this;
+    }
+
+    private JsonWriter literal(String text)
+            throws IOException
+    {
+        separate();
+        out.write(text);
+        return this;
+    }
+
+    /**
+     * Writes the comma and line break before the next member, unless the value belongs to the name just written.
+     */
+    private void separate()
+            throws IOException
+    {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (scopes.isEmpty()) {
+            return;
+        }
+        if (scopes.pop()) {
+            out.write(',');
+        }
+        scopes.push(true);
+        newLine();
+    }
+
+    private void newLine()
+            throws IOException
+    {
+        out.write('\n');
+        for (int i = 0; i < scopes.size(); i++) {
+            out.write("  ");
+        }
+    }
+
+    private void string(String value)
+            throws IOException
+    {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
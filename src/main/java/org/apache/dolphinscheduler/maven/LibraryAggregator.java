@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * collect the plugin archives of the reactor into one distribution with a shared, content addressed library store
+ *
+ * The distribution has a {@code plugins} directory with the archive of every plugin and a {@code lib} directory that keeps
+ * each library of the thin archives once, as {@code <sha-256>.jar}, however many plugins bundle it. Run it after the plugins
+ * are packaged with {@code sharedLibraries}, e.g. {@code mvn package dolphinscheduler:aggregate-libraries}. Libraries already
+ * in the store are not copied again, and {@code verify-libraries} checks a store against the manifests of the archives.
+ */
+@Mojo(name = "aggregate-libraries",
+        aggregator = true,
+        threadSafe = true)
+public class LibraryAggregator extends AbstractMojo {
+    static final String STORE_DIRECTORY = "lib";
+    static final String PLUGINS_DIRECTORY = "plugins";
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-distribution", property = "dolphinscheduler.distributionDirectory")
+    private File distributionDirectory;
+
+    /**
+     * Whether to remove the libraries no plugin of the distribution refers to from the store.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean pruneStore;
+
+    /**
+     * The number of threads that copy and hash the libraries, 0 for the available processors.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        File store = new File(distributionDirectory, STORE_DIRECTORY);
+        File plugins = new File(distributionDirectory, PLUGINS_DIRECTORY);
+        for (File directory : new File[] {store, plugins}) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+            }
+        }
+
+        Map<String, LibraryManifest.Library> libraries = new LinkedHashMap<>();
+        int pluginCount = 0;
+        int bundledCount = 0;
+        long bundledSize = 0;
+        try {
+            for (MavenProject project : session.getProjects()) {
+                if (!project.getPackaging().startsWith("dolphinscheduler-plugin")) {
+                    continue;
+                }
+                File archive = getArchive(project);
+                LibraryManifest manifest = LibraryManifest.readFromArchive(archive);
+                if (manifest != null) {
+                    Map<String, File> sources = getSources(project);
+                    for (LibraryManifest.Library library : manifest.getLibraries()) {
+                        File source = sources.get(library.getSha256());
+                        if (source == null) {
+                            throw new MojoExecutionException(String.format("%n%nThe library %s of %s was not hashed in this build, package the plugin again.",
+                                    library.getCoordinates(), archive));
+                        }
+                        libraries.putIfAbsent(library.getSha256(), new LibraryManifest.Library(library.getSha256(), library.getSize(),
+                                library.getFileName(), library.getCoordinates(), source, source.lastModified()));
+                        bundledCount++;
+                        bundledSize += library.getSize();
+                    }
+                }
+                copyIfChanged(archive, new File(plugins, archive.getName()));
+                pluginCount++;
+            }
+
+            int copied;
+            try (ClassScanner scanner = new ClassScanner(ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()))) {
+                copied = scanner.map(new ArrayList<>(libraries.values()), library -> addToStore(store, library) ? library : null).size();
+            }
+            if (pruneStore) {
+                prune(store, libraries);
+            }
+
+            long storedSize = libraries.values().stream().mapToLong(LibraryManifest.Library::getSize).sum();
+            getLog().info(String.format("Aggregated %d plugins into %s: %d of %d bundled libraries are distinct, %d added to the store, %d bytes saved",
+                    pluginCount, distributionDirectory, libraries.size(), bundledCount, copied, bundledSize - storedSize));
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to aggregate the plugins into %s.", distributionDirectory), e);
+        }
+    }
+
+    private static File getArchive(MavenProject project)
+            throws MojoExecutionException
+    {
+        File archive = project.getArtifact().getFile();
+        if (archive == null || !archive.getName().endsWith(".zip") || !archive.isFile()) {
+            throw new MojoExecutionException(String.format("%n%nThe plugin %s is not packaged, run the package phase before aggregating the plugins.", project.getId()));
+        }
+        return archive;
+    }
+
+    /**
+     * @return the files the packager hashed the libraries of the project from in this build, by hash
+     */
+    private static Map<String, File> getSources(MavenProject project)
+    {
+        Map<String, File> sources = new LinkedHashMap<>();
+        Object manifestFile = project.getContextValue(LibraryManifest.BUILD_FILE);
+        LibraryManifest manifest = manifestFile instanceof File ? LibraryManifest.readIfPresent((File) manifestFile) : null;
+        if (manifest != null) {
+            for (LibraryManifest.Library library : manifest.getLibraries()) {
+                if (library.getSource() != null) {
+                    sources.put(library.getSha256(), library.getSource());
+                }
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Copies the library into the store through a temporary file, checking the copy against the hash, so the store
+     * never holds a partial file or a file under another content's name.
+     *
+     * @return true if the library was copied, false if the store had it already
+     */
+    private static boolean addToStore(File store, LibraryManifest.Library library)
+            throws IOException
+    {
+        File target = LibraryManifest.storeFile(store, library.getSha256());
+        if (target.isFile() && target.length() == library.getSize()) {
+            return false;
+        }
+        File temporary = File.createTempFile(target.getName(), ".tmp", store);
+        try {
+            Files.copy(library.getSource().toPath(), temporary.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (!library.getSha256().equals(LibraryManifest.sha256(temporary))) {
+                throw new IOException(String.format("%s changed since the plugin was packaged, package the plugin again", library.getSource()));
+            }
+            Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    private void prune(File store, Map<String, LibraryManifest.Library> libraries)
+            throws IOException
+    {
+        File[] files = store.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(".jar") && !libraries.containsKey(name.substring(0, name.length() - ".jar".length()))) {
+                getLog().info(String.format("Removing %s, no plugin refers to it", file));
+                Files.delete(file.toPath());
+            }
+        }
+    }
+
+    static void copyIfChanged(File source, File target)
+            throws IOException
+    {
+        if (target.isFile() && target.length() == source.length() && target.lastModified() == source.lastModified()) {
+            return;
+        }
+        File temporary = new File(target.getParentFile(), target.getName() + ".tmp");
+        Files.copy(source.toPath(), temporary.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
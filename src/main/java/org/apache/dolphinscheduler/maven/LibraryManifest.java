@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The dependencies a thin plugin archive refers to by content instead of bundling them, as tab separated lines:
+ *
+ * <pre>
+ * version  1
+ * library  &lt;sha-256&gt;  &lt;size&gt;  &lt;file name in the bundle&gt;  &lt;groupId:artifactId:version&gt;  [&lt;source&gt;  &lt;source last modified&gt;]
+ * </pre>
+ *
+ * A thin archive carries the manifest as {@value #RESOURCE}, without sources. The copy in the build directory
+ * names the files the libraries were hashed from, for the aggregator to copy them and for the next build to reuse the hashes.
+ * A library store keeps each library once, as {@code <sha-256>.jar}.
+ */
+final class LibraryManifest {
+    static final String RESOURCE = "META-INF/dolphinscheduler/libraries";
+    static final String BUILD_FILE = "dolphinscheduler-libraries";
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "\t";
+
+    private final List<Library> libraries;
+
+    LibraryManifest(List<Library> libraries)
+    {
+        this.libraries = Collections.unmodifiableList(new ArrayList<>(libraries));
+    }
+
+    List<Library> getLibraries()
+    {
+        return libraries;
+    }
+
+    static LibraryManifest read(InputStream in)
+            throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        String line = reader.readLine();
+        if (line == null || !line.equals("version" + SEPARATOR + VERSION)) {
+            throw new IOException("Unsupported library manifest version: " + line);
+        }
+        List<Library> libraries = new ArrayList<>();
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(SEPARATOR, -1);
+            if (fields[0].equals("library")) {
+                File source = fields.length > 6 ? new File(fields[5]) : null;
+                long sourceLastModified = fields.length > 6 ? Long.parseLong(fields[6]) : 0;
+                libraries.add(new Library(fields[1], Long.parseLong(fields[2]), fields[3], fields[4], source, sourceLastModified));
+            }
+        }
+        return new LibraryManifest(libraries);
+    }
+
+    /**
+     * @return the manifest of a thin plugin archive, or null if the archive bundles its libraries
+     */
+    static LibraryManifest readFromArchive(File archive)
+            throws IOException
+    {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            ZipEntry entry = zipFile.getEntry(RESOURCE);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                return read(in);
+            }
+        }
+    }
+
+    /**
+     * @return the manifest in the file, or null if it is missing or unreadable
+     */
+    static LibraryManifest readIfPresent(File file)
+    {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return read(in);
+        }
+        catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the manifest, equal manifests to the same bytes. The stream is not closed.
+     */
+    void write(OutputStream out, boolean withSources)
+            throws IOException
+    {
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        writer.write("version" + SEPARATOR + VERSION + "\n");
+        for (Library library : libraries) {
+            writer.write("library" + SEPARATOR + library.getSha256()
+                    + SEPARATOR + library.getSize()
+                    + SEPARATOR + library.getFileName()
+                    + SEPARATOR + library.getCoordinates());
+            if (withSources && library.getSource() != null) {
+                writer.write(SEPARATOR + library.getSource().getAbsolutePath() + SEPARATOR + library.getSourceLastModified());
+            }
+            writer.write("\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return the hex encoded SHA-256 digest of the file
+     */
+    static String sha256(File file)
+            throws IOException
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the file of the library in a store
+     */
+    static File storeFile(File storeDirectory, String sha256)
+    {
+        return new File(storeDirectory, sha256 + ".jar");
+    }
+
+    /**
+     * a dependency of a plugin, identified by the digest of its jar
+     */
+    static final class Library {
+        private final String sha256;
+        private final long size;
+        private final String fileName;
+        private final String coordinates;
+        private final File source;
+        private final long sourceLastModified;
+
+        Library(String sha256, long size, String fileName, String coordinates, File source, long sourceLastModified)
+        {
+            this.sha256 = sha256;
+            this.size = size;
+            this.fileName = fileName;
+            this.coordinates = coordinates;
+            this.source = source;
+            this.sourceLastModified = sourceLastModified;
+        }
+
+        String getSha256()
+        {
+            return sha256;
+        }
+
+        long getSize()
+        {
+            return size;
+        }
+
+        String getFileName()
+        {
+            return fileName;
+        }
+
+        String getCoordinates()
+        {
+            return coordinates;
+        }
+
+        /**
+         * @return the file the library was hashed from, or null in a manifest read from a thin archive
+         */
+        File getSource()
+        {
+            return source;
+        }
+
+        long getSourceLastModified()
+        {
+            return sourceLastModified;
+        }
+
+        /**
+         * @return true if the hash was taken from this file as it is now
+         */
+        boolean isHashOf(File file)
+        {
+            return source != null && source.getAbsoluteFile().equals(file.getAbsoluteFile())
+                    && size == file.length() && sourceLastModified == file.lastModified();
+        }
+    }
+}
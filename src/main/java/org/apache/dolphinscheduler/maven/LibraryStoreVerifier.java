@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * check that the library store of a distribution holds every library the thin plugin archives refer to, with the right content
+ *
+ * Every library a manifest names must be in the store with its size and SHA-256 hash. Libraries no archive refers to
+ * are only reported. Works without a project, on any distribution the {@code aggregate-libraries} goal wrote.
+ */
+@Mojo(name = "verify-libraries",
+        aggregator = true,
+        requiresProject = false,
+        threadSafe = true)
+public class LibraryStoreVerifier extends AbstractMojo {
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-distribution", property = "dolphinscheduler.distributionDirectory")
+    private File distributionDirectory;
+
+    /**
+     * The number of threads that hash the libraries, 0 for the available processors.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        File store = new File(distributionDirectory, LibraryAggregator.STORE_DIRECTORY);
+        File plugins = new File(distributionDirectory, LibraryAggregator.PLUGINS_DIRECTORY);
+        File[] archives = plugins.listFiles((directory, name) -> name.endsWith(".zip"));
+        if (archives == null) {
+            throw new MojoExecutionException(String.format("%n%nThere are no plugins in %s.", plugins));
+        }
+        Arrays.sort(archives);
+
+        List<String> problems = new ArrayList<>();
+        Map<String, LibraryManifest.Library> libraries = new LinkedHashMap<>();
+        Map<String, List<String>> referrers = new LinkedHashMap<>();
+        try {
+            for (File archive : archives) {
+                LibraryManifest manifest = LibraryManifest.readFromArchive(archive);
+                if (manifest == null) {
+                    continue;
+                }
+                for (LibraryManifest.Library library : manifest.getLibraries()) {
+                    LibraryManifest.Library known = libraries.putIfAbsent(library.getSha256(), library);
+                    if (known != null && known.getSize() != library.getSize()) {
+                        problems.add(String.format("%s names %s with %d bytes, another plugin with %d", archive.getName(), library.getSha256(), library.getSize(), known.getSize()));
+                    }
+                    referrers.computeIfAbsent(library.getSha256(), key -> new ArrayList<>()).add(archive.getName() + " " + library.getFileName());
+                }
+            }
+
+            List<String> mismatches;
+            try (ClassScanner scanner = new ClassScanner(ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()))) {
+                mismatches = scanner.map(new ArrayList<>(libraries.values()), library -> check(store, library));
+            }
+            for (String mismatch : mismatches) {
+                String sha256 = mismatch.substring(0, mismatch.indexOf(' '));
+                problems.add(String.format("%s, needed by %s", mismatch.substring(sha256.length() + 1), String.join(", ", referrers.get(sha256))));
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to verify the library store %s.", store), e);
+        }
+
+        File[] stored = store.listFiles((directory, name) -> name.endsWith(".jar"));
+        if (stored != null) {
+            for (File file : stored) {
+                if (!libraries.containsKey(file.getName().substring(0, file.getName().length() - ".jar".length()))) {
+                    getLog().warn(String.format("No plugin refers to %s", file));
+                }
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            throw new MojoExecutionException(String.format("%n%nThe library store %s does not match the plugins:%n%s", store, String.join(String.format("%n"), problems)));
+        }
+        getLog().info(String.format("The library store %s holds all %d libraries of %d plugins", store, libraries.size(), archives.length));
+    }
+
+    /**
+     * @return null if the store holds the library, otherwise its hash, a space and the problem
+     */
+    private static String check(File store, LibraryManifest.Library library)
+            throws IOException
+    {
+        File file = LibraryManifest.storeFile(store, library.getSha256());
+        if (!file.isFile()) {
+            return library.getSha256() + " " + String.format("%s (%s) is missing", file.getName(), library.getCoordinates());
+        }
+        if (file.length() != library.getSize()) {
+            return library.getSha256() + " " + String.format("%s (%s) has %d bytes instead of %d", file.getName(), library.getCoordinates(), file.length(), library.getSize());
+        }
+        if (!library.getSha256().equals(LibraryManifest.sha256(file))) {
+            return library.getSha256() + " " + String.format("%s (%s) has another content", file.getName(), library.getCoordinates());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * generate the GraalVM native image configuration of the plugin, its reflection and resource configuration,
+ * from the classes reachable from the plugin class in the plugin bundle.
+ *
+ * Binds to process-classes after the descriptor generator, whose plugin index names the root classes, and writes to
+ * {@code META-INF/native-image/<groupId>/<artifactId>/} of the classes directory, where native-image finds it on the class path.
+ * The analysis reads the class files only, so the build needs no GraalVM:
+ * <ul>
+ * <li>service implementations of reached interfaces are registered for reflective instantiation, and their
+ * {@code META-INF/services} files are included as resources, from which native-image configures the service loader</li>
+ * <li>bundled classes named by a string constant of a reached class, and the {@code keepClasses}, are registered
+ * with their constructors and public methods, for {@code Class.forName}</li>
+ * <li>the resources of the plugin itself are included, and those of the bundled jars that a reached class names,
+ * absolute or relative to its package</li>
+ * <li>resource bundles whose base name a reached class names are registered as bundles</li>
+ * </ul>
+ * Names computed at runtime are beyond a static analysis, see {@code keepClasses}.
+ */
+@Mojo(name = "generate-native-image-config",
+        defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class NativeImageConfigGenerator extends AbstractMojo {
+    static final String REFLECT_CONFIG = "reflect-config.json";
+    static final String RESOURCE_CONFIG = "resource-config.json";
+
+    private static final String SERVICES = "META-INF/services/";
+    private static final String PROPERTIES_SUFFIX = ".properties";
+    // entries of the plugin's classes directory that are build output rather than resources the plugin loads
+    private static final List<String> EXCLUDED_RESOURCES = Arrays.asList("META-INF/MANIFEST.MF", "META-INF/maven/", "META-INF/native-image/", SERVICES);
+
+    @Parameter(defaultValue = "false")
+    private boolean skipNativeImageConfig;
+
+    /**
+     * Classes that are loaded by name, e.g. {@code com.example.Driver}, or {@code com.example.*} for a package
+     * and its sub packages. They are registered for reflection and everything they refer to is analyzed.
+     */
+    @Parameter
+    private final Set<String> keepClasses = new HashSet<>();
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classesDirectory;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + PluginIndex.RESOURCE)
+    private File pluginIndexFile;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/META-INF/native-image/${project.groupId}/${project.artifactId}")
+    private File nativeImageConfigDirectory;
+
+    /**
+     * The number of threads that read class files, 0 to share the available processors
+     * with the other modules the parallel builder runs at the same time.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    @Parameter(defaultValue = "${project}")
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (skipNativeImageConfig) {
+            getLog().info("Skipping Dolphinscheduler native image configuration");
+            return;
+        }
+        if (!classesDirectory.isDirectory()) {
+            getLog().info(String.format("No classes directory %s, no native image configuration to generate", classesDirectory));
+            return;
+        }
+
+        List<File> sources = new ArrayList<>();
+        sources.add(classesDirectory);
+        for (Artifact artifact : project.getArtifacts()) {
+            if (PluginArtifacts.isBundled(artifact)) {
+                sources.add(artifact.getFile());
+            }
+        }
+
+        PluginIndex index = readPluginIndex();
+        // class name to whether all its constructors and public methods are registered, rather than its default constructor
+        Map<String, Boolean> reflection = new TreeMap<>();
+        Set<String> resources = new TreeSet<>();
+        Set<String> bundles = new TreeSet<>();
+        try (ClassScanner scanner = new ClassScanner(ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()));
+                ClassReachability reachability = new ClassReachability(sources, true, scanner)) {
+            Set<String> roots = new LinkedHashSet<>();
+            if (index == null) {
+                getLog().info("No plugin index, every class of the plugin is a root of the analysis");
+                roots.addAll(reachability.getClassesBySource().get(0));
+            }
+            else {
+                if (index.getPluginClassName() != null) {
+                    roots.add(index.getPluginClassName());
+                }
+                index.getServices().values().forEach(roots::addAll);
+            }
+            Set<String> reached = reachability.findReachableClasses(roots, className -> PluginArtifacts.matchesAny(keepClasses, className), scanner);
+
+            for (Map.Entry<String, Set<String>> service : reachability.getServices().entrySet()) {
+                String interfaceName = service.getKey();
+                if (reachability.findSource(interfaceName) >= 0 && !reached.contains(interfaceName)) {
+                    continue;
+                }
+                for (String implementation : service.getValue()) {
+                    if (reached.contains(implementation)) {
+                        reflection.putIfAbsent(implementation, false);
+                        resources.add(SERVICES + interfaceName);
+                    }
+                }
+            }
+            for (String className : reached) {
+                if (PluginArtifacts.matchesAny(keepClasses, className)) {
+                    reflection.put(className, true);
+                }
+            }
+
+            List<Set<String>> resourcesBySource = reachability.getResourcesBySource();
+            for (String resource : resourcesBySource.get(0)) {
+                if (EXCLUDED_RESOURCES.stream().noneMatch(resource::startsWith)) {
+                    resources.add(resource);
+                }
+            }
+            Set<String> bundledResources = new HashSet<>();
+            resourcesBySource.forEach(bundledResources::addAll);
+            Set<String> bundleNames = findBundleNames(bundledResources);
+
+            List<String> reachedClasses = new ArrayList<>(new TreeSet<>(reached));
+            List<Set<String>> strings = reachability.readStrings(reachedClasses, scanner);
+            for (int i = 0; i < reachedClasses.size(); i++) {
+                String className = reachedClasses.get(i);
+                for (String string : strings.get(i)) {
+                    if (reachability.findSource(string) >= 0) {
+                        reflection.put(string, true);
+                    }
+                    if (bundleNames.contains(string.replace('.', '/'))) {
+                        bundles.add(string);
+                    }
+                    for (String path : resolveResource(className, string)) {
+                        if (bundledResources.contains(path)) {
+                            resources.add(path);
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException("Failed to analyze the classes of the plugin bundle.", e);
+        }
+
+        boolean changed = writeConfig(new File(nativeImageConfigDirectory, REFLECT_CONFIG), json -> {
+            json.beginArray();
+            for (Map.Entry<String, Boolean> entry : reflection.entrySet()) {
+                json.beginObject().name("name").value(entry.getKey());
+                if (entry.getValue()) {
+                    json.name("allDeclaredConstructors").value(true)
+                            .name("allPublicMethods").value(true);
+                }
+                else {
+                    json.name("methods").beginArray()
+                            .beginObject().name("name").value("<init>").name("parameterTypes").beginArray().endArray().endObject()
+                            .endArray();
+                }
+                json.endObject();
+            }
+            json.endArray();
+        });
+        changed |= writeConfig(new File(nativeImageConfigDirectory, RESOURCE_CONFIG), json -> {
+            json.beginObject().name("resources").beginObject().name("includes").beginArray();
+            for (String resource : resources) {
+                json.beginObject().name("pattern").value("\\Q" + resource + "\\E").endObject();
+            }
+            json.endArray().endObject().name("bundles").beginArray();
+            for (String bundle : bundles) {
+                json.beginObject().name("name").value(bundle).endObject();
+            }
+            json.endArray().endObject();
+        });
+
+        getLog().info(String.format("Dolphinscheduler plugin native image configuration %s: %d reflective classes, %d resources, %d resource bundles in %s",
+                changed ? "generated" : "is up to date", reflection.size(), resources.size(), bundles.size(), nativeImageConfigDirectory));
+    }
+
+    /**
+     * @return the resource paths a string constant of the class may name, for {@code ClassLoader.getResource}
+     * and {@code Class.getResource}, which resolves names without a leading slash against the package of the class
+     */
+    private static List<String> resolveResource(String className, String name)
+    {
+        if (name.isEmpty() || name.endsWith("/")) {
+            return new ArrayList<>();
+        }
+        if (name.startsWith("/")) {
+            return Arrays.asList(name.substring(1));
+        }
+        int packageEnd = className.lastIndexOf('.');
+        if (packageEnd < 0) {
+            return Arrays.asList(name);
+        }
+        return Arrays.asList(name, className.substring(0, packageEnd).replace('.', '/') + "/" + name);
+    }
+
+    /**
+     * @return the base names, as paths, of the resource bundles among the resources, e.g. {@code its/Messages}
+     * for {@code its/Messages.properties} and {@code its/Messages_de_DE.properties}
+     */
+    private static Set<String> findBundleNames(Set<String> resources)
+    {
+        Set<String> names = new HashSet<>();
+        for (String resource : resources) {
+            if (!resource.endsWith(PROPERTIES_SUFFIX)) {
+                continue;
+            }
+            String name = resource.substring(0, resource.length() - PROPERTIES_SUFFIX.length());
+            names.add(name);
+            int simpleName = name.lastIndexOf('/') + 1;
+            for (int i = name.indexOf('_', simpleName); i > simpleName; i = name.indexOf('_', i + 1)) {
+                names.add(name.substring(0, i));
+            }
+        }
+        return names;
+    }
+
+    private PluginIndex readPluginIndex()
+            throws MojoExecutionException
+    {
+        if (!pluginIndexFile.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(pluginIndexFile.toPath())) {
+            return PluginIndex.read(in);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to read %s.", pluginIndexFile), e);
+        }
+    }
+
+    /**
+     * Writes the file unless it already has the content, so that an unchanged configuration does not make the packaging
+     * rebuild the plugin jar.
+     *
+     * @return whether the file was written
+     */
+    private static boolean writeConfig(File file, JsonContent content)
+            throws MojoExecutionException
+    {
+        try {
+            StringWriter out = new StringWriter();
+            try (JsonWriter json = new JsonWriter(out)) {
+                content.write(json);
+            }
+            byte[] bytes = out.toString().getBytes(UTF_8);
+            if (file.isFile() && Arrays.equals(bytes, Files.readAllBytes(file.toPath()))) {
+                return false;
+            }
+            File directory = file.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+            }
+            Files.write(file.toPath(), bytes);
+            return true;
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", file), e);
+        }
+    }
+
+    private interface JsonContent {
+        void write(JsonWriter json)
+                throws IOException;
+    }
+}
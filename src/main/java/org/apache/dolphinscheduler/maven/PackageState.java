@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The layout of the last plugin archive the packager wrote, stored as a tab separated text file:
+ *
+ * <pre>
+ * version  1
+ * archive  &lt;timestamp&gt;  &lt;compression level&gt;  &lt;size&gt;  &lt;last modified&gt;
+ * entry  &lt;name&gt;  &lt;method&gt;  &lt;crc&gt;  &lt;size&gt;  &lt;compressed size&gt;  &lt;offset&gt;  &lt;source size&gt;  &lt;source last modified&gt;
+ * </pre>
+ *
+ * The size and modification time of the archive tell whether anything else touched it since.
+ */
+final class PackageState {
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "\t";
+
+    private String timestamp;
+    private int compressionLevel;
+    private long archiveSize = -1;
+    private long archiveLastModified;
+    private final List<EntryState> entries = new ArrayList<>();
+
+    /**
+     * @return the stored state, or null if the file is missing, unreadable or of another version
+     */
+    static PackageState load(File file)
+    {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+            String line = reader.readLine();
+            if (line == null || !line.equals("version" + SEPARATOR + VERSION)) {
+                return null;
+            }
+            PackageState state = new PackageState();
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, -1);
+                switch (fields[0]) {
+                    case "archive":
+                        state.timestamp = fields[1];
+                        state.compressionLevel = Integer.parseInt(fields[2]);
+                        state.archiveSize = Long.parseLong(fields[3]);
+                        state.archiveLastModified = Long.parseLong(fields[4]);
+                        break;
+                    case "entry":
+                        ReproducibleZipWriter.Entry entry = ReproducibleZipWriter.Entry.restore(fields[1], Integer.parseInt(fields[2]),
+                                Long.parseLong(fields[3]), Long.parseLong(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6]));
+                        state.entries.add(new EntryState(entry, Long.parseLong(fields[7]), Long.parseLong(fields[8])));
+                        break;
+                    default:
+                        throw new IOException("Unknown record " + fields[0]);
+                }
+            }
+            return state;
+        }
+        catch (IOException | RuntimeException e) {
+            // a damaged state only costs a full rebuild
+            return null;
+        }
+    }
+
+    void store(File file)
+            throws IOException
+    {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), UTF_8)) {
+            writer.write("version" + SEPARATOR + VERSION);
+            writer.newLine();
+            writer.write("archive" + SEPARATOR + timestamp + SEPARATOR + compressionLevel + SEPARATOR + archiveSize + SEPARATOR + archiveLastModified);
+            writer.newLine();
+            for (EntryState state : entries) {
+                ReproducibleZipWriter.Entry entry = state.getEntry();
+                writer.write("entry" + SEPARATOR + entry.getName()
+                        + SEPARATOR + entry.getMethod()
+                        + SEPARATOR + entry.getCrc()
+                        + SEPARATOR + entry.getSize()
+                        + SEPARATOR + entry.getCompressedSize()
+                        + SEPARATOR + entry.getOffset()
+                        + SEPARATOR + state.getSourceSize()
+                        + SEPARATOR + state.getSourceLastModified());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * @return true if the archive was written by the packager with the same settings and nothing changed it since
+     */
+    boolean describes(File archive, String timestamp, int compressionLevel)
+    {
+        return timestamp.equals(this.timestamp)
+                && compressionLevel == this.compressionLevel
+                && archive.isFile()
+                && archive.length() == archiveSize
+                && archive.lastModified() == archiveLastModified;
+    }
+
+    void setArchive(File archive, String timestamp, int compressionLevel)
+    {
+        this.timestamp = timestamp;
+        this.compressionLevel = compressionLevel;
+        this.archiveSize = archive.length();
+        this.archiveLastModified = archive.lastModified();
+    }
+
+    List<EntryState> getEntries()
+    {
+        return Collections.unmodifiableList(entries);
+    }
+
+    void addEntry(ReproducibleZipWriter.Entry entry, File source)
+    {
+        entries.add(new EntryState(entry, source.length(), source.lastModified()));
+    }
+
+    /**
+     * a written entry and the size and modification time of the file it was written from
+     */
+    static final class EntryState {
+        private final ReproducibleZipWriter.Entry entry;
+        private final long sourceSize;
+        private final long sourceLastModified;
+
+        EntryState(ReproducibleZipWriter.Entry entry, long sourceSize, long sourceLastModified)
+        {
+            this.entry = entry;
+            this.sourceSize = sourceSize;
+            this.sourceLastModified = sourceLastModified;
+        }
+
+        ReproducibleZipWriter.Entry getEntry()
+        {
+            return entry;
+        }
+
+        long getSourceSize()
+        {
+            return sourceSize;
+        }
+
+        long getSourceLastModified()
+        {
+            return sourceLastModified;
+        }
+
+        boolean isUpToDate(File source)
+        {
+            return sourceSize == source.length() && sourceLastModified == source.lastModified();
+        }
+    }
+}
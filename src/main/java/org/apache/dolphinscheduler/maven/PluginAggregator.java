@@ -0,0 +1,483 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.lifecycle.DefaultLifecycles;
+import org.apache.maven.lifecycle.Lifecycle;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * check every plugin module of the reactor at once and write one report of what the reactor ships
+ *
+ * Run it at the reactor root after the plugins are packaged, e.g. {@code mvn package dolphinscheduler:aggregate-plugins}.
+ * The plugins are checked concurrently: the SPI dependency rules against one resolution of the SPI dependencies shared by
+ * all of them, the plugin index of every packaged archive, and across modules that no two plugins ship the same plugin class
+ * or the same archive name. While this goal is part of the build, the {@code spi-dependencies-check} goal of the modules
+ * leaves its work to it, and each module is checked with the configuration of its {@code spi-dependencies-check} goal,
+ * its own {@code skipCheckSpiDependencies}, SPI and {@code allowedProvidedDependencies} included. The problems of all plugins are reported together, and with a {@code distributionDirectory}
+ * the archives are collected into its {@code plugins} directory.
+ */
+@Mojo(name = PluginAggregator.GOAL,
+        aggregator = true,
+        threadSafe = true)
+public class PluginAggregator extends AbstractMojo {
+    static final String GOAL = "aggregate-plugins";
+    private static final String CHECK_GOAL = "spi-dependencies-check";
+
+    @Parameter(defaultValue = "org.apache.dolphinscheduler")
+    private String spiGroupId;
+
+    @Parameter(defaultValue = "dolphinscheduler-spi")
+    private String spiArtifactId;
+
+    /**
+     * The provided dependencies that are not part of the SPI but allowed in every plugin, in addition to the ones
+     * the {@code spi-dependencies-check} goal of a module allows.
+     */
+    @Parameter
+    private final Set<String> allowedProvidedDependencies = new HashSet<>();
+
+    @Parameter(defaultValue = "true")
+    private boolean useSpiDependencyManifest;
+
+    @Parameter(property = "dolphinscheduler.cacheDirectory")
+    private File cacheDirectory;
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-plugins.json")
+    private File reportFile;
+
+    /**
+     * The directory to collect the plugin archives into, none by default.
+     */
+    @Parameter(property = "dolphinscheduler.distributionDirectory")
+    private File distributionDirectory;
+
+    @Parameter(defaultValue = "true")
+    private boolean failOnProblems;
+
+    /**
+     * The number of plugins checked at the same time, 0 for the available processors.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-aggregate-metrics.json")
+    private File metricsFile;
+
+    @Parameter(defaultValue = "false")
+    private boolean skipMetrics;
+
+    @Parameter(defaultValue = "false", property = "dolphinscheduler.logMetrics")
+    private boolean logMetrics;
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySession;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor plugin;
+
+    @Component
+    private RepositorySystem repositorySystem;
+
+    /**
+     * @return true if the build runs this goal of the plugin, from the command line or bound to a phase the build reaches
+     * in a project of the reactor, so that the goals of the modules can leave their checks to it
+     */
+    static boolean isRequested(MavenSession session, PluginDescriptor plugin, DefaultLifecycles lifecycles)
+    {
+        for (String task : session.getGoals()) {
+            if (isGoal(task, plugin)) {
+                return true;
+            }
+        }
+        for (MavenProject project : session.getProjects()) {
+            Plugin buildPlugin = project.getPlugin(plugin.getPluginLookupKey());
+            if (buildPlugin == null) {
+                continue;
+            }
+            for (PluginExecution execution : buildPlugin.getExecutions()) {
+                if (execution.getGoals().contains(GOAL) && isPhaseReached(session, lifecycles, execution.getPhase())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the task is this goal, as {@code prefix:goal} or {@code groupId:artifactId[:version]:goal}
+     */
+    private static boolean isGoal(String task, PluginDescriptor plugin)
+    {
+        String[] parts = task.split(":");
+        if (!parts[parts.length - 1].equals(GOAL)) {
+            return false;
+        }
+        if (parts.length == 2) {
+            return parts[0].equals(plugin.getGoalPrefix());
+        }
+        return (parts.length == 3 || parts.length == 4)
+                && parts[0].equals(plugin.getGroupId())
+                && parts[1].equals(plugin.getArtifactId());
+    }
+
+    private static boolean isPhaseReached(MavenSession session, DefaultLifecycles lifecycles, String phase)
+    {
+        // the goal has no default phase, an execution without one never runs
+        Lifecycle lifecycle = phase == null ? null : lifecycles.getPhaseToLifecycleMap().get(phase);
+        if (lifecycle == null) {
+            return false;
+        }
+        int index = lifecycle.getPhases().indexOf(phase);
+        for (String task : session.getGoals()) {
+            if (lifecycle.getPhases().indexOf(task) >= index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        BuildMetrics metrics = new BuildMetrics(GOAL, project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion());
+        List<MavenProject> projects = new ArrayList<>();
+        for (MavenProject module : session.getProjects()) {
+            if (module.getPackaging().startsWith("dolphinscheduler-plugin")) {
+                projects.add(module);
+            }
+        }
+        metrics.count("plugins", projects.size());
+
+        SpiDependencyResolver resolver = new SpiDependencyResolver(repositorySystem, repositorySession, useSpiDependencyManifest, cacheDirectory, getLog());
+        List<PluginReport> reports;
+        int threads;
+        try (BuildMetrics.Phase phase = metrics.phase("checkPlugins");
+                ClassScanner scanner = new ClassScanner(ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()))) {
+            reports = scanner.map(projects, module -> check(module, getRules(module), resolver, metrics));
+            threads = scanner.getParallelism();
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException("Failed to check the plugins.", e);
+        }
+        checkAcrossPlugins(reports);
+
+        if (distributionDirectory != null) {
+            try (BuildMetrics.Phase phase = metrics.phase("distribute")) {
+                distribute(reports);
+            }
+        }
+        writeReport(reports);
+
+        List<String> problems = new ArrayList<>();
+        for (PluginReport report : reports) {
+            for (String problem : report.problems) {
+                problems.add(report.id + ": " + problem);
+            }
+        }
+        metrics.count("problems", problems.size());
+        if (!skipMetrics) {
+            metrics.report(metricsFile, logMetrics, getLog());
+        }
+        getLog().info(String.format("Checked %d Dolphinscheduler plugins on %d threads with %d problems, see %s", reports.size(), threads, problems.size(), reportFile));
+        if (!problems.isEmpty()) {
+            String message = String.format("%n%nDolphinscheduler plugins have problems:%n%n%s%n", String.join(System.lineSeparator(), problems));
+            if (failOnProblems) {
+                throw new MojoExecutionException(message);
+            }
+            getLog().warn(message);
+        }
+    }
+
+    /**
+     * @return the SPI dependency rules of every run of the {@code spi-dependencies-check} goal in the module, that is the
+     * execution bound by the packaging and every execution of the pom naming the goal, each merged over the configuration
+     * of the plugin; runs that skip the check are left out
+     */
+    private List<SpiDependencyRules> getRules(MavenProject module)
+    {
+        Plugin buildPlugin = module.getPlugin(plugin.getPluginLookupKey());
+        Xpp3Dom pluginConfiguration = buildPlugin == null ? null : (Xpp3Dom) buildPlugin.getConfiguration();
+        String defaultExecutionId = "default-" + CHECK_GOAL;
+        List<Xpp3Dom> configurations = new ArrayList<>();
+        PluginExecution defaultExecution = buildPlugin == null ? null : buildPlugin.getExecutionsAsMap().get(defaultExecutionId);
+        configurations.add(merge(defaultExecution == null ? null : (Xpp3Dom) defaultExecution.getConfiguration(), pluginConfiguration));
+        if (buildPlugin != null) {
+            for (PluginExecution execution : buildPlugin.getExecutions()) {
+                if (!execution.getId().equals(defaultExecutionId) && execution.getGoals().contains(CHECK_GOAL)) {
+                    configurations.add(merge((Xpp3Dom) execution.getConfiguration(), pluginConfiguration));
+                }
+            }
+        }
+
+        List<SpiDependencyRules> rules = new ArrayList<>();
+        for (Xpp3Dom configuration : configurations) {
+            if (Boolean.parseBoolean(getValue(configuration, "skipCheckSpiDependencies", "false"))) {
+                continue;
+            }
+            Set<String> allowed = new HashSet<>(allowedProvidedDependencies);
+            Xpp3Dom allowedConfiguration = configuration.getChild("allowedProvidedDependencies");
+            if (allowedConfiguration != null) {
+                for (Xpp3Dom dependency : allowedConfiguration.getChildren()) {
+                    if (dependency.getValue() != null) {
+                        allowed.add(dependency.getValue().trim());
+                    }
+                }
+            }
+            rules.add(new SpiDependencyRules(getValue(configuration, "spiGroupId", spiGroupId), getValue(configuration, "spiArtifactId", spiArtifactId), allowed));
+        }
+        return rules;
+    }
+
+    private static Xpp3Dom merge(Xpp3Dom dominant, Xpp3Dom recessive)
+    {
+        if (dominant == null) {
+            return recessive == null ? new Xpp3Dom("configuration") : recessive;
+        }
+        if (recessive == null) {
+            return dominant;
+        }
+        return Xpp3Dom.mergeXpp3Dom(new Xpp3Dom(dominant), new Xpp3Dom(recessive));
+    }
+
+    private static String getValue(Xpp3Dom configuration, String name, String defaultValue)
+    {
+        Xpp3Dom child = configuration.getChild(name);
+        return child == null || child.getValue() == null ? defaultValue : child.getValue().trim();
+    }
+
+    private static PluginReport check(MavenProject module, List<SpiDependencyRules> rules, SpiDependencyResolver resolver, BuildMetrics metrics)
+    {
+        PluginReport report = new PluginReport(module);
+        File archive = module.getArtifact().getFile();
+        if (archive == null || !archive.getName().endsWith(".zip") || !archive.isFile()) {
+            report.problems.add("The plugin is not packaged, run the package phase before aggregating the plugins.");
+            return report;
+        }
+        report.archive = archive;
+
+        for (SpiDependencyRules runRules : rules) {
+            checkSpiDependencies(module, runRules, resolver, metrics, report);
+        }
+
+        PluginIndex index;
+        try {
+            index = readPluginIndex(archive, PluginArtifacts.bundleFileName(module.getArtifact()));
+        }
+        catch (IOException e) {
+            report.problems.add(String.format("Failed to read %s: %s", archive.getName(), e.getMessage()));
+            return report;
+        }
+        if (index == null) {
+            report.problems.add(String.format("%s has no plugin index, generate it with the generate-dolphin-service-descriptor goal.", archive.getName()));
+        }
+        else if (index.getPluginClassName() == null) {
+            report.problems.add(String.format("The plugin index of %s names no plugin class.", archive.getName()));
+        }
+        else {
+            report.pluginClassName = index.getPluginClassName();
+            report.spiInterfaceName = index.getSpiInterfaceName();
+            report.jars = index.getJars().size();
+        }
+        return report;
+    }
+
+    private static void checkSpiDependencies(MavenProject module, SpiDependencyRules rules, SpiDependencyResolver resolver, BuildMetrics metrics, PluginReport report)
+    {
+        try {
+            Artifact spiArtifact = rules.getSpiArtifact(module);
+            report.spi = spiArtifact.getGroupId() + ":" + spiArtifact.getArtifactId() + ":" + spiArtifact.getVersion();
+            rules.check(module, resolver.resolve(spiArtifact, metrics), metrics);
+        }
+        catch (MojoExecutionException e) {
+            String problem = e.getMessage().trim();
+            if (!report.problems.contains(problem)) {
+                report.problems.add(problem);
+            }
+        }
+    }
+
+    /**
+     * @return the plugin index inside the plugin jar of the archive, or null if there is none
+     */
+    private static PluginIndex readPluginIndex(File archive, String pluginJarName)
+            throws IOException
+    {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.getName().equals(pluginJarName) && !entry.getName().endsWith("/" + pluginJarName)) {
+                    continue;
+                }
+                try (ZipInputStream jar = new ZipInputStream(zipFile.getInputStream(entry))) {
+                    ZipEntry jarEntry;
+                    while ((jarEntry = jar.getNextEntry()) != null) {
+                        if (jarEntry.getName().equals(PluginIndex.RESOURCE)) {
+                            return PluginIndex.read(jar);
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Two plugins with the same plugin class, or the same archive name, cannot be installed side by side.
+     */
+    private static void checkAcrossPlugins(List<PluginReport> reports)
+    {
+        Map<String, PluginReport> pluginClasses = new HashMap<>();
+        Map<String, PluginReport> archives = new HashMap<>();
+        for (PluginReport report : reports) {
+            if (report.pluginClassName != null) {
+                PluginReport other = pluginClasses.putIfAbsent(report.pluginClassName, report);
+                if (other != null) {
+                    report.problems.add(String.format("The plugin class %s is also the plugin class of %s.", report.pluginClassName, other.id));
+                }
+            }
+            if (report.archive != null) {
+                PluginReport other = archives.putIfAbsent(report.archive.getName(), report);
+                if (other != null) {
+                    report.problems.add(String.format("The archive %s has the same name as the archive of %s.", report.archive.getName(), other.id));
+                }
+            }
+        }
+    }
+
+    private void distribute(List<PluginReport> reports)
+            throws MojoExecutionException
+    {
+        File plugins = new File(distributionDirectory, LibraryAggregator.PLUGINS_DIRECTORY);
+        if (!plugins.isDirectory() && !plugins.mkdirs()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", plugins));
+        }
+        try {
+            for (PluginReport report : reports) {
+                if (report.archive != null) {
+                    LibraryAggregator.copyIfChanged(report.archive, new File(plugins, report.archive.getName()));
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to copy the plugins to %s.", plugins), e);
+        }
+    }
+
+    private void writeReport(List<PluginReport> reports)
+            throws MojoExecutionException
+    {
+        try {
+            File directory = reportFile.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Failed to create directory: " + directory);
+            }
+            File temporary = new File(directory, reportFile.getName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(temporary.toPath(), UTF_8);
+                    JsonWriter json = new JsonWriter(out)) {
+                json.beginObject().name("plugins").beginArray();
+                for (PluginReport report : reports) {
+                    json.beginObject().name("project").value(report.id);
+                    if (report.archive != null) {
+                        json.name("archive").value(report.archive.getName())
+                                .name("archiveBytes").value(report.archive.length());
+                    }
+                    if (report.spi != null) {
+                        json.name("spi").value(report.spi);
+                    }
+                    if (report.pluginClassName != null) {
+                        json.name("pluginClass").value(report.pluginClassName)
+                                .name("spiInterface").value(report.spiInterfaceName)
+                                .name("jars").value(report.jars);
+                    }
+                    json.name("problems").beginArray();
+                    for (String problem : report.problems) {
+                        json.value(problem);
+                    }
+                    json.endArray().endObject();
+                }
+                json.endArray();
+                if (distributionDirectory != null) {
+                    json.name("distribution").value(distributionDirectory.getAbsolutePath());
+                }
+                json.endObject();
+            }
+            Files.move(temporary.toPath(), reportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", reportFile), e);
+        }
+    }
+
+    /**
+     * what the aggregator found out about one plugin module
+     */
+    private static final class PluginReport {
+        private final String id;
+        private final List<String> problems = new ArrayList<>();
+        private File archive;
+        private String spi;
+        private String pluginClassName;
+        private String spiInterfaceName;
+        private int jars;
+
+        private PluginReport(MavenProject project)
+        {
+            this.id = project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * helpers for the artifacts that end up in a plugin bundle
+ */
+final class PluginArtifacts {
+    private static final String CLASS_SUFFIX = ".class";
+
+    private PluginArtifacts()
+    {
+    }
+
+    /**
+     * @return true if the artifact is on the runtime classpath, i.e. bundled with the plugin rather than provided by the server
+     */
+    static boolean isBundled(Artifact artifact)
+    {
+        return artifact.getFile() != null
+                && (Artifact.SCOPE_COMPILE.equals(artifact.getScope()) || Artifact.SCOPE_RUNTIME.equals(artifact.getScope()));
+    }
+
+    /**
+     * @return the files of every resolved dependency, the SPI and other provided ones included, in resolution order
+     */
+    static List<File> getClasspath(MavenProject project)
+    {
+        List<File> classpath = new ArrayList<>();
+        for (Artifact artifact : project.getArtifacts()) {
+            if (artifact.getFile() != null) {
+                classpath.add(artifact.getFile());
+            }
+        }
+        return classpath;
+    }
+
+    /**
+     * @return the bundled dependencies of the project, sorted by their bundle file name
+     */
+    static List<Artifact> getBundledArtifacts(MavenProject project)
+    {
+        List<Artifact> bundled = new ArrayList<>();
+        for (Artifact artifact : project.getArtifacts()) {
+            if (isBundled(artifact)) {
+                bundled.add(artifact);
+            }
+        }
+        bundled.sort(Comparator.comparing(PluginArtifacts::bundleFileName));
+        return bundled;
+    }
+
+    /**
+     * @return the bundled dependencies of the project, sorted by their bundle file name, without the jars the report
+     * of the {@code analyze-bundle} goal excludes
+     */
+    static List<Artifact> getBundledArtifacts(MavenProject project, File bundleReportFile)
+            throws IOException
+    {
+        Set<String> excluded = BundleAnalyzer.readExcludedJars(bundleReportFile);
+        List<Artifact> bundled = getBundledArtifacts(project);
+        bundled.removeIf(artifact -> excluded.contains(bundleFileName(artifact)));
+        return bundled;
+    }
+
+    /**
+     * @return the file name of the artifact inside a plugin bundle: {@code artifactId-version[-classifier].jar}
+     */
+    static String bundleFileName(Artifact artifact)
+    {
+        StringBuilder name = new StringBuilder(artifact.getArtifactId()).append('-').append(artifact.getBaseVersion());
+        if (artifact.getClassifier() != null && !artifact.getClassifier().isEmpty()) {
+            name.append('-').append(artifact.getClassifier());
+        }
+        return name.append(".jar").toString();
+    }
+
+    /**
+     * @return the binary names of the classes in a jar or a classes directory, without module and multi-release descriptors
+     */
+    static List<String> listClasses(File file)
+            throws IOException
+    {
+        List<String> classes = new ArrayList<>();
+        if (file.isDirectory()) {
+            for (String path : FileUtils.getFileNames(file, "**/*" + CLASS_SUFFIX, null, false)) {
+                addClass(classes, path.replace(File.separatorChar, '/'));
+            }
+        }
+        else if (file.isFile()) {
+            try (ZipFile zipFile = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    addClass(classes, entries.nextElement().getName());
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * @param patterns class or package names, a package name ending with {@code .*} covering its sub packages as well
+     * @return true if a pattern matches the class or package name
+     */
+    static boolean matchesAny(Collection<String> patterns, String name)
+    {
+        for (String pattern : patterns) {
+            if (pattern.endsWith(".*")) {
+                String prefix = pattern.substring(0, pattern.length() - 2);
+                if (name.equals(prefix) || name.startsWith(prefix + ".")) {
+                    return true;
+                }
+            }
+            else if (name.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param patterns {@code groupId:artifactId[:version]} patterns, in which {@code *} matches any part of a segment
+     * @return true if a pattern matches the coordinates of the artifact
+     */
+    static boolean matchesAnyArtifact(Collection<String> patterns, Artifact artifact)
+    {
+        String[] coordinates = {artifact.getGroupId(), artifact.getArtifactId(), artifact.getBaseVersion()};
+        for (String pattern : patterns) {
+            String[] segments = pattern.trim().split(":");
+            if (segments.length < 2 || segments.length > 3) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < segments.length && matches; i++) {
+                matches = Pattern.matches(Pattern.quote(segments[i]).replace("*", "\\E.*\\Q"), coordinates[i]);
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the binary name of the class at the path of a jar entry, or null if the entry is no class or a module or multi-release descriptor
+     */
+    static String toClassName(String path)
+    {
+        if (path.endsWith(CLASS_SUFFIX) && !path.startsWith("META-INF/") && !path.endsWith("module-info" + CLASS_SUFFIX)) {
+            return ClassFileReader.toBinaryName(path.substring(0, path.length() - CLASS_SUFFIX.length()));
+        }
+        return null;
+    }
+
+    private static void addClass(List<String> classes, String path)
+    {
+        String className = toClassName(path);
+        if (className != null) {
+            classes.add(className);
+        }
+    }
+}
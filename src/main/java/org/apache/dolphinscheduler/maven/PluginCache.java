@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import org.eclipse.aether.RepositorySystemSession;
+
+import java.io.File;
+
+/**
+ * The files the plugin derives from SPI artifacts and keeps across builds, their dependency manifests and signature indexes.
+ *
+ * They live in a directory of their own next to the local repository, {@value #DIRECTORY} by default, and never
+ * in its layout, so a shared or read-only repository is left as it is. Writing them is best effort: a cache file
+ * that cannot be written only costs the next build a miss.
+ */
+final class PluginCache {
+    static final String DIRECTORY = ".dolphinscheduler";
+
+    private PluginCache()
+    {
+    }
+
+    /**
+     * @param cacheDirectory the configured cache directory, or null for {@value #DIRECTORY} next to the local repository
+     * @return the cache file of an artifact version, e.g. {@code <cache>/org.apache.dolphinscheduler/dolphinscheduler-spi-1.2.1.spi-dependencies}
+     */
+    static File getFile(File cacheDirectory, RepositorySystemSession session, String groupId, String artifactId, String baseVersion, String extension)
+    {
+        File directory = cacheDirectory;
+        if (directory == null) {
+            File localRepository = session.getLocalRepository().getBasedir().getAbsoluteFile();
+            directory = new File(localRepository.getParentFile(), DIRECTORY);
+        }
+        return new File(new File(directory, groupId), artifactId + "-" + baseVersion + "." + extension);
+    }
+}
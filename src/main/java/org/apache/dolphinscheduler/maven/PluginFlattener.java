@@ -0,0 +1,532 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * flatten the plugin jar and its bundled dependencies into a single jar, as an alternative to the zip of nested jars
+ *
+ * A server then opens one file instead of one per dependency. The plugin jar comes first and the dependencies follow in bundle
+ * order, and of two entries with the same name the first one is kept, as a class loader over the nested jars would. Services files
+ * are merged, signatures, module descriptors and jar indexes are dropped, and the plugin index is rewritten to name the flattened
+ * jar for every class. Entries of the same name with different content are conflicts, reported to the log and to {@code reportFile}.
+ */
+@Mojo(name = "flatten-plugin",
+        defaultPhase = LifecyclePhase.PACKAGE,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class PluginFlattener extends AbstractMojo {
+    static final String SERVICES = "META-INF/services/";
+
+    @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}.jar")
+    private File pluginJar;
+
+    @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}-flat.jar")
+    private File outputFile;
+
+    /**
+     * The classifier the flattened jar is attached with, or empty to not attach it.
+     */
+    @Parameter(defaultValue = "flat")
+    private String classifier;
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-flatten-report.txt")
+    private File reportFile;
+
+    /**
+     * Whether an entry that two jars contain with different content fails the build, rather than only being reported.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean failOnConflicts;
+
+    /**
+     * Entry names whose conflicts are expected, e.g. {@code META-INF/LICENSE.txt}, or {@code META-INF/maven/*} for every entry
+     * with that prefix. They are still listed in the report.
+     */
+    @Parameter
+    private final Set<String> allowedConflicts = new HashSet<>();
+
+    /**
+     * The timestamp of every entry, as ISO-8601 or seconds since the epoch. Defaults to 1980-02-01.
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}")
+    private String outputTimestamp;
+
+    /**
+     * The deflater level of the entries, from 0 to store every entry to 9.
+     */
+    @Parameter(defaultValue = "6")
+    private int compressionLevel;
+
+    /**
+     * The number of threads that read and compress the entries, 0 to share the available processors
+     * with the other modules the parallel builder runs at the same time.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    /**
+     * The report of the {@code analyze-bundle} goal, whose excluded jars are left out of the flattened jar.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/" + BundleAnalyzer.REPORT_FILE)
+    private File bundleReportFile;
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Component
+    private MavenProjectHelper projectHelper;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (!pluginJar.isFile()) {
+            throw new MojoExecutionException(String.format("%n%nThe plugin jar %s does not exist, package the project first.", pluginJar));
+        }
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new MojoExecutionException(String.format("%n%nThe compression level must be between 0 and 9, not %d.", compressionLevel));
+        }
+
+        List<String> names = new ArrayList<>();
+        List<File> files = new ArrayList<>();
+        names.add(PluginArtifacts.bundleFileName(project.getArtifact()));
+        files.add(pluginJar);
+        try {
+            for (Artifact artifact : PluginArtifacts.getBundledArtifacts(project, bundleReportFile)) {
+                names.add(PluginArtifacts.bundleFileName(artifact));
+                files.add(artifact.getFile());
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to read %s.", bundleReportFile), e);
+        }
+
+        LocalDateTime timestamp = PluginPackager.parseTimestamp(outputTimestamp);
+        try (ClassScanner scanner = new ClassScanner(ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()))) {
+            List<Listing> listings = scanner.map(indexes(files.size()), i -> Listing.read(files.get(i)));
+            Plan plan = plan(names, listings);
+            report(plan.conflicts);
+
+            File directory = outputFile.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+            }
+            File temporary = new File(directory, outputFile.getName() + ".tmp");
+            int entryCount;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary.toPath()), 64 * 1024);
+                    ReproducibleZipWriter writer = new ReproducibleZipWriter(out, timestamp)) {
+                for (Map.Entry<String, byte[]> generated : generateEntries(plan, listings.get(0)).entrySet()) {
+                    writer.write(ReproducibleZipWriter.prepare(generated.getKey(), generated.getValue(), compressionLevel));
+                }
+                for (int i = 0; i < files.size(); i++) {
+                    File file = files.get(i);
+                    try (ZipFile zipFile = new ZipFile(file)) {
+                        List<ReproducibleZipWriter.Entry> entries = scanner.map(plan.kept.get(i), name -> {
+                            ZipEntry entry = zipFile.getEntry(name);
+                            try (InputStream in = zipFile.getInputStream(entry)) {
+                                return ReproducibleZipWriter.prepare(name, readAll(in), entry.isDirectory() ? Deflater.NO_COMPRESSION : compressionLevel);
+                            }
+                        });
+                        for (ReproducibleZipWriter.Entry entry : entries) {
+                            writer.write(entry);
+                        }
+                    }
+                }
+                entryCount = plan.entryCount();
+            }
+            if (PluginPackager.hasSameContent(temporary, outputFile)) {
+                getLog().info(String.format("%s is up to date", outputFile));
+            }
+            else {
+                Files.move(temporary.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                getLog().info(String.format("Flattened %d jars into %s: %d entries, %d merged services files, %d identical duplicates dropped, %d conflicts",
+                        files.size(), outputFile, entryCount, plan.services.size(), plan.identicalDuplicates, plan.conflicts.size()));
+            }
+            Files.deleteIfExists(temporary.toPath());
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", outputFile), e);
+        }
+
+        if (!classifier.isEmpty()) {
+            projectHelper.attachArtifact(project, "jar", classifier, outputFile);
+        }
+    }
+
+    /**
+     * Decides which entry of which jar goes into the flattened jar, first one wins.
+     */
+    private static Plan plan(List<String> names, List<Listing> listings)
+    {
+        Plan plan = new Plan();
+        Map<String, Integer> owners = new HashMap<>();
+        Map<String, Listing.Item> items = new HashMap<>();
+        for (int i = 0; i < listings.size(); i++) {
+            Listing listing = listings.get(i);
+            List<String> kept = new ArrayList<>();
+            plan.multiRelease |= listing.multiRelease;
+            for (Listing.Item item : listing.items) {
+                String name = item.name;
+                if (isDropped(name)) {
+                    continue;
+                }
+                if (listing.services.containsKey(name)) {
+                    plan.services.computeIfAbsent(name, key -> new LinkedHashSet<>()).addAll(listing.services.get(name));
+                    continue;
+                }
+                Integer owner = owners.putIfAbsent(name, i);
+                if (owner == null) {
+                    items.put(name, item);
+                    kept.add(name);
+                    String className = PluginArtifacts.toClassName(name);
+                    if (className != null) {
+                        plan.classes.add(className);
+                    }
+                }
+                else if (item.directory || items.get(name).hasSameContent(item)) {
+                    plan.identicalDuplicates++;
+                }
+                else {
+                    plan.conflicts.add(new Conflict(name, names.get(owner), names.get(i)));
+                }
+            }
+            plan.kept.add(kept);
+        }
+        return plan;
+    }
+
+    /**
+     * Entries that are only valid in the jar they came from, or that the flattened jar gets its own of.
+     */
+    private static boolean isDropped(String name)
+    {
+        if (name.equals(JarFile.MANIFEST_NAME) || name.equals("META-INF/INDEX.LIST") || name.equals(PluginIndex.RESOURCE)
+                || name.equals(LibraryManifest.RESOURCE) || name.equals("module-info.class") || name.endsWith("/module-info.class")) {
+            return true;
+        }
+        if (name.startsWith("META-INF/") && name.indexOf('/', "META-INF/".length()) < 0) {
+            String upper = name.toUpperCase();
+            return upper.endsWith(".SF") || upper.endsWith(".RSA") || upper.endsWith(".DSA") || upper.endsWith(".EC") || upper.startsWith("META-INF/SIG-");
+        }
+        return false;
+    }
+
+    /**
+     * @return the manifest, the merged services files and the plugin index, in the order they are written
+     */
+    private Map<String, byte[]> generateEntries(Plan plan, Listing pluginListing)
+            throws IOException
+    {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+
+        Map<String, String> attributes = new TreeMap<>();
+        if (pluginListing.manifest != null) {
+            for (Map.Entry<Object, Object> attribute : pluginListing.manifest.getMainAttributes().entrySet()) {
+                attributes.put(attribute.getKey().toString(), attribute.getValue().toString());
+            }
+        }
+        // the jars it names are inside the flattened jar now
+        attributes.remove(Attributes.Name.CLASS_PATH.toString());
+        attributes.remove(Attributes.Name.MANIFEST_VERSION.toString());
+        if (plan.multiRelease) {
+            attributes.put("Multi-Release", "true");
+        }
+        entries.put(JarFile.MANIFEST_NAME, writeManifest(attributes));
+
+        for (Map.Entry<String, Set<String>> service : new TreeMap<>(plan.services).entrySet()) {
+            StringBuilder content = new StringBuilder();
+            for (String implementation : service.getValue()) {
+                content.append(implementation).append('\n');
+            }
+            entries.put(service.getKey(), content.toString().getBytes(UTF_8));
+        }
+
+        PluginIndex.Builder index = PluginIndex.builder();
+        if (pluginListing.pluginIndex != null) {
+            index.pluginClassName(pluginListing.pluginIndex.getPluginClassName());
+            index.spiInterfaceName(pluginListing.pluginIndex.getSpiInterfaceName());
+            for (Map.Entry<String, List<String>> service : pluginListing.pluginIndex.getServices().entrySet()) {
+                for (String implementation : service.getValue()) {
+                    index.addService(service.getKey(), implementation);
+                }
+            }
+        }
+        index.addJar(outputFile.getName());
+        for (String className : plan.classes) {
+            index.addClass(outputFile.getName(), className);
+        }
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        index.build().write(indexBytes);
+        entries.put(PluginIndex.RESOURCE, indexBytes.toByteArray());
+        return entries;
+    }
+
+    /**
+     * Writes the main attributes sorted by name, as {@link Manifest#write} keeps them in hash order on Java 8.
+     */
+    private static byte[] writeManifest(Map<String, String> attributes)
+    {
+        StringBuilder manifest = new StringBuilder();
+        appendManifestLine(manifest, Attributes.Name.MANIFEST_VERSION + ": 1.0");
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            appendManifestLine(manifest, attribute.getKey() + ": " + attribute.getValue());
+        }
+        manifest.append("\r\n");
+        return manifest.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Appends the line, continued on lines starting with a space so that none is longer than 72 bytes.
+     */
+    private static void appendManifestLine(StringBuilder manifest, String line)
+    {
+        int bytes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            int length = String.valueOf(c).getBytes(UTF_8).length;
+            if (bytes + length > 72) {
+                manifest.append("\r\n ");
+                bytes = 1;
+            }
+            manifest.append(c);
+            bytes += length;
+        }
+        manifest.append("\r\n");
+    }
+
+    private void report(List<Conflict> conflicts)
+            throws IOException, MojoExecutionException
+    {
+        File directory = reportFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+        Map<String, List<String>> byJars = new LinkedHashMap<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile.toPath(), UTF_8)) {
+            writer.write("entry\tkept\tdropped");
+            writer.newLine();
+            for (Conflict conflict : conflicts) {
+                writer.write(conflict.name + "\t" + conflict.kept + "\t" + conflict.dropped);
+                writer.newLine();
+                if (!isAllowed(conflict.name)) {
+                    byJars.computeIfAbsent(conflict.kept + " and " + conflict.dropped, key -> new ArrayList<>()).add(conflict.name);
+                }
+            }
+        }
+        for (Map.Entry<String, List<String>> jars : byJars.entrySet()) {
+            String message = String.format("Dolphinscheduler plugin dependencies %s contain %d different entries of the same name, e.g. %s. Only the first one is in the flattened jar, see %s",
+                    jars.getKey(), jars.getValue().size(), jars.getValue().get(0), reportFile);
+            if (failOnConflicts) {
+                throw new MojoExecutionException(String.format("%n%n%s", message));
+            }
+            getLog().warn(message);
+        }
+    }
+
+    private boolean isAllowed(String name)
+    {
+        for (String pattern : allowedConflicts) {
+            if (pattern.endsWith("*") ? name.startsWith(pattern.substring(0, pattern.length() - 1)) : name.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Integer> indexes(int size)
+    {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    private static byte[] readAll(InputStream in)
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * the entries of a jar as listed in its central directory, with the content of the few entries that are merged or read
+     */
+    private static final class Listing {
+        private final List<Item> items = new ArrayList<>();
+        private final Map<String, List<String>> services = new HashMap<>();
+        private Manifest manifest;
+        private boolean multiRelease;
+        private PluginIndex pluginIndex;
+
+        static Listing read(File file)
+                throws IOException
+        {
+            Listing listing = new Listing();
+            try (ZipFile zipFile = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    listing.items.add(new Item(name, entry.isDirectory(), entry.getCrc(), entry.getSize()));
+                    if (name.startsWith(SERVICES) && !entry.isDirectory() && name.indexOf('/', SERVICES.length()) < 0) {
+                        listing.services.put(name, readServices(zipFile, entry));
+                    }
+                    else if (name.equals(JarFile.MANIFEST_NAME)) {
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            listing.manifest = new Manifest(in);
+                        }
+                        listing.multiRelease = "true".equalsIgnoreCase(listing.manifest.getMainAttributes().getValue("Multi-Release"));
+                    }
+                    else if (name.equals(PluginIndex.RESOURCE)) {
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            listing.pluginIndex = PluginIndex.read(in);
+                        }
+                    }
+                }
+            }
+            return listing;
+        }
+
+        /**
+         * @return the implementations the services file names, without comments and blank lines
+         */
+        private static List<String> readServices(ZipFile zipFile, ZipEntry entry)
+                throws IOException
+        {
+            List<String> implementations = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(entry), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int comment = line.indexOf('#');
+                    String implementation = (comment < 0 ? line : line.substring(0, comment)).trim();
+                    if (!implementation.isEmpty()) {
+                        implementations.add(implementation);
+                    }
+                }
+            }
+            return implementations;
+        }
+
+        private static final class Item {
+            private final String name;
+            private final boolean directory;
+            private final long crc;
+            private final long size;
+
+            Item(String name, boolean directory, long crc, long size)
+            {
+                this.name = name;
+                this.directory = directory;
+                this.crc = crc;
+                this.size = size;
+            }
+
+            boolean hasSameContent(Item other)
+            {
+                return crc == other.crc && size == other.size;
+            }
+        }
+    }
+
+    /**
+     * what goes into the flattened jar
+     */
+    private static final class Plan {
+        // the names of the entries taken from each jar, in jar order
+        private final List<List<String>> kept = new ArrayList<>();
+        private final Map<String, Set<String>> services = new HashMap<>();
+        private final List<String> classes = new ArrayList<>();
+        private final List<Conflict> conflicts = new ArrayList<>();
+        private int identicalDuplicates;
+        private boolean multiRelease;
+
+        int entryCount()
+        {
+            // the manifest, the services files and the plugin index
+            int count = services.size() + 2;
+            for (List<String> names : kept) {
+                count += names.size();
+            }
+            return count;
+        }
+    }
+
+    private static final class Conflict {
+        private final String name;
+        private final String kept;
+        private final String dropped;
+
+        Conflict(String name, String kept, String dropped)
+        {
+            this.name = name;
+            this.kept = kept;
+            this.dropped = dropped;
+        }
+    }
+}
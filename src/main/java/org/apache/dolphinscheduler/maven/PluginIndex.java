@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The index of a DolphinScheduler plugin, written at build time to {@value #RESOURCE} so that a server
+ * can learn the plugin class and resolve classes to the bundled jar that provides them without opening
+ * the jars or instantiating anything.
+ *
+ * The index is a UTF-8 text file of tab separated lines:
+ *
+ * <pre>
+ * version  1
+ * plugin   &lt;plugin class&gt;
+ * spi      &lt;SPI interface&gt;
+ * service  &lt;SPI interface&gt;  &lt;implementation&gt;...
+ * jar      &lt;file name of a bundled jar&gt;
+ * package  &lt;package&gt;  &lt;simple binary name&gt;...
+ * </pre>
+ *
+ * The {@code plugin} and {@code spi} lines name the main plugin class, the {@code service} lines every generated
+ * services file. Each {@code package} line belongs to the {@code jar} line before it and lists the classes of the package
+ * in that jar, the default package being written as an empty field. Unknown record types are ignored
+ * by the reader so that later versions can add records.
+ */
+public final class PluginIndex {
+    public static final String RESOURCE = "META-INF/dolphinscheduler/plugin.idx";
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "\t";
+
+    private final String pluginClassName;
+    private final String spiInterfaceName;
+    private final Map<String, List<String>> services;
+    private final Map<String, SortedMap<String, SortedSet<String>>> jars;
+    private volatile Map<String, String> jarsByClass;
+
+    private PluginIndex(String pluginClassName, String spiInterfaceName, Map<String, List<String>> services, Map<String, SortedMap<String, SortedSet<String>>> jars)
+    {
+        this.pluginClassName = pluginClassName;
+        this.spiInterfaceName = spiInterfaceName;
+        this.services = services;
+        this.jars = jars;
+    }
+
+    public String getPluginClassName()
+    {
+        return pluginClassName;
+    }
+
+    public String getSpiInterfaceName()
+    {
+        return spiInterfaceName;
+    }
+
+    /**
+     * @return the implementations of every SPI interface a services file was generated for
+     */
+    public Map<String, List<String>> getServices()
+    {
+        return Collections.unmodifiableMap(services);
+    }
+
+    /**
+     * @return the file names of the bundled jars, in bundle order
+     */
+    public List<String> getJars()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(jars.keySet()));
+    }
+
+    /**
+     * @return the packages the jar provides classes for, sorted
+     */
+    public List<String> getPackages(String jar)
+    {
+        SortedMap<String, SortedSet<String>> packages = jars.get(jar);
+        return packages == null ? Collections.<String>emptyList() : Collections.unmodifiableList(new ArrayList<>(packages.keySet()));
+    }
+
+    /**
+     * @return the binary names of the classes the jar provides, sorted by package and name
+     */
+    public List<String> getClasses(String jar)
+    {
+        SortedMap<String, SortedSet<String>> packages = jars.get(jar);
+        if (packages == null) {
+            return Collections.emptyList();
+        }
+        List<String> classes = new ArrayList<>();
+        for (Map.Entry<String, SortedSet<String>> entry : packages.entrySet()) {
+            for (String simpleName : entry.getValue()) {
+                classes.add(qualify(entry.getKey(), simpleName));
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * @return the first jar in bundle order that provides the class, or null if no bundled jar does
+     */
+    public String findJar(String className)
+    {
+        Map<String, String> index = jarsByClass;
+        if (index == null) {
+            index = new HashMap<>();
+            for (String jar : jars.keySet()) {
+                for (String name : getClasses(jar)) {
+                    index.putIfAbsent(name, jar);
+                }
+            }
+            jarsByClass = index;
+        }
+        return index.get(className);
+    }
+
+    /**
+     * Reads an index, e.g. {@code PluginIndex.read(classLoader.getResourceAsStream(PluginIndex.RESOURCE))}.
+     * The stream is not closed.
+     */
+    public static PluginIndex read(InputStream in)
+            throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        String line = reader.readLine();
+        if (line == null || !line.equals("version" + SEPARATOR + VERSION)) {
+            throw new IOException("Unsupported plugin index version: " + line);
+        }
+        Builder builder = new Builder();
+        String jar = null;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(SEPARATOR, -1);
+            switch (fields[0]) {
+                case "plugin":
+                    builder.pluginClassName(fields[1]);
+                    break;
+                case "spi":
+                    builder.spiInterfaceName(fields[1]);
+                    break;
+                case "service":
+                    for (int i = 2; i < fields.length; i++) {
+                        builder.addService(fields[1], fields[i]);
+                    }
+                    break;
+                case "jar":
+                    jar = fields[1];
+                    builder.addJar(jar);
+                    break;
+                case "package":
+                    if (jar == null) {
+                        throw new IOException("Package before the first jar: " + fields[1]);
+                    }
+                    for (int i = 2; i < fields.length; i++) {
+                        builder.addClass(jar, qualify(fields[1], fields[i]));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes the index. Jars keep the order they were added in, packages and classes are sorted,
+     * so equal content always gives the same bytes. The stream is not closed.
+     */
+    public void write(OutputStream out)
+            throws IOException
+    {
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        writer.write("version" + SEPARATOR + VERSION + "\n");
+        if (pluginClassName != null) {
+            writer.write("plugin" + SEPARATOR + pluginClassName + "\n");
+        }
+        if (spiInterfaceName != null) {
+            writer.write("spi" + SEPARATOR + spiInterfaceName + "\n");
+        }
+        for (Map.Entry<String, List<String>> service : services.entrySet()) {
+            writer.write("service" + SEPARATOR + service.getKey() + SEPARATOR + String.join(SEPARATOR, service.getValue()) + "\n");
+        }
+        for (Map.Entry<String, SortedMap<String, SortedSet<String>>> jar : jars.entrySet()) {
+            writer.write("jar" + SEPARATOR + jar.getKey() + "\n");
+            for (Map.Entry<String, SortedSet<String>> entry : jar.getValue().entrySet()) {
+                writer.write("package" + SEPARATOR + entry.getKey());
+                for (String simpleName : entry.getValue()) {
+                    writer.write(SEPARATOR + simpleName);
+                }
+                writer.write("\n");
+            }
+        }
+        writer.flush();
+    }
+
+    private static String qualify(String packageName, String simpleName)
+    {
+        return packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private String pluginClassName;
+        private String spiInterfaceName;
+        private final Map<String, List<String>> services = new LinkedHashMap<>();
+        private final Map<String, SortedMap<String, SortedSet<String>>> jars = new LinkedHashMap<>();
+
+        private Builder()
+        {
+        }
+
+        public Builder pluginClassName(String pluginClassName)
+        {
+            this.pluginClassName = pluginClassName;
+            return this;
+        }
+
+        public Builder spiInterfaceName(String spiInterfaceName)
+        {
+            this.spiInterfaceName = spiInterfaceName;
+            return this;
+        }
+
+        public Builder addService(String interfaceName, String implementation)
+        {
+            services.computeIfAbsent(interfaceName, key -> new ArrayList<>()).add(implementation);
+            return this;
+        }
+
+        public Builder addJar(String jar)
+        {
+            jars.computeIfAbsent(jar, key -> new TreeMap<>());
+            return this;
+        }
+
+        /**
+         * @param className the binary name, e.g. {@code org.apache.Outer$Inner}
+         */
+        public Builder addClass(String jar, String className)
+        {
+            int dot = className.lastIndexOf('.');
+            String packageName = dot < 0 ? "" : className.substring(0, dot);
+            jars.computeIfAbsent(jar, key -> new TreeMap<>())
+                    .computeIfAbsent(packageName, key -> new TreeSet<>())
+                    .add(className.substring(dot + 1));
+            return this;
+        }
+
+        public PluginIndex build()
+        {
+            Map<String, SortedMap<String, SortedSet<String>>> copy = new LinkedHashMap<>();
+            for (Map.Entry<String, SortedMap<String, SortedSet<String>>> jar : jars.entrySet()) {
+                SortedMap<String, SortedSet<String>> packages = new TreeMap<>();
+                for (Map.Entry<String, SortedSet<String>> entry : jar.getValue().entrySet()) {
+                    packages.put(entry.getKey(), new TreeSet<>(entry.getValue()));
+                }
+                copy.put(jar.getKey(), packages);
+            }
+            Map<String, List<String>> servicesCopy = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> service : services.entrySet()) {
+                servicesCopy.put(service.getKey(), Collections.unmodifiableList(new ArrayList<>(service.getValue())));
+            }
+            return new PluginIndex(pluginClassName, spiInterfaceName, servicesCopy, copy);
+        }
+    }
+}
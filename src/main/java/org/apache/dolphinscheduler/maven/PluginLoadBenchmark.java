@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * measure what it costs to load the plugin, and fail the build when it exceeds the configured thresholds
+ *
+ * Loads the plugin class of the plugin index the way a server does: from a fresh class loader over the classes and the bundled jars,
+ * whose parent only holds the SPI and the other provided dependencies, and instantiates it. Each run records the wall time,
+ * the classes both loaders defined, the growth of the metaspace and the jars the plugin loader read a class or resource from.
+ * The wall time and metaspace are medians over the runs; they are measured inside the build JVM, so they are a trend to watch
+ * rather than an absolute cost. The results go to a JSON report.
+ */
+@Mojo(name = "benchmark-plugin-load",
+        defaultPhase = LifecyclePhase.VERIFY,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class PluginLoadBenchmark extends AbstractMojo {
+    @Parameter(defaultValue = "false")
+    private boolean skipLoadBenchmark;
+
+    /**
+     * The number of fresh class loaders to load the plugin from.
+     */
+    @Parameter(defaultValue = "5")
+    private int iterations;
+
+    /**
+     * The median load time in milliseconds that fails the build, 0 for none.
+     */
+    @Parameter(defaultValue = "0")
+    private long maxLoadTimeMillis;
+
+    /**
+     * The number of classes the plugin loader defines that fails the build, 0 for none.
+     */
+    @Parameter(defaultValue = "0")
+    private int maxLoadedClasses;
+
+    /**
+     * The median metaspace growth in bytes that fails the build, 0 for none.
+     */
+    @Parameter(defaultValue = "0")
+    private long maxMetaspaceBytes;
+
+    /**
+     * The number of jars, the classes directory included, the plugin loader reads from that fails the build, 0 for none.
+     */
+    @Parameter(defaultValue = "0")
+    private int maxTouchedJars;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classesDirectory;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + PluginIndex.RESOURCE)
+    private File pluginIndexFile;
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-plugin-load.json")
+    private File reportFile;
+
+    @Parameter(defaultValue = "${project}")
+    private MavenProject project;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (skipLoadBenchmark) {
+            getLog().info("Skipping Dolphinscheduler plugin load benchmark");
+            return;
+        }
+        if (iterations < 1) {
+            throw new MojoExecutionException(String.format("%n%nThe iterations must be at least 1, not %d.", iterations));
+        }
+        String pluginClassName = readPluginClassName();
+        if (pluginClassName == null) {
+            getLog().info(String.format("Skipping Dolphinscheduler plugin load benchmark, there is no plugin class in %s", pluginIndexFile));
+            return;
+        }
+
+        Map<URL, String> pluginPath = new LinkedHashMap<>();
+        List<URL> spiPath = new ArrayList<>();
+        try {
+            pluginPath.put(classesDirectory.toURI().toURL(), "classes");
+            for (Artifact artifact : project.getArtifacts()) {
+                if (artifact.getFile() == null) {
+                    continue;
+                }
+                URL url = artifact.getFile().toURI().toURL();
+                if (PluginArtifacts.isBundled(artifact)) {
+                    pluginPath.put(url, PluginArtifacts.bundleFileName(artifact));
+                }
+                else {
+                    spiPath.add(url);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException("Failed to build the class path of the plugin.", e);
+        }
+
+        List<Run> runs = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            runs.add(load(pluginClassName, pluginPath, spiPath));
+        }
+        Run last = runs.get(runs.size() - 1);
+        double medianMillis = median(runs, run -> run.nanos) / 1_000_000.0;
+        long medianMetaspace = (long) median(runs, run -> run.metaspaceBytes);
+
+        writeReport(pluginClassName, runs, medianMillis, medianMetaspace, pluginPath);
+        getLog().info(String.format("Dolphinscheduler plugin %s loads in %.1f ms, median of %d: %d classes, %d of %d jars, %d KiB metaspace",
+                pluginClassName, medianMillis, runs.size(), last.pluginClasses, last.touched.size(), pluginPath.size(), medianMetaspace / 1024));
+
+        List<String> exceeded = new ArrayList<>();
+        if (maxLoadTimeMillis > 0 && medianMillis > maxLoadTimeMillis) {
+            exceeded.add(String.format("load time %.1f ms > %d ms", medianMillis, maxLoadTimeMillis));
+        }
+        if (maxLoadedClasses > 0 && last.pluginClasses > maxLoadedClasses) {
+            exceeded.add(String.format("loaded classes %d > %d", last.pluginClasses, maxLoadedClasses));
+        }
+        if (maxMetaspaceBytes > 0 && medianMetaspace > maxMetaspaceBytes) {
+            exceeded.add(String.format("metaspace %d bytes > %d bytes", medianMetaspace, maxMetaspaceBytes));
+        }
+        if (maxTouchedJars > 0 && last.touched.size() > maxTouchedJars) {
+            exceeded.add(String.format("touched jars %d > %d", last.touched.size(), maxTouchedJars));
+        }
+        if (!exceeded.isEmpty()) {
+            throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin %s is too expensive to load: %s. See %s",
+                    pluginClassName, String.join(", ", exceeded), reportFile));
+        }
+    }
+
+    private Run load(String pluginClassName, Map<URL, String> pluginPath, List<URL> spiPath)
+            throws MojoExecutionException
+    {
+        MemoryPoolMXBean metaspace = getMetaspace();
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        Run run = new Run();
+        long metaspaceBefore = metaspace == null ? 0 : metaspace.getUsage().getUsed();
+        long start = System.nanoTime();
+        try (CountingClassLoader spiLoader = new CountingClassLoader(spiPath, ClassLoader.getSystemClassLoader().getParent());
+                CountingClassLoader pluginLoader = new CountingClassLoader(new ArrayList<>(pluginPath.keySet()), spiLoader)) {
+            thread.setContextClassLoader(pluginLoader);
+            Class<?> pluginClass = Class.forName(pluginClassName, true, pluginLoader);
+            Constructor<?> constructor = pluginClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            constructor.newInstance();
+
+            run.nanos = System.nanoTime() - start;
+            run.metaspaceBytes = metaspace == null ? 0 : Math.max(0, metaspace.getUsage().getUsed() - metaspaceBefore);
+            run.pluginClasses = pluginLoader.loaded.get();
+            run.spiClasses = spiLoader.loaded.get();
+            run.touched = pluginLoader.touched;
+        }
+        catch (ReflectiveOperationException | LinkageError | IOException e) {
+            throw new MojoExecutionException(String.format("%n%nFailed to load Dolphinscheduler plugin %s: %s", pluginClassName, e), e);
+        }
+        finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+        return run;
+    }
+
+    private void writeReport(String pluginClassName, List<Run> runs, double medianMillis, long medianMetaspace, Map<URL, String> pluginPath)
+            throws MojoExecutionException
+    {
+        Run last = runs.get(runs.size() - 1);
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (Run run : runs) {
+            min = Math.min(min, run.nanos / 1_000_000.0);
+            max = Math.max(max, run.nanos / 1_000_000.0);
+        }
+        try {
+            File directory = reportFile.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Failed to create directory: " + directory);
+            }
+            try (Writer out = Files.newBufferedWriter(reportFile.toPath(), UTF_8);
+                    JsonWriter json = new JsonWriter(out)) {
+                json.beginObject()
+                        .name("plugin").value(pluginClassName)
+                        .name("iterations").value(runs.size())
+                        .name("loadTimeMillis").beginObject()
+                        .name("first").value(runs.get(0).nanos / 1_000_000.0)
+                        .name("median").value(medianMillis)
+                        .name("min").value(min)
+                        .name("max").value(max)
+                        .endObject()
+                        .name("loadedClasses").beginObject()
+                        .name("plugin").value(last.pluginClasses)
+                        .name("spi").value(last.spiClasses)
+                        .endObject()
+                        .name("metaspaceBytes").value(medianMetaspace)
+                        .name("touchedJars").value(last.touched.size())
+                        .name("jars").beginArray();
+                for (Map.Entry<URL, String> jar : pluginPath.entrySet()) {
+                    json.beginObject()
+                            .name("name").value(jar.getValue())
+                            .name("touched").value(last.touched.contains(jar.getKey().toString()))
+                            .endObject();
+                }
+                json.endArray().endObject();
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", reportFile), e);
+        }
+    }
+
+    private String readPluginClassName()
+            throws MojoExecutionException
+    {
+        if (!pluginIndexFile.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(pluginIndexFile.toPath())) {
+            return PluginIndex.read(in).getPluginClassName();
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to read %s.", pluginIndexFile), e);
+        }
+    }
+
+    private static MemoryPoolMXBean getMetaspace()
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().equals("Metaspace")) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    private static double median(List<Run> runs, RunValue value)
+    {
+        List<Long> values = new ArrayList<>();
+        for (Run run : runs) {
+            values.add(value.get(run));
+        }
+        Collections.sort(values);
+        int middle = values.size() / 2;
+        return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2.0;
+    }
+
+    private interface RunValue {
+        long get(Run run);
+    }
+
+    private static final class Run {
+        private long nanos;
+        private long metaspaceBytes;
+        private int pluginClasses;
+        private int spiClasses;
+        private Set<String> touched = Collections.emptySet();
+    }
+
+    /**
+     * a class loader that counts the classes it defines and records the class path entries it reads classes and resources from
+     */
+    private static final class CountingClassLoader
+            extends URLClassLoader {
+        private final AtomicInteger loaded = new AtomicInteger();
+        // the class path entries as strings, URL.equals may resolve host names
+        private final Set<String> touched = ConcurrentHashMap.newKeySet();
+
+        CountingClassLoader(List<URL> urls, ClassLoader parent)
+        {
+            super(urls.toArray(new URL[0]), parent);
+        }
+
+        @Override
+        protected Class<?> findClass(String name)
+                throws ClassNotFoundException
+        {
+            Class<?> type = super.findClass(name);
+            loaded.incrementAndGet();
+            CodeSource source = type.getProtectionDomain().getCodeSource();
+            if (source != null && source.getLocation() != null) {
+                touch(source.getLocation().toString());
+            }
+            return type;
+        }
+
+        @Override
+        public URL findResource(String name)
+        {
+            URL resource = super.findResource(name);
+            if (resource != null) {
+                String location = resource.toString();
+                if (location.startsWith("jar:") && location.contains("!/")) {
+                    location = location.substring("jar:".length(), location.indexOf("!/"));
+                }
+                touch(location);
+            }
+            return resource;
+        }
+
+        private void touch(String location)
+        {
+            for (URL root : getURLs()) {
+                String prefix = root.toString();
+                if (location.equals(prefix) || (prefix.endsWith("/") && location.startsWith(prefix))) {
+                    touched.add(prefix);
+                    return;
+                }
+            }
+        }
+    }
+}
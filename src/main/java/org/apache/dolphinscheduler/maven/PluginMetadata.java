@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The declared metadata of a DolphinScheduler plugin, written at build time to {@value #RESOURCE} next to the
+ * {@link PluginIndex}, so that a server can list plugins and what they declare without loading a class of them.
+ *
+ * The metadata is read from the bytecode of the plugin class: its public static final fields with a constant value,
+ * and the elements of its class annotations, except those of the {@code java}, {@code javax} and {@code kotlin} packages.
+ * Elements left at their default value are not in the class file and not recorded. The file is a UTF-8 properties file:
+ *
+ * <pre>
+ * version=1
+ * plugin.class=&lt;plugin class&gt;
+ * plugin.spi=&lt;SPI interface&gt;
+ * constant.&lt;field&gt;=&lt;value&gt;
+ * annotations=&lt;annotation&gt;,...
+ * annotation.&lt;annotation&gt;.&lt;element&gt;=&lt;value&gt;
+ * </pre>
+ *
+ * Enum values are written as the name of the constant, class values as the binary name, or as the descriptor for
+ * primitive and array types. An array element has a key
+ * for every item, suffixed with its index, and an element of a nested annotation a key for each of its own elements,
+ * e.g. {@code annotation.its.PluginInfo.params.0.name}. Keys are sorted, so equal metadata always gives the same bytes.
+ * Unknown keys are ignored by the reader so that later versions can add records.
+ */
+public final class PluginMetadata {
+    public static final String RESOURCE = "META-INF/dolphinscheduler/plugin.properties";
+
+    private static final String VERSION = "1";
+    private static final String CONSTANT_PREFIX = "constant.";
+    private static final String ANNOTATION_PREFIX = "annotation.";
+
+    private final String pluginClassName;
+    private final String spiInterfaceName;
+    private final Map<String, String> constants;
+    private final Map<String, Map<String, String>> annotations;
+
+    private PluginMetadata(String pluginClassName, String spiInterfaceName, Map<String, String> constants, Map<String, Map<String, String>> annotations)
+    {
+        this.pluginClassName = pluginClassName;
+        this.spiInterfaceName = spiInterfaceName;
+        this.constants = constants;
+        this.annotations = annotations;
+    }
+
+    public String getPluginClassName()
+    {
+        return pluginClassName;
+    }
+
+    public String getSpiInterfaceName()
+    {
+        return spiInterfaceName;
+    }
+
+    /**
+     * @return the values of the public constant fields of the plugin class, by field name, sorted
+     */
+    public Map<String, String> getConstants()
+    {
+        return Collections.unmodifiableMap(constants);
+    }
+
+    /**
+     * @return the value of the public constant field, or null if the plugin class has no such field
+     */
+    public String getConstant(String name)
+    {
+        return constants.get(name);
+    }
+
+    /**
+     * @return the binary names of the annotations of the plugin class, sorted
+     */
+    public List<String> getAnnotationNames()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(annotations.keySet()));
+    }
+
+    public boolean hasAnnotation(String annotationName)
+    {
+        return annotations.containsKey(annotationName);
+    }
+
+    /**
+     * @return the explicitly given elements of the annotation by their key, e.g. {@code name} or {@code params.0.name},
+     * empty for a marker annotation and null if the plugin class is not annotated with it
+     */
+    public Map<String, String> getAnnotation(String annotationName)
+    {
+        Map<String, String> elements = annotations.get(annotationName);
+        return elements == null ? null : Collections.unmodifiableMap(elements);
+    }
+
+    /**
+     * Reads the metadata, e.g. {@code PluginMetadata.read(classLoader.getResourceAsStream(PluginMetadata.RESOURCE))}.
+     * The stream is not closed.
+     */
+    public static PluginMetadata read(InputStream in)
+            throws IOException
+    {
+        Properties properties = new Properties();
+        properties.load(new InputStreamReader(in, UTF_8));
+        String version = properties.getProperty("version");
+        if (!VERSION.equals(version)) {
+            throw new IOException("Unsupported plugin metadata version: " + version);
+        }
+        Builder builder = new Builder()
+                .pluginClassName(properties.getProperty("plugin.class"))
+                .spiInterfaceName(properties.getProperty("plugin.spi"));
+        List<String> annotationNames = new ArrayList<>();
+        String names = properties.getProperty("annotations", "");
+        if (!names.isEmpty()) {
+            annotationNames.addAll(Arrays.asList(names.split(",")));
+        }
+        for (String annotationName : annotationNames) {
+            builder.addAnnotation(annotationName);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key);
+            if (key.startsWith(CONSTANT_PREFIX)) {
+                builder.addConstant(key.substring(CONSTANT_PREFIX.length()), value);
+            }
+            else if (key.startsWith(ANNOTATION_PREFIX)) {
+                String annotationName = findAnnotation(annotationNames, key);
+                if (annotationName == null) {
+                    throw new IOException("Element of an unknown annotation: " + key);
+                }
+                builder.addAnnotationElement(annotationName, key.substring(ANNOTATION_PREFIX.length() + annotationName.length() + 1), value);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the metadata in the jar, or null if the jar has none, e.g. because it was built by an older plugin version
+     */
+    public static PluginMetadata readFromJar(File jar)
+            throws IOException
+    {
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            ZipEntry entry = zipFile.getEntry(RESOURCE);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                return read(in);
+            }
+        }
+    }
+
+    /**
+     * @return the longest annotation name the key is an element of, as a package can be named like an annotation
+     */
+    private static String findAnnotation(List<String> annotationNames, String key)
+    {
+        String found = null;
+        for (String annotationName : annotationNames) {
+            if (key.startsWith(ANNOTATION_PREFIX + annotationName + ".") && (found == null || annotationName.length() > found.length())) {
+                found = annotationName;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes the metadata with sorted keys, and without the timestamp {@link Properties#store} adds.
+     * The stream is not closed.
+     */
+    public void write(OutputStream out)
+            throws IOException
+    {
+        SortedMap<String, String> properties = new TreeMap<>();
+        properties.put("version", VERSION);
+        if (pluginClassName != null) {
+            properties.put("plugin.class", pluginClassName);
+        }
+        if (spiInterfaceName != null) {
+            properties.put("plugin.spi", spiInterfaceName);
+        }
+        for (Map.Entry<String, String> constant : constants.entrySet()) {
+            properties.put(CONSTANT_PREFIX + constant.getKey(), constant.getValue());
+        }
+        if (!annotations.isEmpty()) {
+            properties.put("annotations", String.join(",", annotations.keySet()));
+        }
+        for (Map.Entry<String, Map<String, String>> annotation : annotations.entrySet()) {
+            for (Map.Entry<String, String> element : annotation.getValue().entrySet()) {
+                properties.put(ANNOTATION_PREFIX + annotation.getKey() + "." + element.getKey(), element.getValue());
+            }
+        }
+
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            writer.write(escape(property.getKey(), true) + "=" + escape(property.getValue(), false) + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Escapes a key or value the way {@link Properties#load(java.io.Reader)} reads it back.
+     */
+    private static String escape(String text, boolean key)
+    {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    sb.append('\\').append(c);
+                    break;
+                case ' ':
+                    // spaces inside a value are read as they are, all others would end a key or be trimmed
+                    sb.append(key || i == 0 ? "\\ " : " ");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private String pluginClassName;
+        private String spiInterfaceName;
+        private final Map<String, String> constants = new TreeMap<>();
+        private final Map<String, Map<String, String>> annotations = new TreeMap<>();
+
+        private Builder()
+        {
+        }
+
+        public Builder pluginClassName(String pluginClassName)
+        {
+            this.pluginClassName = pluginClassName;
+            return this;
+        }
+
+        public Builder spiInterfaceName(String spiInterfaceName)
+        {
+            this.spiInterfaceName = spiInterfaceName;
+            return this;
+        }
+
+        public Builder addConstant(String name, String value)
+        {
+            constants.put(name, value);
+            return this;
+        }
+
+        /**
+         * Adds an annotation, which has no elements until they are added, like a marker annotation.
+         */
+        public Builder addAnnotation(String annotationName)
+        {
+            annotations.computeIfAbsent(annotationName, key -> new TreeMap<>());
+            return this;
+        }
+
+        /**
+         * @param element the key of the element, e.g. {@code name} or {@code params.0.name}
+         */
+        public Builder addAnnotationElement(String annotationName, String element, String value)
+        {
+            annotations.computeIfAbsent(annotationName, key -> new TreeMap<>()).put(element, value);
+            return this;
+        }
+
+        public PluginMetadata build()
+        {
+            Map<String, Map<String, String>> copy = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, String>> annotation : annotations.entrySet()) {
+                copy.put(annotation.getKey(), new TreeMap<>(annotation.getValue()));
+            }
+            return new PluginMetadata(pluginClassName, spiInterfaceName, new TreeMap<>(constants), copy);
+        }
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * package the plugin jar and its bundled dependencies into a reproducible zip, without provisio
+ *
+ * Jars that are compressed already are stored, everything else is deflated, all entries are checksummed and compressed
+ * in parallel, and the plugin jar, the entry most likely to change, is written last. An archive with the same bytes as
+ * the existing one is not replaced, so its modification time stays as it was for rsync and build caches.
+ *
+ * When the previous archive is still as the packager left it, it is updated in place: the entries before the first changed one
+ * are kept and only the rest is written again, which gives the same bytes as a full build.
+ *
+ * With {@code sharedLibraries} the archive is thin: instead of the bundled jars it carries a {@link LibraryManifest}
+ * that names them by content hash, and the {@code aggregate-libraries} goal collects the jars of all plugins into one store.
+ */
+@Mojo(name = "package-plugin",
+        defaultPhase = LifecyclePhase.PACKAGE,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class PluginPackager extends AbstractMojo {
+    // the earliest date zip tools in every time zone read back unchanged
+    private static final LocalDateTime DEFAULT_TIMESTAMP = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+    @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}.jar")
+    private File pluginJar;
+
+    @Parameter(defaultValue = "${project.build.directory}/${project.artifactId}-${project.version}.zip")
+    private File outputFile;
+
+    /**
+     * The timestamp of every entry, as ISO-8601 or seconds since the epoch, see
+     * <a href="https://maven.apache.org/guides/mini/guide-reproducible-builds.html">reproducible builds</a>.
+     * Defaults to 1980-02-01.
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}")
+    private String outputTimestamp;
+
+    /**
+     * The deflater level of the entries that are not compressed already, from 0 to store every entry to 9.
+     */
+    @Parameter(defaultValue = "6")
+    private int compressionLevel;
+
+    /**
+     * The number of threads that checksum and compress the entries, 0 to share the available processors
+     * with the other modules the parallel builder runs at the same time.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    /**
+     * Whether to update the archive of the previous build in place, rewriting only the entries from the first changed one on.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean incremental;
+
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-package.state")
+    private File stateFile;
+
+    /**
+     * Whether to leave the bundled jars out of the archive and refer to them by content hash,
+     * for a distribution that keeps every library once in a shared store.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean sharedLibraries;
+
+    /**
+     * The library manifest with the files the libraries were hashed from, read by the aggregator and reused by the next build.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/" + LibraryManifest.BUILD_FILE)
+    private File libraryManifestFile;
+
+    /**
+     * The report of the {@code analyze-bundle} goal, whose excluded jars are left out of the archive.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/" + BundleAnalyzer.REPORT_FILE)
+    private File bundleReportFile;
+
+    @Parameter(defaultValue = "${project}")
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    // the entries generated in memory by their index, the others are copied from their file
+    private final Map<Integer, byte[]> contents = new HashMap<>();
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (!pluginJar.isFile()) {
+            throw new MojoExecutionException(String.format("%n%nThe plugin jar %s does not exist, package the project first.", pluginJar));
+        }
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new MojoExecutionException(String.format("%n%nThe compression level must be between 0 and 9, not %d.", compressionLevel));
+        }
+
+        List<Artifact> bundled;
+        try {
+            bundled = PluginArtifacts.getBundledArtifacts(project, bundleReportFile);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to read %s.", bundleReportFile), e);
+        }
+        for (Artifact artifact : bundled) {
+            if (!artifact.getFile().isFile()) {
+                throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s:%s is not packaged: %s. Build it to its jar before packaging the plugin.",
+                        artifact.getGroupId(), artifact.getArtifactId(), artifact.getFile()));
+            }
+        }
+
+        LocalDateTime timestamp = parseTimestamp(outputTimestamp);
+        PackageState previousState = incremental ? PackageState.load(stateFile) : null;
+        try (ClassScanner scanner = new ClassScanner(ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()))) {
+            List<String> names = new ArrayList<>();
+            List<File> files = new ArrayList<>();
+            if (sharedLibraries) {
+                // the manifest file in the build directory stands in for the entry, it only changes when the libraries do
+                contents.put(names.size(), writeLibraryManifest(bundled, scanner));
+                project.setContextValue(LibraryManifest.BUILD_FILE, libraryManifestFile);
+                names.add(LibraryManifest.RESOURCE);
+                files.add(libraryManifestFile);
+            }
+            else {
+                libraryManifestFile.delete();
+                for (Artifact artifact : bundled) {
+                    names.add(PluginArtifacts.bundleFileName(artifact));
+                    files.add(artifact.getFile());
+                }
+            }
+            names.add(PluginArtifacts.bundleFileName(project.getArtifact()));
+            files.add(pluginJar);
+
+            if (previousState == null
+                    || !previousState.describes(outputFile, timestamp.toString(), compressionLevel)
+                    || !updateArchive(previousState, names, files, timestamp, scanner)) {
+                writeArchive(names, files, timestamp, scanner);
+            }
+        }
+        catch (IOException e) {
+            // an archive that failed half way through an update must not be taken for a complete one
+            stateFile.delete();
+            throw new MojoExecutionException(String.format("Failed to write %s.", outputFile), e);
+        }
+
+        if ("zip".equals(project.getArtifact().getArtifactHandler().getExtension())) {
+            project.getArtifact().setFile(outputFile);
+        }
+    }
+
+    private void writeArchive(List<String> names, List<File> files, LocalDateTime timestamp, ClassScanner scanner)
+            throws IOException, MojoExecutionException
+    {
+        List<ReproducibleZipWriter.Entry> entries = scanner.map(indexes(0, files.size()),
+                i -> prepare(names, files, i));
+
+        File directory = outputFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+        }
+        stateFile.delete();
+        File temporary = new File(directory, outputFile.getName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary.toPath()), 64 * 1024);
+                ReproducibleZipWriter writer = new ReproducibleZipWriter(out, timestamp)) {
+            for (ReproducibleZipWriter.Entry entry : entries) {
+                writer.write(entry);
+            }
+        }
+        if (hasSameContent(temporary, outputFile)) {
+            getLog().info(String.format("%s is up to date", outputFile));
+        }
+        else {
+            Files.move(temporary.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long stored = entries.stream().filter(ReproducibleZipWriter.Entry::isStored).count();
+            getLog().info(String.format("Wrote %d entries to %s, %d of them stored as they are compressed already", entries.size(), outputFile, stored));
+        }
+        Files.deleteIfExists(temporary.toPath());
+
+        PackageState state = new PackageState();
+        for (int i = 0; i < entries.size(); i++) {
+            state.addEntry(entries.get(i), files.get(i));
+        }
+        storeState(state, timestamp);
+    }
+
+    /**
+     * Rewrites the archive from the first entry whose content changed, keeping the entries before it in place.
+     * With the plugin jar last, a change to the plugin's own code rewrites a single entry.
+     *
+     * @return false if the archive has another layout and must be written from scratch
+     */
+    private boolean updateArchive(PackageState previousState, List<String> names, List<File> files, LocalDateTime timestamp, ClassScanner scanner)
+            throws IOException, MojoExecutionException
+    {
+        List<PackageState.EntryState> previousEntries = previousState.getEntries();
+        if (previousEntries.size() != names.size()) {
+            return false;
+        }
+        List<Integer> touched = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (!previousEntries.get(i).getEntry().getName().equals(names.get(i))) {
+                return false;
+            }
+            if (!previousEntries.get(i).isUpToDate(files.get(i))) {
+                touched.add(i);
+            }
+        }
+        if (touched.isEmpty()) {
+            getLog().info(String.format("%s is up to date", outputFile));
+            return true;
+        }
+
+        // a new modification time alone, e.g. of a rebuilt but equal jar, does not change the entry
+        Map<Integer, ReproducibleZipWriter.Entry> prepared = new HashMap<>();
+        List<ReproducibleZipWriter.Entry> touchedEntries = scanner.map(touched,
+                i -> prepare(names, files, i));
+        int first = names.size();
+        for (int i = 0; i < touched.size(); i++) {
+            int index = touched.get(i);
+            prepared.put(index, touchedEntries.get(i));
+            if (index < first && !touchedEntries.get(i).hasSameContent(previousEntries.get(index).getEntry())) {
+                first = index;
+            }
+        }
+
+        PackageState state = new PackageState();
+        for (int i = 0; i < first; i++) {
+            state.addEntry(previousEntries.get(i).getEntry(), files.get(i));
+        }
+        if (first == names.size()) {
+            getLog().info(String.format("%s is up to date", outputFile));
+            storeState(state, timestamp);
+            return true;
+        }
+
+        List<Integer> untouched = new ArrayList<>();
+        for (int i = first + 1; i < names.size(); i++) {
+            if (!prepared.containsKey(i)) {
+                untouched.add(i);
+            }
+        }
+        List<ReproducibleZipWriter.Entry> untouchedEntries = scanner.map(untouched,
+                i -> prepare(names, files, i));
+        for (int i = 0; i < untouched.size(); i++) {
+            prepared.put(untouched.get(i), untouchedEntries.get(i));
+        }
+
+        List<ReproducibleZipWriter.Entry> kept = new ArrayList<>();
+        for (int i = 0; i < first; i++) {
+            kept.add(previousEntries.get(i).getEntry());
+        }
+        long offset = previousEntries.get(first).getEntry().getOffset();
+        stateFile.delete();
+        try (RandomAccessFile archive = new RandomAccessFile(outputFile, "rw")) {
+            archive.setLength(offset);
+            archive.seek(offset);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(archive.getChannel()), 64 * 1024);
+            try (ReproducibleZipWriter writer = new ReproducibleZipWriter(out, timestamp, kept, offset)) {
+                for (int i = first; i < names.size(); i++) {
+                    writer.write(prepared.get(i));
+                    state.addEntry(prepared.get(i), files.get(i));
+                }
+            }
+        }
+        getLog().info(String.format("Updated %d of %d entries of %s from %s on", names.size() - first, names.size(), outputFile, names.get(first)));
+        storeState(state, timestamp);
+        return true;
+    }
+
+    /**
+     * Hashes the bundled jars, reusing the hashes of the previous build for unchanged files,
+     * and rewrites the manifest file if the libraries changed.
+     *
+     * @return the manifest as it goes into the archive
+     */
+    private byte[] writeLibraryManifest(List<Artifact> bundled, ClassScanner scanner)
+            throws IOException
+    {
+        LibraryManifest previous = LibraryManifest.readIfPresent(libraryManifestFile);
+        Map<File, LibraryManifest.Library> previousLibraries = new HashMap<>();
+        if (previous != null) {
+            for (LibraryManifest.Library library : previous.getLibraries()) {
+                previousLibraries.put(library.getSource(), library);
+            }
+        }
+        List<LibraryManifest.Library> libraries = scanner.map(bundled, artifact -> {
+            File file = artifact.getFile().getAbsoluteFile();
+            LibraryManifest.Library library = previousLibraries.get(file);
+            String sha256 = library != null && library.isHashOf(file) ? library.getSha256() : LibraryManifest.sha256(file);
+            return new LibraryManifest.Library(sha256, file.length(), PluginArtifacts.bundleFileName(artifact),
+                    artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion(), file, file.lastModified());
+        });
+        LibraryManifest manifest = new LibraryManifest(libraries);
+
+        ByteArrayOutputStream withSources = new ByteArrayOutputStream();
+        manifest.write(withSources, true);
+        if (!libraryManifestFile.isFile() || !Arrays.equals(withSources.toByteArray(), Files.readAllBytes(libraryManifestFile.toPath()))) {
+            File directory = libraryManifestFile.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Failed to create directory: " + directory);
+            }
+            Files.write(libraryManifestFile.toPath(), withSources.toByteArray());
+        }
+        ByteArrayOutputStream withoutSources = new ByteArrayOutputStream();
+        manifest.write(withoutSources, false);
+        return withoutSources.toByteArray();
+    }
+
+    private ReproducibleZipWriter.Entry prepare(List<String> names, List<File> files, int index)
+            throws IOException
+    {
+        byte[] content = contents.get(index);
+        if (content != null) {
+            return ReproducibleZipWriter.prepare(names.get(index), content, compressionLevel);
+        }
+        return ReproducibleZipWriter.prepare(names.get(index), files.get(index), compressionLevel);
+    }
+
+    private void storeState(PackageState state, LocalDateTime timestamp)
+            throws IOException
+    {
+        state.setArchive(outputFile, timestamp.toString(), compressionLevel);
+        state.store(stateFile);
+    }
+
+    private static List<Integer> indexes(int from, int to)
+    {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the UTC date and time of the output timestamp, or 1980-02-01 if it is not set
+     */
+    static LocalDateTime parseTimestamp(String outputTimestamp)
+            throws MojoExecutionException
+    {
+        if (outputTimestamp == null || outputTimestamp.trim().length() < 2) {
+            // a single character disables the timestamp in maven-archiver, which a zip entry cannot do without
+            return DEFAULT_TIMESTAMP;
+        }
+        String value = outputTimestamp.trim();
+        try {
+            Instant instant = value.chars().allMatch(Character::isDigit)
+                    ? Instant.ofEpochSecond(Long.parseLong(value))
+                    : OffsetDateTime.parse(value).toInstant();
+            return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+        }
+        catch (DateTimeParseException | NumberFormatException e) {
+            throw new MojoExecutionException(String.format("%n%nInvalid outputTimestamp %s, expected ISO-8601 like 2020-01-01T00:00:00Z or seconds since the epoch.", value), e);
+        }
+    }
+
+    /**
+     * @return true if the second file exists and has the same bytes as the first
+     */
+    static boolean hasSameContent(File left, File right)
+            throws IOException
+    {
+        if (!right.isFile() || left.length() != right.length()) {
+            return false;
+        }
+        byte[] leftBuffer = new byte[64 * 1024];
+        byte[] rightBuffer = new byte[64 * 1024];
+        try (InputStream leftIn = new BufferedInputStream(Files.newInputStream(left.toPath()));
+                InputStream rightIn = new BufferedInputStream(Files.newInputStream(right.toPath()))) {
+            while (true) {
+                int read = readFully(leftIn, leftBuffer);
+                if (read != readFully(rightIn, rightBuffer)) {
+                    return false;
+                }
+                if (read == 0) {
+                    return true;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (leftBuffer[i] != rightBuffer[i]) {
+                        return false;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer)
+            throws IOException
+    {
+        int total = 0;
+        int read;
+        while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) > 0) {
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.lifecycle.LifecycleExecutor;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * watch the compiled classes and hot-deploy the plugin to a local DolphinScheduler plugin directory
+ *
+ * Run it after a build, e.g. {@code mvn package dolphinscheduler:watch -Ddolphinscheduler.deployDirectory=...}, and compile
+ * from the IDE. The plugin is deployed to {@code <deployDirectory>/<artifactId>} as the plugin jar next to its bundled jars,
+ * the layout of the packaged archive. The changes to the classes directory are collected until it stays quiet for the
+ * {@code quietPeriod}, then the {@code generate-dolphin-service-descriptor} goal runs with the configuration of the project,
+ * which updates the services file incrementally, and the plugin jar is rebuilt in memory, compressing only the changed files,
+ * and moved over the deployed one atomically.
+ *
+ * The bundled jars are deployed once, when the goal starts, by swapping in the whole directory; a changed dependency
+ * takes a restart of the goal. The archive of the {@code package} phase is left as it is.
+ */
+@Mojo(name = "watch",
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class PluginWatcher extends AbstractMojo {
+    private static final String DESCRIPTOR_GOAL = "generate-dolphin-service-descriptor";
+
+    /**
+     * The plugin directory of the local DolphinScheduler installation.
+     */
+    @Parameter(property = "dolphinscheduler.deployDirectory", required = true)
+    private File deployDirectory;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classesDirectory;
+
+    /**
+     * The milliseconds the classes directory has to stay unchanged before a batch of changes is deployed,
+     * so that a compiler writing many class files triggers a single deployment.
+     */
+    @Parameter(defaultValue = "100", property = "dolphinscheduler.quietPeriod")
+    private long quietPeriod;
+
+    /**
+     * The seconds to watch for, 0 to watch until the build is interrupted.
+     */
+    @Parameter(defaultValue = "0", property = "dolphinscheduler.watchTimeout")
+    private long watchTimeout;
+
+    /**
+     * The deflater level of the plugin jar, low by default as the jar only goes to the local disk.
+     */
+    @Parameter(defaultValue = "1")
+    private int compressionLevel;
+
+    @Parameter(defaultValue = "${project.build.outputTimestamp}")
+    private String outputTimestamp;
+
+    /**
+     * The report of the {@code analyze-bundle} goal, whose excluded jars are left out of the deployed plugin.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/" + BundleAnalyzer.REPORT_FILE)
+    private File bundleReportFile;
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor plugin;
+
+    @Component
+    private LifecycleExecutor lifecycleExecutor;
+
+    @Component
+    private BuildPluginManager pluginManager;
+
+    // the compressed entries of the plugin jar by path, kept while their file is unchanged
+    private final Map<String, CachedEntry> entries = new TreeMap<>();
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new MojoExecutionException(String.format("%n%nThe compression level must be between 0 and 9, not %d.", compressionLevel));
+        }
+        if (!classesDirectory.isDirectory()) {
+            throw new MojoExecutionException(String.format("%n%nThe classes directory %s does not exist, compile the project first.", classesDirectory));
+        }
+        LocalDateTime timestamp = PluginPackager.parseTimestamp(outputTimestamp);
+        File pluginDirectory = new File(deployDirectory, project.getArtifactId());
+        File pluginJar = new File(pluginDirectory, PluginArtifacts.bundleFileName(project.getArtifact()));
+
+        MojoExecution descriptorExecution = getDescriptorExecution();
+        generateDescriptor(descriptorExecution);
+        try {
+            updateEntries(null);
+            deployDirectory(pluginDirectory, pluginJar, writePluginJar(timestamp));
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to deploy to %s.", pluginDirectory), e);
+        }
+        getLog().info(String.format("Dolphinscheduler plugin deployed to %s, watching %s for changes", pluginDirectory, classesDirectory));
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> keys = new HashMap<>();
+            register(watchService, classesDirectory.toPath(), keys);
+            long deadline = watchTimeout > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(watchTimeout) : Long.MAX_VALUE;
+            while (System.nanoTime() < deadline) {
+                if (keys.isEmpty() && classesDirectory.isDirectory()) {
+                    // the classes directory was deleted and created again, e.g. by a clean build
+                    register(watchService, classesDirectory.toPath(), keys);
+                }
+                // wake up now and then to notice a new classes directory and the deadline
+                WatchKey key = watchService.poll(Math.min(deadline - System.nanoTime(), TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                if (key == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                Set<String> changed = new HashSet<>();
+                boolean overflow = false;
+                while (key != null) {
+                    overflow |= !collectChanges(watchService, key, keys, changed);
+                    key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS);
+                }
+                redeploy(descriptorExecution, pluginJar, overflow ? null : changed, timestamp, start);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to watch %s.", classesDirectory), e);
+        }
+        getLog().info(String.format("Dolphinscheduler plugin stopped watching %s", classesDirectory));
+    }
+
+    /**
+     * @return the descriptor goal of this plugin, configured as the project configures the plugin
+     */
+    private MojoExecution getDescriptorExecution()
+            throws MojoExecutionException
+    {
+        String task = plugin.getGroupId() + ":" + plugin.getArtifactId() + ":" + plugin.getVersion() + ":" + DESCRIPTOR_GOAL;
+        try {
+            List<MojoExecution> executions = lifecycleExecutor.calculateExecutionPlan(session, task).getMojoExecutions();
+            if (executions.size() != 1) {
+                throw new MojoExecutionException(String.format("%n%nExpected a single execution of %s, not %s.", task, executions));
+            }
+            return executions.get(0);
+        }
+        catch (MojoExecutionException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // the lifecycle executor declares an exception for every step of the plugin resolution
+            throw new MojoExecutionException(String.format("%n%nFailed to configure %s.", task), e);
+        }
+    }
+
+    private void generateDescriptor(MojoExecution execution)
+            throws MojoExecutionException
+    {
+        try {
+            pluginManager.executeMojo(session, execution);
+        }
+        catch (MojoExecutionException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new MojoExecutionException(String.format("%n%n%s failed: %s", DESCRIPTOR_GOAL, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Registers the directory and every directory below it.
+     */
+    private static void register(WatchService watchService, Path directory, Map<WatchKey, Path> keys)
+            throws IOException
+    {
+        List<Path> directories;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            directories = paths.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        for (Path path : directories) {
+            WatchKey key = path.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            keys.put(key, path);
+        }
+    }
+
+    /**
+     * Adds the paths of the events of the key, relative to the classes directory, and registers new directories.
+     *
+     * @return false if events were lost, so that any file may have changed
+     */
+    private boolean collectChanges(WatchService watchService, WatchKey key, Map<WatchKey, Path> keys, Set<String> changed)
+            throws IOException
+    {
+        boolean complete = true;
+        Path directory = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                complete = false;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            changed.add(classesDirectory.toPath().relativize(path).toString().replace(File.separatorChar, '/'));
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                register(watchService, path, keys);
+                // files created before the directory was registered have no events of their own
+                complete = false;
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+        return complete;
+    }
+
+    /**
+     * Updates the descriptor and deploys the plugin jar if its content changed. A failure is logged and the watch goes on,
+     * as the next change may well fix it.
+     *
+     * @param changed the paths that changed, or null if any file may have changed
+     */
+    private void redeploy(MojoExecution descriptorExecution, File pluginJar, Set<String> changed, LocalDateTime timestamp, long start)
+    {
+        try {
+            generateDescriptor(descriptorExecution);
+            int updated = updateEntries(changed);
+            if (updated == 0) {
+                getLog().debug("Dolphinscheduler plugin classes are unchanged");
+                return;
+            }
+            deployPluginJar(pluginJar, writePluginJar(timestamp));
+            getLog().info(String.format("Dolphinscheduler plugin deployed %d changed files to %s in %d ms",
+                    updated, pluginJar, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+        catch (MojoExecutionException | IOException e) {
+            getLog().error(String.format("Dolphinscheduler plugin was not deployed: %s", e.getMessage().trim()));
+        }
+    }
+
+    /**
+     * Compresses the files of the classes directory that are new, changed on disk or reported as changed,
+     * and forgets the deleted ones. A file written again with the same content does not count as changed.
+     *
+     * @param changed the paths that changed, or null to check every file
+     * @return the number of entries whose content changed
+     */
+    private int updateEntries(Set<String> changed)
+            throws IOException
+    {
+        Set<String> paths = new HashSet<>();
+        int updated = 0;
+        if (classesDirectory.isDirectory()) {
+            for (String name : FileUtils.getFileNames(classesDirectory, "**", null, false)) {
+                String path = name.replace(File.separatorChar, '/');
+                paths.add(path);
+                File file = new File(classesDirectory, name);
+                CachedEntry cached = entries.get(path);
+                if (cached != null && changed != null && !changed.contains(path) && cached.isUpToDate(file)) {
+                    continue;
+                }
+                ReproducibleZipWriter.Entry entry = ReproducibleZipWriter.prepare(path, Files.readAllBytes(file.toPath()), compressionLevel);
+                if (cached == null || !cached.entry.hasSameContent(entry)) {
+                    updated++;
+                }
+                entries.put(path, new CachedEntry(entry, file.length(), file.lastModified()));
+            }
+        }
+        int before = entries.size();
+        entries.keySet().retainAll(paths);
+        return updated + before - entries.size();
+    }
+
+    private byte[] writePluginJar(LocalDateTime timestamp)
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReproducibleZipWriter writer = new ReproducibleZipWriter(out, timestamp)) {
+            for (CachedEntry cached : entries.values()) {
+                writer.write(cached.entry);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Deploys the bundled jars and the plugin jar to a new directory and swaps it in for the deployed one,
+     * which leaves the plugin missing for the moment between two renames, but never half written.
+     */
+    private void deployDirectory(File pluginDirectory, File pluginJar, byte[] content)
+            throws IOException, MojoExecutionException
+    {
+        if (!deployDirectory.isDirectory() && !deployDirectory.mkdirs()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", deployDirectory));
+        }
+        File temporary = new File(deployDirectory, "." + pluginDirectory.getName() + ".tmp");
+        FileUtils.deleteDirectory(temporary);
+        if (!temporary.mkdirs()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", temporary));
+        }
+        for (Artifact artifact : PluginArtifacts.getBundledArtifacts(project, bundleReportFile)) {
+            if (!artifact.getFile().isFile()) {
+                throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s:%s is not packaged: %s. Build it to its jar before watching the plugin.",
+                        artifact.getGroupId(), artifact.getArtifactId(), artifact.getFile()));
+            }
+            Files.copy(artifact.getFile().toPath(), new File(temporary, PluginArtifacts.bundleFileName(artifact)).toPath());
+        }
+        Files.write(new File(temporary, pluginJar.getName()).toPath(), content);
+
+        File previous = new File(deployDirectory, "." + pluginDirectory.getName() + ".old");
+        FileUtils.deleteDirectory(previous);
+        if (pluginDirectory.exists()) {
+            Files.move(pluginDirectory.toPath(), previous.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(temporary.toPath(), pluginDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        FileUtils.deleteDirectory(previous);
+    }
+
+    /**
+     * Writes the plugin jar next to the deployed one and moves it over it, so that a server never reads a half written jar.
+     */
+    private static void deployPluginJar(File pluginJar, byte[] content)
+            throws IOException
+    {
+        File temporary = new File(pluginJar.getParentFile(), "." + pluginJar.getName() + ".tmp");
+        Files.write(temporary.toPath(), content);
+        Files.move(temporary.toPath(), pluginJar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class CachedEntry {
+        private final ReproducibleZipWriter.Entry entry;
+        private final long size;
+        private final long lastModified;
+
+        private CachedEntry(ReproducibleZipWriter.Entry entry, long size, long lastModified)
+        {
+            this.entry = entry;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        private boolean isUpToDate(File file)
+        {
+            return file.length() == size && file.lastModified() == lastModified;
+        }
+    }
+}
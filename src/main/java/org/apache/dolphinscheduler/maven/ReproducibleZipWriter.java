@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Writes a zip archive whose bytes only depend on the names, order and content of its entries.
+ *
+ * Every entry gets the same timestamp, no extra fields and no file attributes, so that equal inputs
+ * give equal archives on every machine and in every time zone. The content of an entry is prepared
+ * up front, see {@link #prepare(String, File, int)}, which is thread safe, so entries can be
+ * checksummed and compressed in parallel and then written in order.
+ *
+ * Since the layout is fixed, an archive can be updated by keeping the entries before the first changed one,
+ * truncating it there and writing the rest, see {@link #ReproducibleZipWriter(OutputStream, LocalDateTime, List, long)}.
+ */
+final class ReproducibleZipWriter
+        implements Closeable {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int UTF8_NAMES = 0x0800;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private final OutputStream out;
+    private final int dosTime;
+    private final int dosDate;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private long offset;
+
+    /**
+     * @param timestamp the local date and time of every entry, within the range of DOS dates, 1980 to 2107
+     */
+    ReproducibleZipWriter(OutputStream out, LocalDateTime timestamp)
+    {
+        this(out, timestamp, new ArrayList<>(), 0);
+    }
+
+    /**
+     * Continues an archive written with the same timestamp.
+     *
+     * @param writtenEntries the entries the archive keeps, see {@link Entry#restore}
+     * @param offset the end of the last kept entry, where the output stream writes to
+     */
+    ReproducibleZipWriter(OutputStream out, LocalDateTime timestamp, List<Entry> writtenEntries, long offset)
+    {
+        if (timestamp.getYear() < 1980 || timestamp.getYear() > 2107) {
+            throw new IllegalArgumentException("Timestamp out of the range of zip archives: " + timestamp);
+        }
+        this.out = out;
+        this.dosTime = timestamp.getHour() << 11 | timestamp.getMinute() << 5 | timestamp.getSecond() >> 1;
+        this.dosDate = (timestamp.getYear() - 1980) << 9 | timestamp.getMonthValue() << 5 | timestamp.getDayOfMonth();
+        for (Entry entry : writtenEntries) {
+            entries.add(entry);
+            names.add(entry.name);
+        }
+        this.offset = offset;
+    }
+
+    /**
+     * Checksums the file, and deflates it unless it is an archive that is compressed already.
+     *
+     * @param level the deflater level, or {@link Deflater#NO_COMPRESSION} to store every file
+     */
+    static Entry prepare(String name, File file, int level)
+            throws IOException
+    {
+        if (file.length() > MAX_SIZE) {
+            throw new IOException("Too large for a zip archive without zip64 extensions: " + file);
+        }
+        if (level == Deflater.NO_COMPRESSION || isCompressedArchive(file)) {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+            return new Entry(name, STORED, crc.getValue(), file.length(), file.length(), file, null);
+        }
+
+        return prepare(name, Files.readAllBytes(file.toPath()), level);
+    }
+
+    /**
+     * Checksums and deflates content generated in memory.
+     *
+     * @param level the deflater level, or {@link Deflater#NO_COMPRESSION} to store the content
+     */
+    static Entry prepare(String name, byte[] content, int level)
+            throws IOException
+    {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if (level == Deflater.NO_COMPRESSION) {
+            return new Entry(name, STORED, crc.getValue(), content.length, content.length, null, content.clone());
+        }
+        Deflater deflater = new Deflater(level, true);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2 + 64);
+        try (DeflaterOutputStream deflating = new DeflaterOutputStream(compressed, deflater)) {
+            deflating.write(content);
+        }
+        finally {
+            deflater.end();
+        }
+        return new Entry(name, DEFLATED, crc.getValue(), content.length, compressed.size(), null, compressed.toByteArray());
+    }
+
+    /**
+     * @return true if the file is a zip archive with at least one deflated entry, which another deflate would not shrink
+     */
+    static boolean isCompressedArchive(File file)
+    {
+        String name = file.getName();
+        if (!name.endsWith(".jar") && !name.endsWith(".zip")) {
+            return false;
+        }
+        try (ZipFile zipFile = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                if (entries.nextElement().getMethod() == ZipEntry.DEFLATED) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        catch (IOException e) {
+            // not a readable archive, compress it like any other file
+            return false;
+        }
+    }
+
+    void write(Entry entry)
+            throws IOException
+    {
+        if (!names.add(entry.name)) {
+            throw new IOException("Duplicate entry " + entry.name);
+        }
+        if (entries.size() == MAX_ENTRIES) {
+            throw new IOException("Too many entries for a zip archive without zip64 extensions");
+        }
+        if (entry.file == null && entry.compressed == null) {
+            throw new IOException("No content for " + entry.name);
+        }
+        long compressedSize = entry.compressedSize;
+        if (offset > MAX_SIZE || compressedSize > MAX_SIZE) {
+            throw new IOException("Too large for a zip archive without zip64 extensions: " + entry.name);
+        }
+        entry.offset = offset;
+        byte[] name = entry.name.getBytes(UTF_8);
+
+        writeInt(LOCAL_HEADER);
+        writeShort(entry.method == STORED ? 10 : 20);
+        writeShort(UTF8_NAMES);
+        writeShort(entry.method);
+        writeShort(dosTime);
+        writeShort(dosDate);
+        writeInt((int) entry.crc);
+        writeInt((int) compressedSize);
+        writeInt((int) entry.size);
+        writeShort(name.length);
+        writeShort(0);
+        writeBytes(name, name.length);
+
+        if (entry.file != null) {
+            byte[] buffer = new byte[64 * 1024];
+            long copied = 0;
+            try (InputStream in = Files.newInputStream(entry.file.toPath())) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    writeBytes(buffer, read);
+                    copied += read;
+                }
+            }
+            if (copied != entry.size) {
+                throw new IOException("File changed while writing the archive: " + entry.file);
+            }
+        }
+        else {
+            writeBytes(entry.compressed, entry.compressed.length);
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * @return the offset of the next entry, which is the size of the archive before the central directory
+     */
+    long getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * Writes the central directory. The output stream is not closed.
+     */
+    @Override
+    public void close()
+            throws IOException
+    {
+        long centralDirectoryOffset = offset;
+        for (Entry entry : entries) {
+            byte[] name = entry.name.getBytes(UTF_8);
+            writeInt(CENTRAL_HEADER);
+            writeShort(20);
+            writeShort(entry.method == STORED ? 10 : 20);
+            writeShort(UTF8_NAMES);
+            writeShort(entry.method);
+            writeShort(dosTime);
+            writeShort(dosDate);
+            writeInt((int) entry.crc);
+            writeInt((int) entry.compressedSize);
+            writeInt((int) entry.size);
+            writeShort(name.length);
+            // extra field, comment, disk number, internal and external attributes
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(0);
+            writeInt((int) entry.offset);
+            writeBytes(name, name.length);
+        }
+        long centralDirectorySize = offset - centralDirectoryOffset;
+        if (centralDirectoryOffset > MAX_SIZE) {
+            throw new IOException("Too large for a zip archive without zip64 extensions");
+        }
+        writeInt(END_OF_CENTRAL_DIRECTORY);
+        writeShort(0);
+        writeShort(0);
+        writeShort(entries.size());
+        writeShort(entries.size());
+        writeInt((int) centralDirectorySize);
+        writeInt((int) centralDirectoryOffset);
+        writeShort(0);
+        out.flush();
+    }
+
+    private void writeShort(int value)
+            throws IOException
+    {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        offset += 2;
+    }
+
+    private void writeInt(int value)
+            throws IOException
+    {
+        writeShort(value & 0xFFFF);
+        writeShort((value >>> 16) & 0xFFFF);
+    }
+
+    private void writeBytes(byte[] bytes, int length)
+            throws IOException
+    {
+        out.write(bytes, 0, length);
+        offset += length;
+    }
+
+    /**
+     * an entry with its checksum, and its content in memory unless it is a stored file
+     */
+    static final class Entry {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+        private final File file;
+        private final byte[] compressed;
+        private long offset;
+
+        private Entry(String name, int method, long crc, long size, long compressedSize, File file, byte[] compressed)
+        {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.file = file;
+            this.compressed = compressed;
+        }
+
+        /**
+         * @return an entry an archive already contains at the offset, which can be kept but not written again
+         */
+        static Entry restore(String name, int method, long crc, long size, long compressedSize, long offset)
+        {
+            Entry entry = new Entry(name, method, crc, size, compressedSize, null, null);
+            entry.offset = offset;
+            return entry;
+        }
+
+        String getName()
+        {
+            return name;
+        }
+
+        int getMethod()
+        {
+            return method;
+        }
+
+        boolean isStored()
+        {
+            return method == STORED;
+        }
+
+        long getCrc()
+        {
+            return crc;
+        }
+
+        long getSize()
+        {
+            return size;
+        }
+
+        long getCompressedSize()
+        {
+            return compressedSize;
+        }
+
+        /**
+         * @return the offset of the local header in the archive, once written
+         */
+        long getOffset()
+        {
+            return offset;
+        }
+
+        /**
+         * @return true if both entries are written to the same bytes
+         */
+        boolean hasSameContent(Entry other)
+        {
+            return name.equals(other.name) && method == other.method && crc == other.crc
+                    && size == other.size && compressedSize == other.compressedSize;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+/**
+ * An SPI interface to generate a services file for, configured as
+ *
+ * <pre>
+ * &lt;serviceInterface&gt;
+ *     &lt;name&gt;org.apache.dolphinscheduler.spi.task.TaskChannelFactory&lt;/name&gt;
+ *     &lt;cardinality&gt;AT_LEAST_ONE&lt;/cardinality&gt;
+ * &lt;/serviceInterface&gt;
+ * </pre>
+ */
+public class ServiceInterface {
+
+    /**
+     * how many implementations a plugin project must have
+     */
+    public enum Cardinality {
+        EXACTLY_ONE,
+        AT_LEAST_ONE,
+        ANY
+    }
+
+    private String name;
+
+    private Cardinality cardinality = Cardinality.EXACTLY_ONE;
+
+    public ServiceInterface()
+    {
+    }
+
+    ServiceInterface(String name, Cardinality cardinality)
+    {
+        this.name = name;
+        this.cardinality = cardinality;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    public Cardinality getCardinality()
+    {
+        return cardinality;
+    }
+
+    public void setCardinality(Cardinality cardinality)
+    {
+        this.cardinality = cardinality;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " (" + cardinality + ")";
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * check that the plugin classes link against the SPI, at the version the plugin depends on and at any other version it may be deployed with
+ *
+ * The members of an SPI version are read from its jar once into a {@link SpiSignatureIndex}, kept in the {@link PluginCache},
+ * so later builds and the other modules only read that index. An SPI that is a module of the reactor is read from its classes
+ * directory on every build instead. The goal is not part of the plugin lifecycles; add it to the executions of the plugin
+ * to run it at its default phase, process-classes. Every field and method reference of the
+ * plugin classes into the SPI is then resolved against it, together with the abstract SPI methods the plugin classes
+ * have to implement. What would fail at runtime with a {@code NoSuchMethodError}, {@code NoSuchFieldError},
+ * {@code IncompatibleClassChangeError} or {@code AbstractMethodError} is reported per SPI version.
+ */
+@Mojo(name = "spi-compatibility-check",
+        defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class SpiCompatibilityChecker extends AbstractMojo {
+
+    @Parameter(defaultValue = "org.apache.dolphinscheduler")
+    private String spiGroupId;
+
+    @Parameter(defaultValue = "dolphinscheduler-spi")
+    private String spiArtifactId;
+
+    /**
+     * Further SPI versions to check against, besides the one the plugin depends on, e.g. the versions of the servers it is deployed on.
+     */
+    @Parameter(property = "dolphinscheduler.spiVersions")
+    private List<String> spiVersions;
+
+    @Parameter(defaultValue = "false")
+    private boolean skipCheckSpiCompatibility;
+
+    /**
+     * Whether incompatibilities fail the build rather than being logged as warnings.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean failOnIncompatibility;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classesDirectory;
+
+    /**
+     * Where to keep the SPI signature indexes between builds, by default {@code .dolphinscheduler} next to the local repository.
+     */
+    @Parameter(property = "dolphinscheduler.cacheDirectory")
+    private File cacheDirectory;
+
+    /**
+     * The number of threads that read and check class files, 0 to share the available processors
+     * with the other modules the parallel builder runs at the same time.
+     */
+    @Parameter(defaultValue = "0")
+    private int parallelism;
+
+    /**
+     * The phase timings and counters of the goal, as JSON, see {@link BuildMetrics}.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-spi-compatibility-metrics.json")
+    private File metricsFile;
+
+    @Parameter(defaultValue = "false")
+    private boolean skipMetrics;
+
+    /**
+     * Whether to log the metrics as a single summary line.
+     */
+    @Parameter(defaultValue = "false", property = "dolphinscheduler.logMetrics")
+    private boolean logMetrics;
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${repositorySystemSession}")
+    private RepositorySystemSession repositorySession;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Component
+    private RepositorySystem repositorySystem;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (skipCheckSpiCompatibility) {
+            getLog().info("Skipping Dolphinscheduler SPI compatibility checks");
+            return;
+        }
+
+        BuildMetrics metrics = new BuildMetrics("spi-compatibility-check",
+                project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion());
+        check(metrics);
+        if (!skipMetrics) {
+            metrics.report(metricsFile, logMetrics, getLog());
+        }
+    }
+
+    private void check(BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        List<File> classFiles;
+        try (BuildMetrics.Phase phase = metrics.phase("listClasses")) {
+            classFiles = getClassFiles();
+        }
+        metrics.count("classes", classFiles.size());
+        if (classFiles.isEmpty()) {
+            getLog().debug("No classes to check against the SPI");
+            return;
+        }
+
+        List<Artifact> spiJars;
+        try (BuildMetrics.Phase phase = metrics.phase("resolveSpiVersions")) {
+            spiJars = getSpiJars();
+        }
+
+        Map<String, List<String>> problems = new LinkedHashMap<>();
+        try (ClassScanner scanner = new ClassScanner(ClassScanner.getParallelism(parallelism, session.getRequest().getDegreeOfConcurrency()))) {
+            List<ClassApi> classes;
+            try (BuildMetrics.Phase phase = metrics.phase("readClasses")) {
+                classes = scanner.map(classFiles, file -> {
+                    try (InputStream in = Files.newInputStream(file.toPath())) {
+                        return ClassFileReader.readApi(in);
+                    }
+                });
+            }
+            Map<String, ClassApi> pluginClasses = new HashMap<>();
+            for (ClassApi api : classes) {
+                pluginClasses.put(api.getName(), api);
+            }
+
+            Map<String, Optional<ClassApi>> platformClasses = new ConcurrentHashMap<>();
+            for (Artifact spiJar : spiJars) {
+                SpiSignatureIndex index;
+                try (BuildMetrics.Phase phase = metrics.phase("loadIndex")) {
+                    index = loadIndex(spiJar, metrics);
+                }
+                if (index == null) {
+                    continue;
+                }
+                SpiLinkage linkage = new SpiLinkage(index, pluginClasses, platformClasses);
+                List<Set<String>> classProblems;
+                try (BuildMetrics.Phase phase = metrics.phase("checkReferences")) {
+                    classProblems = scanner.map(classes, api -> {
+                        Set<String> found = linkage.check(api, metrics);
+                        return found.isEmpty() ? null : found;
+                    });
+                }
+                List<String> versionProblems = new ArrayList<>();
+                for (Set<String> found : classProblems) {
+                    versionProblems.addAll(found);
+                }
+                getLog().debug(String.format("Checked %d classes against the %d classes of %s", classes.size(), index.size(), index.getSpiCoordinates()));
+                if (!versionProblems.isEmpty()) {
+                    problems.put(index.getSpiCoordinates(), versionProblems);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("%n%nFailed to read the classes in %s.", classesDirectory), e);
+        }
+        metrics.count("incompatibilities", problems.values().stream().mapToInt(List::size).sum());
+
+        if (problems.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder();
+        for (Map.Entry<String, List<String>> versionProblems : problems.entrySet()) {
+            message.append(String.format("%nDolphinscheduler plugin is not compatible with %s:%n", versionProblems.getKey()));
+            for (String problem : versionProblems.getValue()) {
+                message.append(String.format("    %s%n", problem));
+            }
+        }
+        if (failOnIncompatibility) {
+            throw new MojoExecutionException(String.format("%n%s", message));
+        }
+        getLog().warn(message.toString());
+    }
+
+    /**
+     * @return the jar of the SPI version the plugin depends on, followed by those of the further versions
+     */
+    private List<Artifact> getSpiJars()
+            throws MojoExecutionException
+    {
+        org.apache.maven.artifact.Artifact dependency = new SpiDependencyRules(spiGroupId, spiArtifactId, new HashSet<>()).getSpiArtifact(project);
+        List<Artifact> spiJars = new ArrayList<>();
+        spiJars.add(new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(), "jar", dependency.getVersion())
+                .setFile(dependency.getFile()));
+        if (spiVersions == null) {
+            return spiJars;
+        }
+        for (String version : spiVersions) {
+            if (version.trim().isEmpty() || version.trim().equals(dependency.getVersion())) {
+                continue;
+            }
+            ArtifactRequest request = new ArtifactRequest(new DefaultArtifact(spiGroupId, spiArtifactId, "jar", version.trim()),
+                    project.getRemoteProjectRepositories(), null);
+            try {
+                spiJars.add(repositorySystem.resolveArtifact(repositorySession, request).getArtifact());
+            }
+            catch (ArtifactResolutionException e) {
+                throw new MojoExecutionException(String.format("%n%nFailed to resolve %s:%s:%s to check the plugin against it.", spiGroupId, spiArtifactId, version.trim()), e);
+            }
+        }
+        return spiJars;
+    }
+
+    /**
+     * Reads the index of the SPI version from the cache directory, or extracts it from the jar and stores it there.
+     *
+     * @return the index, or null if the SPI has neither a jar nor a classes directory to read it from
+     */
+    private SpiSignatureIndex loadIndex(Artifact spiJar, BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        String coordinates = spiJar.getGroupId() + ":" + spiJar.getArtifactId() + ":" + spiJar.getBaseVersion();
+        File spiFile = spiJar.getFile();
+        if (spiFile == null || !spiFile.exists()) {
+            getLog().warn(String.format("Dolphinscheduler plugin SPI %s has no jar or classes to check against, skipping it", coordinates));
+            return null;
+        }
+        if (spiFile.isDirectory()) {
+            // the classes of an SPI module of the reactor change with every build, their index is not kept
+            return buildIndex(spiFile, coordinates, metrics);
+        }
+
+        String stamp = spiJar.isSnapshot() ? String.valueOf(spiFile.lastModified()) : null;
+        File indexFile = PluginCache.getFile(cacheDirectory, repositorySession, spiJar.getGroupId(), spiJar.getArtifactId(),
+                spiJar.getBaseVersion(), SpiSignatureIndex.EXTENSION);
+        try {
+            SpiSignatureIndex index = SpiSignatureIndex.readFromFile(indexFile, coordinates, stamp);
+            if (index != null) {
+                metrics.count("indexHits", 1);
+                getLog().debug(String.format("Read the signatures of %s from %s", coordinates, indexFile));
+                return index;
+            }
+        }
+        catch (IOException e) {
+            getLog().warn(String.format("Ignoring the unreadable SPI signature index of %s: %s", coordinates, e.getMessage()));
+        }
+
+        SpiSignatureIndex index = buildIndex(spiFile, coordinates, metrics);
+        try {
+            index.write(indexFile, stamp);
+            metrics.count("bytesWritten", indexFile.length());
+            getLog().debug(String.format("Wrote the signatures of %s to %s", coordinates, indexFile));
+        }
+        catch (IOException e) {
+            getLog().debug(String.format("Failed to write the SPI signature index %s: %s", indexFile, e.getMessage()));
+        }
+        return index;
+    }
+
+    private static SpiSignatureIndex buildIndex(File spiFile, String coordinates, BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        try {
+            SpiSignatureIndex index = SpiSignatureIndex.build(spiFile, coordinates);
+            metrics.count(spiFile.isDirectory() ? "directoriesRead" : "jarsOpened", 1);
+            return index;
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("%n%nFailed to read the classes of %s.", spiFile), e);
+        }
+    }
+
+    private List<File> getClassFiles()
+            throws MojoExecutionException
+    {
+        if (!classesDirectory.isDirectory()) {
+            return new ArrayList<>();
+        }
+        try {
+            return FileUtils.getFiles(classesDirectory, "**/*.class", null);
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to list the classes in %s.", classesDirectory), e);
+        }
+    }
+}
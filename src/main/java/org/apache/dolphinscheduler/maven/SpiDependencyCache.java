@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Caches the SPI dependency set for the whole build, shared by every module and every builder thread.
+ *
+ * The cache lives in the {@link SessionData} of the repository session, so it ends with the build.
+ * It is keyed by the SPI coordinates and the parts of the session that change the outcome of a collection.
+ * When several modules ask for the same key concurrently, one of them collects and the others wait for its result.
+ */
+final class SpiDependencyCache {
+    private static final String SESSION_KEY = SpiDependencyCache.class.getName();
+
+    private SpiDependencyCache()
+    {
+    }
+
+    /**
+     * @return the cached dependencies of the SPI artifact, collected by the loader on a miss
+     */
+    static Set<String> get(RepositorySystemSession session, Artifact spiArtifact, Log log, Callable<Set<String>> loader)
+            throws MojoExecutionException
+    {
+        ConcurrentMap<String, FutureTask<Set<String>>> cache = getCache(session);
+        String key = key(session, spiArtifact);
+
+        FutureTask<Set<String>> task = new FutureTask<>(loader);
+        FutureTask<Set<String>> cached = cache.putIfAbsent(key, task);
+        if (cached == null) {
+            log.debug("SPI dependency cache miss for " + key);
+            task.run();
+            cached = task;
+        }
+        else {
+            log.debug("SPI dependency cache hit for " + key);
+        }
+
+        try {
+            return cached.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while collecting the SPI dependencies.", e);
+        }
+        catch (ExecutionException e) {
+            // let the next module try again rather than failing the whole reactor with a cached error
+            cache.remove(key, cached);
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Failed to collect the SPI dependencies.", e.getCause());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMap<String, FutureTask<Set<String>>> getCache(RepositorySystemSession session)
+    {
+        SessionData data = session.getData();
+        while (true) {
+            Object cache = data.get(SESSION_KEY);
+            if (cache != null) {
+                return (ConcurrentMap<String, FutureTask<Set<String>>>) cache;
+            }
+            data.set(SESSION_KEY, null, new ConcurrentHashMap<String, FutureTask<Set<String>>>());
+        }
+    }
+
+    /**
+     * A snapshot SPI can change within a long running build process, so its file stamp is part of the key.
+     */
+    private static String key(RepositorySystemSession session, Artifact spiArtifact)
+    {
+        StringBuilder key = new StringBuilder()
+                .append(spiArtifact.getGroupId()).append(':')
+                .append(spiArtifact.getArtifactId()).append(':')
+                .append(spiArtifact.getType()).append(':')
+                .append(spiArtifact.getVersion());
+        File file = spiArtifact.getFile();
+        if (spiArtifact.isSnapshot() && file != null) {
+            key.append('@').append(file.lastModified());
+        }
+        key.append(" [repository=").append(session.getLocalRepository().getBasedir())
+                .append(", offline=").append(session.isOffline())
+                .append(']');
+        return key.toString();
+    }
+}
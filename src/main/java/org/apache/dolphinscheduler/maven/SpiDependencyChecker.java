@@ -18,8 +18,11 @@
 package org.apache.dolphinscheduler.maven;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.lifecycle.DefaultLifecycles;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -28,16 +31,10 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
-import org.eclipse.aether.artifact.DefaultArtifact;
-import org.eclipse.aether.collection.CollectRequest;
-import org.eclipse.aether.collection.CollectResult;
-import org.eclipse.aether.collection.DependencyCollectionException;
-import org.eclipse.aether.graph.Dependency;
-import org.eclipse.aether.graph.DependencyNode;
 
+import java.io.File;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 
 /**
@@ -46,7 +43,8 @@ import java.util.stream.Collectors;
 
 @Mojo(name = "spi-dependencies-check",
         defaultPhase = LifecyclePhase.VALIDATE,
-        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
 public class SpiDependencyChecker extends AbstractMojo {
 
     @Parameter(defaultValue = "org.apache.dolphinscheduler")
@@ -58,6 +56,34 @@ public class SpiDependencyChecker extends AbstractMojo {
     @Parameter(defaultValue = "false")
     private boolean skipCheckSpiDependencies;
 
+    /**
+     * Whether to read the SPI dependencies from a manifest inside the SPI jar or in the cache directory,
+     * and to store the result of a live collection there.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean useSpiDependencyManifest;
+
+    /**
+     * Where to keep the SPI dependency manifests between builds, by default {@code .dolphinscheduler} next to the local repository.
+     */
+    @Parameter(property = "dolphinscheduler.cacheDirectory")
+    private File cacheDirectory;
+
+    /**
+     * The phase timings and counters of the goal, as JSON, see {@link BuildMetrics}.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/dolphinscheduler-spi-check-metrics.json")
+    private File metricsFile;
+
+    @Parameter(defaultValue = "false")
+    private boolean skipMetrics;
+
+    /**
+     * Whether to log the metrics as a single summary line.
+     */
+    @Parameter(defaultValue = "false", property = "dolphinscheduler.logMetrics")
+    private boolean logMetrics;
+
     @Parameter(defaultValue = "${project}")
     private MavenProject mavenProject;
 
@@ -67,101 +93,46 @@ public class SpiDependencyChecker extends AbstractMojo {
     @Parameter(defaultValue = "${repositorySystemSession}")
     private RepositorySystemSession repositorySession;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor plugin;
+
     @Component
     private RepositorySystem repositorySystem;
 
+    @Component
+    private DefaultLifecycles lifecycles;
+
     @Override
     public void execute() throws MojoExecutionException {
         if (skipCheckSpiDependencies) {
             getLog().info("Skipping Dolphinscheduler SPI dependency checks");
             return;
         }
-
-        Set<String> spiDependencies = getTheSpiDependencies();
-        getLog().debug("SPI dependencies: " + spiDependencies);
-
-        for (Artifact artifact : mavenProject.getArtifacts()) {
-            if (isSpiArtifact(artifact)) {
-                continue;
-            }
-            String name = artifact.getGroupId() + ":" + artifact.getArtifactId();
-            if (spiDependencies.contains(name)) {
-                if (!"jar".equals(artifact.getType())) {
-                    throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s must have type 'jar'.", name));
-                }
-                if (artifact.getClassifier() != null) {
-                    throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s must not have a classifier.", name));
-                }
-                if (!"provided".equals(artifact.getScope())) {
-                    throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s must have scope 'provided'. It is part of the SPI and will be provided at runtime.", name));
-                }
-            }
-            else if ("provided".equals(artifact.getScope()) && !allowedProvidedDependencies.contains(name)) {
-                throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s must not have scope 'provided'. It is not part of the SPI and will not be available at runtime.", name));
-            }
+        if (PluginAggregator.isRequested(session, plugin, lifecycles)) {
+            getLog().info("Leaving the Dolphinscheduler SPI dependency checks to the " + PluginAggregator.GOAL + " goal");
+            return;
         }
-    }
 
-    private Set<String> getTheSpiDependencies()
-            throws MojoExecutionException
-    {
-        return getArtifactDependencies(getSpiDependency())
-                .getRoot().getChildren().stream()
-                .filter(node -> !node.getDependency().isOptional())
-                .map(DependencyNode::getArtifact)
-                .map(artifact -> artifact.getGroupId() + ":" + artifact.getArtifactId())
-                .collect(Collectors.toSet());
-    }
-
-    private CollectResult getArtifactDependencies(Artifact artifact)
-            throws MojoExecutionException
-    {
-        try {
-            org.eclipse.aether.artifact.Artifact artifact1 = aetherArtifact(artifact);
-            Dependency projectDependency = new Dependency(artifact1, null);
-            return repositorySystem.collectDependencies(repositorySession, new CollectRequest(projectDependency, null));
-        }
-        catch (DependencyCollectionException e) {
-            throw new MojoExecutionException("Failed to resolve dependencies.", e);
+        BuildMetrics metrics = new BuildMetrics("spi-dependencies-check",
+                mavenProject.getGroupId() + ":" + mavenProject.getArtifactId() + ":" + mavenProject.getVersion());
+        SpiDependencyRules rules = new SpiDependencyRules(spiGroupId, spiArtifactId, allowedProvidedDependencies);
+        Set<String> spiDependencies;
+        try (BuildMetrics.Phase phase = metrics.phase("resolveSpiDependencies")) {
+            Artifact spiArtifact = rules.getSpiArtifact(mavenProject);
+            spiDependencies = new SpiDependencyResolver(repositorySystem, repositorySession, useSpiDependencyManifest, cacheDirectory, getLog())
+                    .resolve(spiArtifact, metrics);
         }
-    }
+        metrics.count("spiDependencies", spiDependencies.size());
+        getLog().debug("SPI dependencies: " + spiDependencies);
 
-    private Artifact getSpiDependency()
-            throws MojoExecutionException
-    {
-        for (Artifact artifact : mavenProject.getArtifacts()) {
-            if (!isSpiArtifact(artifact)) {
-                continue;
-            }
-
-            if (!"provided".equals(artifact.getScope())) {
-                throw new MojoExecutionException(String.format("DolphinScheduler plugin dependency %s must have scope 'provided'.", spiName()));
-            }
-            return artifact;
+        try (BuildMetrics.Phase phase = metrics.phase("checkArtifacts")) {
+            rules.check(mavenProject, spiDependencies, metrics);
+        }
+        if (!skipMetrics) {
+            metrics.report(metricsFile, logMetrics, getLog());
         }
-        throw new MojoExecutionException(String.format("DolphinScheduler plugin must depend on %s.", spiName()));
-    }
-
-    private boolean isSpiArtifact(Artifact artifact)
-    {
-        return spiGroupId.equals(artifact.getGroupId())
-                && spiArtifactId.equals(artifact.getArtifactId())
-                && "jar".equals(artifact.getType())
-                && (artifact.getClassifier() == null);
-    }
-
-    private String spiName()
-    {
-        return spiGroupId + ":" + spiArtifactId;
-    }
-
-    private static org.eclipse.aether.artifact.Artifact aetherArtifact(Artifact artifact)
-    {
-        return new DefaultArtifact(
-                artifact.getGroupId(),
-                artifact.getArtifactId(),
-                artifact.getClassifier(),
-                artifact.getType(),
-                artifact.getVersion());
     }
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The precomputed set of SPI dependencies, as tab separated lines:
+ *
+ * <pre>
+ * spi         &lt;groupId:artifactId:version&gt;
+ * stamp       &lt;modification time of the SPI jar&gt;
+ * dependency  &lt;groupId:artifactId&gt;
+ * </pre>
+ *
+ * The manifest is either shipped inside the SPI jar as {@value #RESOURCE}, or written to the {@link PluginCache}
+ * after a live collection. A manifest only counts for the SPI version it names, and
+ * a manifest with a stamp only as long as the SPI jar has that modification time, which covers snapshots.
+ */
+final class SpiDependencyManifest {
+    static final String RESOURCE = "META-INF/dolphinscheduler/spi-dependencies";
+    static final String EXTENSION = "spi-dependencies";
+
+    private static final String SEPARATOR = "\t";
+
+    private SpiDependencyManifest()
+    {
+    }
+
+    /**
+     * @return the dependencies from the manifest inside the SPI jar, or null if it has none for that version
+     */
+    static Set<String> readFromJar(File spiJar, String spiCoordinates)
+            throws IOException
+    {
+        if (spiJar == null || !spiJar.isFile()) {
+            return null;
+        }
+        try (ZipFile zipFile = new ZipFile(spiJar)) {
+            ZipEntry entry = zipFile.getEntry(RESOURCE);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                return read(in, spiCoordinates, null);
+            }
+        }
+    }
+
+    /**
+     * @param stamp the required stamp, or null if any or no stamp will do
+     * @return the dependencies from the manifest file, or null if it is missing or belongs to another SPI version or stamp
+     */
+    static Set<String> readFromFile(File file, String spiCoordinates, String stamp)
+            throws IOException
+    {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return read(in, spiCoordinates, stamp);
+        }
+    }
+
+    static Set<String> read(InputStream in, String spiCoordinates, String stamp)
+            throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        String spi = null;
+        String manifestStamp = null;
+        Set<String> dependencies = new TreeSet<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(SEPARATOR, -1);
+            if (fields.length < 2) {
+                continue;
+            }
+            switch (fields[0]) {
+                case "spi":
+                    spi = fields[1];
+                    break;
+                case "stamp":
+                    manifestStamp = fields[1];
+                    break;
+                case "dependency":
+                    dependencies.add(fields[1]);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!spiCoordinates.equals(spi) || (stamp != null && manifestStamp != null && !stamp.equals(manifestStamp))) {
+            return null;
+        }
+        return Collections.unmodifiableSet(dependencies);
+    }
+
+    /**
+     * Writes the manifest through a temporary file, so concurrent builds never read a partial one.
+     */
+    static void write(File file, String spiCoordinates, String stamp, Set<String> dependencies)
+            throws IOException
+    {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+        File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary.toPath())) {
+                write(out, spiCoordinates, stamp, dependencies);
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    static void write(OutputStream out, String spiCoordinates, String stamp, Set<String> dependencies)
+            throws IOException
+    {
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        writer.write("spi" + SEPARATOR + spiCoordinates + "\n");
+        if (stamp != null) {
+            writer.write("stamp" + SEPARATOR + stamp + "\n");
+        }
+        for (String dependency : new TreeSet<>(dependencies)) {
+            writer.write("dependency" + SEPARATOR + dependency + "\n");
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * write the dependency manifest of the SPI into the SPI jar, so plugins can check against it without collecting the graph
+ */
+@Mojo(name = "generate-spi-dependency-manifest",
+        defaultPhase = LifecyclePhase.PROCESS_RESOURCES,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true)
+public class SpiDependencyManifestGenerator extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + SpiDependencyManifest.RESOURCE)
+    private File manifestFile;
+
+    @Parameter(defaultValue = "${project}")
+    private MavenProject project;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        // the same set a dependency collection of the SPI yields for its direct children
+        Set<String> dependencies = new TreeSet<>();
+        for (Artifact artifact : project.getArtifacts()) {
+            boolean direct = artifact.getDependencyTrail() != null && artifact.getDependencyTrail().size() == 2;
+            String scope = artifact.getScope();
+            if (direct && !artifact.isOptional() && ("compile".equals(scope) || "runtime".equals(scope) || "system".equals(scope))) {
+                dependencies.add(artifact.getGroupId() + ":" + artifact.getArtifactId());
+            }
+        }
+
+        String coordinates = project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion();
+        File directory = manifestFile.getParentFile();
+        directory.mkdirs();
+        if (!directory.isDirectory()) {
+            throw new MojoExecutionException(String.format("%n%nFailed to create directory: %s", directory));
+        }
+        try (OutputStream out = Files.newOutputStream(manifestFile.toPath())) {
+            SpiDependencyManifest.write(out, coordinates, null, dependencies);
+            getLog().info(String.format("Wrote %d SPI dependencies to %s", dependencies.size(), manifestFile));
+        }
+        catch (IOException e) {
+            throw new MojoExecutionException(String.format("Failed to write %s.", manifestFile), e);
+        }
+    }
+}
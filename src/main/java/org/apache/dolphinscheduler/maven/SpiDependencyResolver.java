@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.CollectResult;
+import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the direct dependencies of an SPI artifact, as {@code groupId:artifactId}, the cheapest way available:
+ * from the cache of the running build, from a {@link SpiDependencyManifest}, or by collecting the dependency graph.
+ */
+final class SpiDependencyResolver {
+    private final RepositorySystem repositorySystem;
+    private final RepositorySystemSession repositorySession;
+    private final boolean useSpiDependencyManifest;
+    private final File cacheDirectory;
+    private final Log log;
+
+    /**
+     * @param cacheDirectory the directory of the manifests of earlier builds, or null for the default, see {@link PluginCache}
+     */
+    SpiDependencyResolver(RepositorySystem repositorySystem, RepositorySystemSession repositorySession, boolean useSpiDependencyManifest,
+            File cacheDirectory, Log log)
+    {
+        this.repositorySystem = repositorySystem;
+        this.repositorySession = repositorySession;
+        this.useSpiDependencyManifest = useSpiDependencyManifest;
+        this.cacheDirectory = cacheDirectory;
+        this.log = log;
+    }
+
+    /**
+     * The dependency set of an SPI version is the same for every plugin module, so it is collected once per build.
+     */
+    Set<String> resolve(Artifact spiArtifact, BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        AtomicBoolean loaded = new AtomicBoolean();
+        Set<String> spiDependencies = SpiDependencyCache.get(repositorySession, spiArtifact, log, () -> {
+            loaded.set(true);
+            return loadSpiDependencies(spiArtifact, metrics);
+        });
+        metrics.count("sessionCacheHits", loaded.get() ? 0 : 1);
+        return spiDependencies;
+    }
+
+    /**
+     * Looks for a manifest inside the SPI jar, then in the {@link PluginCache}, and only then
+     * collects the dependency graph, whose result is written to the cache for later builds.
+     */
+    private Set<String> loadSpiDependencies(Artifact spiArtifact, BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        if (!useSpiDependencyManifest) {
+            return collectSpiDependencies(spiArtifact, metrics);
+        }
+
+        String coordinates = spiArtifact.getGroupId() + ":" + spiArtifact.getArtifactId() + ":" + spiArtifact.getBaseVersion();
+        String stamp = spiArtifact.isSnapshot() && spiArtifact.getFile() != null ? String.valueOf(spiArtifact.getFile().lastModified()) : null;
+        File manifestFile = getManifestFile(spiArtifact);
+        try {
+            if (spiArtifact.getFile() != null && spiArtifact.getFile().isFile()) {
+                metrics.count("jarsOpened", 1);
+            }
+            Set<String> spiDependencies = SpiDependencyManifest.readFromJar(spiArtifact.getFile(), coordinates);
+            if (spiDependencies != null) {
+                metrics.count("manifestHits", 1);
+                log.debug(String.format("Read the dependencies of %s from %s", coordinates, spiArtifact.getFile()));
+                return spiDependencies;
+            }
+            spiDependencies = SpiDependencyManifest.readFromFile(manifestFile, coordinates, stamp);
+            if (spiDependencies != null) {
+                metrics.count("manifestHits", 1);
+                log.debug(String.format("Read the dependencies of %s from %s", coordinates, manifestFile));
+                return spiDependencies;
+            }
+        }
+        catch (IOException e) {
+            log.warn(String.format("Ignoring the unreadable SPI dependency manifest of %s: %s", coordinates, e.getMessage()));
+        }
+
+        Set<String> spiDependencies = collectSpiDependencies(spiArtifact, metrics);
+        try {
+            SpiDependencyManifest.write(manifestFile, coordinates, stamp, spiDependencies);
+            metrics.count("bytesWritten", manifestFile.length());
+            log.debug(String.format("Wrote the dependencies of %s to %s", coordinates, manifestFile));
+        }
+        catch (IOException e) {
+            log.debug(String.format("Failed to write the SPI dependency manifest %s: %s", manifestFile, e.getMessage()));
+        }
+        return spiDependencies;
+    }
+
+    private File getManifestFile(Artifact spiArtifact)
+    {
+        return PluginCache.getFile(cacheDirectory, repositorySession, spiArtifact.getGroupId(), spiArtifact.getArtifactId(),
+                spiArtifact.getBaseVersion(), SpiDependencyManifest.EXTENSION);
+    }
+
+    private Set<String> collectSpiDependencies(Artifact spiArtifact, BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        DependencyNode root;
+        try (BuildMetrics.Phase phase = metrics.phase("collectDependencies")) {
+            root = getArtifactDependencies(spiArtifact).getRoot();
+        }
+        metrics.count("dependencyNodesCollected", countNodes(root) - 1);
+        return root.getChildren().stream()
+                .filter(node -> !node.getDependency().isOptional())
+                .map(DependencyNode::getArtifact)
+                .map(artifact -> artifact.getGroupId() + ":" + artifact.getArtifactId())
+                .collect(Collectors.collectingAndThen(Collectors.toSet(), Collections::unmodifiableSet));
+    }
+
+    private static int countNodes(DependencyNode node)
+    {
+        int count = 1;
+        for (DependencyNode child : node.getChildren()) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    private CollectResult getArtifactDependencies(Artifact artifact)
+            throws MojoExecutionException
+    {
+        try {
+            org.eclipse.aether.artifact.Artifact artifact1 = aetherArtifact(artifact);
+            Dependency projectDependency = new Dependency(artifact1, null);
+            return repositorySystem.collectDependencies(repositorySession, new CollectRequest(projectDependency, null));
+        }
+        catch (DependencyCollectionException e) {
+            throw new MojoExecutionException("Failed to resolve dependencies.", e);
+        }
+    }
+
+    private static org.eclipse.aether.artifact.Artifact aetherArtifact(Artifact artifact)
+    {
+        return new DefaultArtifact(
+                artifact.getGroupId(),
+                artifact.getArtifactId(),
+                artifact.getClassifier(),
+                artifact.getType(),
+                artifact.getVersion());
+    }
+}
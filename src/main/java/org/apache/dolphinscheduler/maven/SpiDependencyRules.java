@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+import java.util.Set;
+
+/**
+ * The scope rules of a plugin's dependencies: the SPI and its dependencies are provided by the server,
+ * so they must be provided scoped jars, and nothing else may be provided unless it is explicitly allowed.
+ */
+final class SpiDependencyRules {
+    private final String spiGroupId;
+    private final String spiArtifactId;
+    private final Set<String> allowedProvidedDependencies;
+
+    SpiDependencyRules(String spiGroupId, String spiArtifactId, Set<String> allowedProvidedDependencies)
+    {
+        this.spiGroupId = spiGroupId;
+        this.spiArtifactId = spiArtifactId;
+        this.allowedProvidedDependencies = allowedProvidedDependencies;
+    }
+
+    /**
+     * @return the SPI artifact the project depends on
+     */
+    Artifact getSpiArtifact(MavenProject project)
+            throws MojoExecutionException
+    {
+        for (Artifact artifact : project.getArtifacts()) {
+            if (!isSpiArtifact(artifact)) {
+                continue;
+            }
+
+            if (!"provided".equals(artifact.getScope())) {
+                throw new MojoExecutionException(String.format("DolphinScheduler plugin dependency %s must have scope 'provided'.", spiName()));
+            }
+            return artifact;
+        }
+        throw new MojoExecutionException(String.format("DolphinScheduler plugin must depend on %s.", spiName()));
+    }
+
+    /**
+     * Checks every artifact of the project against the dependencies of its SPI.
+     */
+    void check(MavenProject project, Set<String> spiDependencies, BuildMetrics metrics)
+            throws MojoExecutionException
+    {
+        for (Artifact artifact : project.getArtifacts()) {
+            if (isSpiArtifact(artifact)) {
+                continue;
+            }
+            metrics.count("artifactsChecked", 1);
+            String name = artifact.getGroupId() + ":" + artifact.getArtifactId();
+            if (spiDependencies.contains(name)) {
+                if (!"jar".equals(artifact.getType())) {
+                    throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s must have type 'jar'.", name));
+                }
+                if (artifact.getClassifier() != null) {
+                    throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s must not have a classifier.", name));
+                }
+                if (!"provided".equals(artifact.getScope())) {
+                    throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s must have scope 'provided'. It is part of the SPI and will be provided at runtime.", name));
+                }
+            }
+            else if ("provided".equals(artifact.getScope()) && !allowedProvidedDependencies.contains(name)) {
+                throw new MojoExecutionException(String.format("%n%nDolphinscheduler plugin dependency %s must not have scope 'provided'. It is not part of the SPI and will not be available at runtime.", name));
+            }
+        }
+    }
+
+    private boolean isSpiArtifact(Artifact artifact)
+    {
+        return spiGroupId.equals(artifact.getGroupId())
+                && spiArtifactId.equals(artifact.getArtifactId())
+                && "jar".equals(artifact.getType())
+                && (artifact.getClassifier() == null);
+    }
+
+    private String spiName()
+    {
+        return spiGroupId + ":" + spiArtifactId;
+    }
+}
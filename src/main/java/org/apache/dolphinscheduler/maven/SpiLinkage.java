@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Links the classes of a plugin against a {@link SpiSignatureIndex} the way the JVM resolves them, see section 5.4.3
+ * of the JVM specification, and reports what would fail at runtime: a missing SPI class, a missing field or method,
+ * which is a {@code NoSuchFieldError} or {@code NoSuchMethodError}, an SPI class that became an interface or the other
+ * way round, and an abstract SPI method a concrete plugin class does not implement, which is an {@code AbstractMethodError}.
+ *
+ * Members are looked up in the plugin classes, the SPI and the {@code java} and {@code javax} classes of the running JVM.
+ * A lookup that reaches any other class, one of the bundled dependencies, is not judged. Instances are thread safe.
+ */
+final class SpiLinkage {
+    private enum Resolution {
+        FOUND, MISSING, UNKNOWN
+    }
+
+    private final SpiSignatureIndex index;
+    private final Map<String, ClassApi> pluginClasses;
+    private final Map<String, Optional<ClassApi>> platformClasses;
+
+    /**
+     * @param platformClasses a concurrent cache of the platform classes read so far, which can be shared by several instances
+     */
+    SpiLinkage(SpiSignatureIndex index, Map<String, ClassApi> pluginClasses, Map<String, Optional<ClassApi>> platformClasses)
+    {
+        this.index = index;
+        this.pluginClasses = pluginClasses;
+        this.platformClasses = platformClasses;
+    }
+
+    /**
+     * @return the linkage errors of the plugin class, sorted, or an empty set if it links against the SPI
+     */
+    Set<String> check(ClassApi pluginClass, BuildMetrics metrics)
+    {
+        Set<String> problems = new TreeSet<>();
+        String name = pluginClass.getName();
+        for (String referencedClass : pluginClass.getReferencedClasses()) {
+            if (index.isSpiPackage(referencedClass) && index.getClass(referencedClass) == null && !pluginClasses.containsKey(referencedClass)) {
+                problems.add(String.format("%s refers to the missing class %s", name, referencedClass));
+            }
+        }
+
+        int checked = 0;
+        for (ClassApi.MemberReference reference : pluginClass.getReferences()) {
+            String owner = reference.getOwner();
+            ClassApi spiClass = index.getClass(owner);
+            if (spiClass == null && !(pluginClasses.containsKey(owner) && inheritsFromSpi(owner))) {
+                // either no SPI member, or a member of a missing class, which is reported above
+                continue;
+            }
+            checked++;
+            if (spiClass != null && !reference.isField() && spiClass.getHeader().isInterface() != reference.isInterfaceMethod()) {
+                problems.add(String.format("%s refers to %s as %s, but it is %s", name, owner,
+                        reference.isInterfaceMethod() ? "an interface" : "a class",
+                        reference.isInterfaceMethod() ? "a class" : "an interface"));
+            }
+            else if (resolve(owner, reference.getKey(), reference.isField()) == Resolution.MISSING) {
+                problems.add(String.format("%s refers to the missing %s %s", name, reference.isField() ? "field" : "method", reference));
+            }
+        }
+        metrics.count("referencesChecked", checked);
+
+        if (pluginClass.getHeader().isConcrete()) {
+            checkAbstractMethods(pluginClass, problems);
+        }
+        return problems;
+    }
+
+    /**
+     * Looks the member up in the class, then in its super interfaces and super class. Field and method resolution differ
+     * in that order, but not in whether they find a member.
+     */
+    private Resolution resolve(String className, String key, boolean field)
+    {
+        ClassApi api = lookup(className);
+        if (api == null) {
+            return Resolution.UNKNOWN;
+        }
+        if ((field ? api.getFields() : api.getMethods()).containsKey(key)) {
+            return Resolution.FOUND;
+        }
+        Resolution resolution = Resolution.MISSING;
+        for (String supertype : getSupertypes(api)) {
+            Resolution inherited = resolve(supertype, key, field);
+            if (inherited == Resolution.FOUND) {
+                return inherited;
+            }
+            if (inherited == Resolution.UNKNOWN) {
+                resolution = inherited;
+            }
+        }
+        return resolution;
+    }
+
+    /**
+     * Collects the abstract methods of the SPI super classes and interfaces of a concrete class,
+     * and looks for an implementation in its class chain or a default method in its interfaces.
+     */
+    private void checkAbstractMethods(ClassApi pluginClass, Set<String> problems)
+    {
+        List<ClassApi> superclasses = new ArrayList<>();
+        Map<String, ClassApi> interfaces = new LinkedHashMap<>();
+        for (String name = pluginClass.getName(); name != null; ) {
+            ClassApi api = lookup(name);
+            if (api == null || !collectInterfaces(api.getHeader().getInterfaces(), interfaces)) {
+                // the class extends something that is neither part of the plugin, the SPI nor the platform
+                return;
+            }
+            superclasses.add(api);
+            name = api.getHeader().getSuperName();
+        }
+
+        Map<String, String> abstractMethods = new LinkedHashMap<>();
+        List<ClassApi> supertypes = new ArrayList<>(superclasses);
+        supertypes.addAll(interfaces.values());
+        for (ClassApi supertype : supertypes) {
+            if (index.getClass(supertype.getName()) == null) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> method : supertype.getMethods().entrySet()) {
+                if ((method.getValue() & ClassHeader.ACC_ABSTRACT) != 0 && (method.getValue() & ClassHeader.ACC_STATIC) == 0) {
+                    abstractMethods.putIfAbsent(method.getKey(), supertype.getName());
+                }
+            }
+        }
+
+        for (Map.Entry<String, String> abstractMethod : abstractMethods.entrySet()) {
+            if (!isImplemented(abstractMethod.getKey(), superclasses, interfaces.values())) {
+                problems.add(String.format("%s does not implement the abstract method %s.%s",
+                        pluginClass.getName(), abstractMethod.getValue(), abstractMethod.getKey()));
+            }
+        }
+    }
+
+    private static boolean isImplemented(String key, List<ClassApi> superclasses, Iterable<ClassApi> interfaces)
+    {
+        for (ClassApi superclass : superclasses) {
+            Integer access = superclass.getMethods().get(key);
+            if (access != null && (access & ClassHeader.ACC_ABSTRACT) == 0) {
+                return true;
+            }
+        }
+        for (ClassApi anInterface : interfaces) {
+            Integer access = anInterface.getMethods().get(key);
+            if (access != null && (access & (ClassHeader.ACC_ABSTRACT | ClassHeader.ACC_STATIC)) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return false if one of the interfaces or their super interfaces cannot be looked up
+     */
+    private boolean collectInterfaces(List<String> names, Map<String, ClassApi> interfaces)
+    {
+        for (String name : names) {
+            if (interfaces.containsKey(name)) {
+                continue;
+            }
+            ClassApi api = lookup(name);
+            if (api == null) {
+                return false;
+            }
+            interfaces.put(name, api);
+            if (!collectInterfaces(api.getHeader().getInterfaces(), interfaces)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean inheritsFromSpi(String className)
+    {
+        ClassApi api = lookup(className);
+        if (api == null) {
+            return false;
+        }
+        for (String supertype : getSupertypes(api)) {
+            if (index.getClass(supertype) != null || inheritsFromSpi(supertype)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> getSupertypes(ClassApi api)
+    {
+        List<String> supertypes = new ArrayList<>(api.getHeader().getInterfaces());
+        if (api.getHeader().getSuperName() != null) {
+            supertypes.add(api.getHeader().getSuperName());
+        }
+        return supertypes;
+    }
+
+    /**
+     * @return the class from the SPI, the plugin or the platform, or null if it is none of them
+     */
+    private ClassApi lookup(String className)
+    {
+        ClassApi api = index.getClass(className);
+        if (api == null) {
+            api = pluginClasses.get(className);
+        }
+        if (api == null && (className.startsWith("java.") || className.startsWith("javax."))) {
+            api = platformClasses.computeIfAbsent(className, SpiLinkage::readPlatformClass).orElse(null);
+        }
+        return api;
+    }
+
+    private static Optional<ClassApi> readPlatformClass(String className)
+    {
+        try (InputStream in = ClassLoader.getSystemClassLoader().getResourceAsStream(className.replace('.', '/') + ".class")) {
+            return in == null ? Optional.empty() : Optional.of(ClassFileReader.readApi(in));
+        }
+        catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The members an SPI version lets plugins link against, as tab separated lines:
+ *
+ * <pre>
+ * version  1
+ * spi      &lt;groupId:artifactId:version&gt;
+ * stamp    &lt;modification time of the SPI jar&gt;
+ * class    &lt;name&gt;  &lt;access&gt;  &lt;super class&gt;  &lt;comma separated interfaces&gt;
+ * field    &lt;name&gt;  &lt;descriptor&gt;  &lt;access&gt;
+ * method   &lt;name&gt;  &lt;descriptor&gt;  &lt;access&gt;
+ * </pre>
+ *
+ * The members follow the line of their class. The index is extracted from the class files of the SPI jar once
+ * and written to the {@link PluginCache}, where it counts for the SPI version it names, and with a stamp
+ * only as long as the SPI jar has that modification time, like a {@link SpiDependencyManifest}.
+ */
+final class SpiSignatureIndex {
+    static final String EXTENSION = "spi-signatures";
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "\t";
+
+    private final String spiCoordinates;
+    private final Map<String, ClassApi> classes;
+    private final Set<String> packages = new HashSet<>();
+
+    private SpiSignatureIndex(String spiCoordinates, Map<String, ClassApi> classes)
+    {
+        this.spiCoordinates = spiCoordinates;
+        this.classes = Collections.unmodifiableMap(classes);
+        for (String name : classes.keySet()) {
+            packages.add(packageName(name));
+        }
+    }
+
+    /**
+     * Reads the classes of the SPI jar, or of its classes directory when the SPI is a module of the reactor,
+     * skipping module descriptors and the versioned classes of multi-release jars.
+     */
+    static SpiSignatureIndex build(File spiFile, String spiCoordinates)
+            throws IOException
+    {
+        Map<String, ClassApi> classes = new HashMap<>();
+        if (spiFile.isDirectory()) {
+            for (File file : FileUtils.getFiles(spiFile, "**/*.class", "META-INF/**,**/module-info.class")) {
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    addClass(classes, ClassFileReader.readApi(in));
+                }
+            }
+            return new SpiSignatureIndex(spiCoordinates, classes);
+        }
+        try (ZipFile zipFile = new ZipFile(spiFile)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    addClass(classes, ClassFileReader.readApi(in));
+                }
+            }
+        }
+        return new SpiSignatureIndex(spiCoordinates, classes);
+    }
+
+    private static void addClass(Map<String, ClassApi> classes, ClassApi api)
+    {
+        // only the declared members are linked against, not what the class itself refers to
+        classes.put(api.getName(), new ClassApi(api.getHeader(), api.getFields(), api.getMethods(),
+                Collections.emptySet(), Collections.emptyList()));
+    }
+
+    /**
+     * @param stamp the required stamp, or null if any or no stamp will do
+     * @return the index from the file, or null if it is missing, has another format or belongs to another SPI version or stamp
+     */
+    static SpiSignatureIndex readFromFile(File file, String spiCoordinates, String stamp)
+            throws IOException
+    {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return read(in, spiCoordinates, stamp);
+        }
+    }
+
+    static SpiSignatureIndex read(InputStream in, String spiCoordinates, String stamp)
+            throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        String version = null;
+        String spi = null;
+        String indexStamp = null;
+        Map<String, ClassApi> classes = new HashMap<>();
+        ClassHeader header = null;
+        Map<String, Integer> fields = null;
+        Map<String, Integer> methods = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] columns = line.split(SEPARATOR, -1);
+            if (columns.length < 2 || ("class".equals(columns[0]) && columns.length < 5)
+                    || (("field".equals(columns[0]) || "method".equals(columns[0])) && columns.length < 4)) {
+                throw new IOException("Malformed line: " + line);
+            }
+            switch (columns[0]) {
+                case "version":
+                    version = columns[1];
+                    break;
+                case "spi":
+                    spi = columns[1];
+                    break;
+                case "stamp":
+                    indexStamp = columns[1];
+                    break;
+                case "class":
+                    if (header != null) {
+                        classes.put(header.getName(), new ClassApi(header, fields, methods, Collections.emptySet(), Collections.emptyList()));
+                    }
+                    List<String> interfaces = columns[4].isEmpty() ? new ArrayList<>() : Arrays.asList(columns[4].split(","));
+                    header = new ClassHeader(columns[1], parseAccess(columns[2]), columns[3].isEmpty() ? null : columns[3], interfaces);
+                    fields = new HashMap<>();
+                    methods = new HashMap<>();
+                    break;
+                case "field":
+                    if (header == null) {
+                        throw new IOException("Field before the first class: " + line);
+                    }
+                    fields.put(ClassApi.key(columns[1], columns[2]), parseAccess(columns[3]));
+                    break;
+                case "method":
+                    if (header == null) {
+                        throw new IOException("Method before the first class: " + line);
+                    }
+                    methods.put(ClassApi.key(columns[1], columns[2]), parseAccess(columns[3]));
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (header != null) {
+            classes.put(header.getName(), new ClassApi(header, fields, methods, Collections.emptySet(), Collections.emptyList()));
+        }
+        if (!VERSION.equals(version) || !spiCoordinates.equals(spi) || (stamp != null && indexStamp != null && !stamp.equals(indexStamp))) {
+            return null;
+        }
+        return new SpiSignatureIndex(spiCoordinates, classes);
+    }
+
+    private static int parseAccess(String access)
+            throws IOException
+    {
+        try {
+            return Integer.parseInt(access);
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("Malformed access flags: " + access, e);
+        }
+    }
+
+    /**
+     * Writes the index through a temporary file, so concurrent builds never read a partial one.
+     */
+    void write(File file, String stamp)
+            throws IOException
+    {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+        File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary.toPath())) {
+                write(out, stamp);
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    void write(OutputStream out, String stamp)
+            throws IOException
+    {
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        writer.write("version" + SEPARATOR + VERSION + "\n");
+        writer.write("spi" + SEPARATOR + spiCoordinates + "\n");
+        if (stamp != null) {
+            writer.write("stamp" + SEPARATOR + stamp + "\n");
+        }
+        for (ClassApi api : new TreeMap<>(classes).values()) {
+            ClassHeader header = api.getHeader();
+            writer.write("class" + SEPARATOR + header.getName() + SEPARATOR + header.getAccess()
+                    + SEPARATOR + (header.getSuperName() == null ? "" : header.getSuperName())
+                    + SEPARATOR + String.join(",", header.getInterfaces()) + "\n");
+            writeMembers(writer, "field", api.getFields());
+            writeMembers(writer, "method", api.getMethods());
+        }
+        writer.flush();
+    }
+
+    private static void writeMembers(Writer writer, String kind, Map<String, Integer> members)
+            throws IOException
+    {
+        for (Map.Entry<String, Integer> member : new TreeMap<>(members).entrySet()) {
+            String key = member.getKey();
+            // a method descriptor starts with its parameters, a field descriptor follows a space
+            int split = key.indexOf('(');
+            String name = split >= 0 ? key.substring(0, split) : key.substring(0, key.indexOf(' '));
+            String descriptor = split >= 0 ? key.substring(split) : key.substring(key.indexOf(' ') + 1);
+            writer.write(kind + SEPARATOR + name + SEPARATOR + descriptor + SEPARATOR + member.getValue() + "\n");
+        }
+    }
+
+    String getSpiCoordinates()
+    {
+        return spiCoordinates;
+    }
+
+    /**
+     * @return the class, or null if the SPI has no such class
+     */
+    ClassApi getClass(String name)
+    {
+        return classes.get(name);
+    }
+
+    int size()
+    {
+        return classes.size();
+    }
+
+    /**
+     * @return true if the class belongs to a package of the SPI, whether the SPI has that class or not
+     */
+    boolean isSpiPackage(String className)
+    {
+        return packages.contains(packageName(className));
+    }
+
+    private static String packageName(String className)
+    {
+        int lastDot = className.lastIndexOf('.');
+        return lastDot < 0 ? "" : className.substring(0, lastDot);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.readAllLines;
+import static java.nio.file.Files.write;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BundleAnalyzerTest extends PluginTestSupport {
+
+    public BundleAnalyzerTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testExcludeUnusedJars() throws Exception
+    {
+        File basedir = resources.getBasedir("unused-dependency");
+        build(basedir, "package")
+                .assertLogText("Excluding commons-io-2.6.jar");
+
+        List<String> report = readAllLines(new File(basedir, "target/dolphinscheduler-bundle-report.txt").toPath(), UTF_8);
+        assertEquals("status\tbytes\treached\tclasses\tjar", report.get(0));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("kept\t") && line.endsWith("\tguava-24.1.1-jre.jar")));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("excluded\t") && line.endsWith("\tcommons-io-2.6.jar")));
+
+        try (ZipFile zipFile = new ZipFile(new File(basedir, "target/unused-dependency-1.0.zip"))) {
+            assertNotNull(zipFile.getEntry("guava-24.1.1-jre.jar"));
+            assertNull(zipFile.getEntry("commons-io-2.6.jar"));
+        }
+
+        PluginIndex index;
+        try (InputStream in = new FileInputStream(new File(basedir, "target/classes/" + PluginIndex.RESOURCE))) {
+            index = PluginIndex.read(in);
+        }
+        assertTrue(index.getJars().contains("guava-24.1.1-jre.jar"));
+        assertFalse(index.getJars().contains("commons-io-2.6.jar"));
+    }
+
+    /**
+     * The provisio packaging bundles the whole runtime classpath, so the unused jar is only reported and stays in the index.
+     */
+    @Test
+    public void testReportOnlyWithProvisioPackaging() throws Exception
+    {
+        File basedir = resources.getBasedir("unused-dependency");
+        File pom = new File(basedir, "pom.xml");
+        String provisio = new String(readAllBytes(pom.toPath()), UTF_8)
+                .replace("<packaging>dolphinscheduler-plugin-native</packaging>", "<packaging>dolphinscheduler-plugin</packaging>");
+        write(pom.toPath(), provisio.getBytes(UTF_8));
+        maven.forProject(basedir)
+                .execute("package")
+                .assertLogText("the unused jars are only reported")
+                .assertLogText("Unused: commons-io-2.6.jar")
+                .assertNoLogText("Excluding commons-io-2.6.jar");
+
+        List<String> report = readAllLines(new File(basedir, "target/dolphinscheduler-bundle-report.txt").toPath(), UTF_8);
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("unused\t") && line.endsWith("\tcommons-io-2.6.jar")));
+
+        try (ZipFile zipFile = new ZipFile(new File(basedir, "target/unused-dependency-1.0.zip"))) {
+            assertTrue(zipFile.stream().anyMatch(entry -> entry.getName().endsWith("commons-io-2.6.jar")));
+        }
+        try (InputStream in = new FileInputStream(new File(basedir, "target/classes/" + PluginIndex.RESOURCE))) {
+            assertTrue(PluginIndex.read(in).getJars().contains("commons-io-2.6.jar"));
+        }
+    }
+}
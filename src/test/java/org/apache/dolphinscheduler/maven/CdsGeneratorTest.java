@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenExecutionResult;
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.readAllLines;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CdsGeneratorTest extends PluginTestSupport {
+
+    public CdsGeneratorTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testClassList() throws Exception
+    {
+        File basedir = resources.getBasedir("cds-plugin");
+        MavenExecutionResult result = build(basedir, "package");
+
+        String javaVersion = System.getProperty("java.specification.version");
+        if (javaVersion.startsWith("1.") || Integer.parseInt(javaVersion) < 11) {
+            result.assertLogText("Skipping Dolphinscheduler AppCDS class list.");
+            return;
+        }
+
+        File classList = new File(basedir, "target/classes/" + CdsGenerator.CLASS_LIST);
+        List<String> classes = readAllLines(classList.toPath(), UTF_8);
+        assertTrue(classes.contains("its/SimplestPlugin"));
+        assertTrue(classes.contains("java/lang/Object"));
+        try (ZipFile zipFile = new ZipFile(new File(basedir, "target/cds-plugin-1.0.jar"))) {
+            assertNotNull(zipFile.getEntry(CdsGenerator.CLASS_LIST));
+            assertNotNull(zipFile.getEntry(CdsGenerator.LAUNCHER));
+        }
+
+        // a clean build records the same classes
+        byte[] first = readAllBytes(classList.toPath());
+        build(basedir, "clean", "package");
+        assertArrayEquals(first, readAllBytes(classList.toPath()));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllLines;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyUsageAnalyzerTest extends PluginTestSupport {
+
+    public DependencyUsageAnalyzerTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testReport() throws Exception
+    {
+        File basedir = resources.getBasedir("dependency-usage");
+        build(basedir, "package")
+                .assertLogText("Dolphinscheduler plugin declares commons-io:commons-io:2.6 (compile), but none of its classes refers to it")
+                .assertLogText("Dolphinscheduler plugin uses com.google.code.findbugs:jsr305:");
+
+        List<String> report = readAllLines(new File(basedir, "target/dolphinscheduler-dependency-report.txt").toPath(), UTF_8);
+        assertEquals("status\tscope\tbytes\tusers\tdependency", report.get(0));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("used\tcompile\t") && line.endsWith("\tcom.google.guava:guava:24.1.1-jre")));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("used\tprovided\t") && line.contains("\torg.apache.dolphinscheduler:dolphinscheduler-spi:")));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("unused-declared\tcompile\t") && line.endsWith("\tcommons-io:commons-io:2.6")));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("used-undeclared\t") && line.contains("\tcom.google.code.findbugs:jsr305:")));
+    }
+
+    @Test
+    public void testFailOnUnusedDeclared() throws Exception
+    {
+        File basedir = resources.getBasedir("dependency-usage");
+        maven.forProject(basedir)
+                .withCliOptions("-Ddolphinscheduler.failOnUnusedDeclared=true")
+                .execute("package")
+                .assertLogText("BUILD FAILURE")
+                .assertLogText("Dolphinscheduler plugin declares commons-io:commons-io:2.6 (compile)");
+    }
+}
@@ -27,10 +27,23 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import static java.nio.file.Files.readAllLines;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static java.nio.file.Files.delete;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipFile;
 
 @RunWith(MavenJUnitTestRunner.class)
 @MavenVersions({"3.3.9", "3.5.4", "3.6.2"})
@@ -68,7 +81,277 @@ public class DolphinDescriptorGeneratorTest {
         testProjectPackaging("interface-plugin-class", "its.TestPluginImpl");
     }
 
-    protected void testProjectPackaging(String projectId, String expectedPluginClass)
+    @Test
+    public void testNestedPluginClass() throws Exception
+    {
+        testProjectPackaging("nested-plugin-class", "its.TestPluginImpl");
+    }
+
+    @Test
+    public void testRenamedPluginClass() throws Exception
+    {
+        File basedir = testProjectPackaging("simplest", "its.SimplestPlugin");
+
+        // rename the plugin class without a clean, the way an IDE compiler leaves the output directory
+        File source = new File(basedir, "src/main/java/its/SimplestPlugin.java");
+        String renamed = new String(readAllBytes(source.toPath()), UTF_8).replace("SimplestPlugin", "RenamedPlugin");
+        write(new File(basedir, "src/main/java/its/RenamedPlugin.java").toPath(), renamed.getBytes(UTF_8));
+        delete(source.toPath());
+        delete(new File(basedir, "target/classes/its/SimplestPlugin.class").toPath());
+
+        maven.forProject(basedir)
+                .execute("package")
+                .assertErrorFreeLog();
+
+        File output = new File(basedir, "target/classes/" + DESCRIPTOR);
+        assertEquals(singletonList("its.RenamedPlugin"), readAllLines(output.toPath(), UTF_8));
+    }
+
+    @Test
+    public void testMultipleServiceInterfaces() throws Exception
+    {
+        File basedir = testProjectPackaging("multiple-service-interfaces", "its.SimplestPlugin");
+
+        File runnables = new File(basedir, "target/classes/META-INF/services/java.lang.Runnable");
+        assertEquals(asList("its.FirstTask", "its.SecondTask"), readAllLines(runnables.toPath(), UTF_8));
+        assertFalse(new File(basedir, "target/classes/META-INF/services/java.util.concurrent.Callable").exists());
+    }
+
+    @Test
+    public void testParallelScan() throws Exception
+    {
+        File basedir = resources.getBasedir("multiple-service-interfaces");
+        generateTasks(new File(basedir, "src/main/java/its/generated"), 300);
+
+        Map<String, List<String>> sequential = readServicesFiles(basedir, 1);
+        Map<String, List<String>> parallel = readServicesFiles(basedir, 4);
+
+        assertEquals(sequential, parallel);
+        assertEquals(singletonList("its.SimplestPlugin"), parallel.get("org.apache.dolphinscheduler.spi.DolphinSchedulerPlugin"));
+        assertEquals(102, parallel.get("java.lang.Runnable").size());
+        assertTrue(parallel.get("java.lang.Runnable").contains("its.generated.Task297"));
+        assertEquals(100, parallel.get("java.util.concurrent.Callable").size());
+        assertTrue(parallel.get("java.util.concurrent.Callable").contains("its.generated.Task1$Nested"));
+    }
+
+    /**
+     * Writes enough classes for the scan to split them between threads: every third one inherits Runnable through
+     * a chain of the classes before it, and every third one has a nested implementation of Callable.
+     */
+    private static void generateTasks(File directory, int count)
+            throws Exception
+    {
+        assertTrue(directory.mkdirs());
+        write(new File(directory, "AbstractTask.java").toPath(),
+                "package its.generated;\n\npublic abstract class AbstractTask implements Runnable {\n    public void run() {\n    }\n}\n".getBytes(UTF_8));
+        for (int i = 0; i < count; i++) {
+            String body;
+            if (i % 3 == 0) {
+                body = "public class Task" + i + " extends " + (i == 0 ? "AbstractTask" : "Task" + (i - 3)) + " {\n}\n";
+            }
+            else if (i % 3 == 1) {
+                body = "public class Task" + i + " {\n    public static class Nested implements java.util.concurrent.Callable<Object> {\n"
+                        + "        public Object call() {\n            return null;\n        }\n    }\n}\n";
+            }
+            else {
+                body = "public class Task" + i + " {\n}\n";
+            }
+            write(new File(directory, "Task" + i + ".java").toPath(), ("package its.generated;\n\n" + body).getBytes(UTF_8));
+        }
+    }
+
+    private Map<String, List<String>> readServicesFiles(File basedir, int parallelism)
+            throws Exception
+    {
+        maven.forProject(basedir)
+                .withCliOptions("-Ddolphinscheduler.parallelism=" + parallelism)
+                .execute("clean", "package")
+                .assertErrorFreeLog();
+        Map<String, List<String>> services = new TreeMap<>();
+        File[] files = new File(basedir, "target/classes/META-INF/services").listFiles();
+        for (File file : files) {
+            services.put(file.getName(), readAllLines(file.toPath(), UTF_8));
+        }
+        return services;
+    }
+
+    @Test
+    public void testStaleSecondaryServicesFile() throws Exception
+    {
+        File basedir = testProjectPackaging("multiple-service-interfaces", "its.SimplestPlugin");
+
+        // no class implements java.lang.Runnable any more, which fails the build and makes its services file stale
+        for (String task : asList("FirstTask", "SecondTask")) {
+            File source = new File(basedir, "src/main/java/its/" + task + ".java");
+            String changed = new String(readAllBytes(source.toPath()), UTF_8).replace("implements Runnable", "").replace("@Override", "");
+            write(source.toPath(), changed.getBytes(UTF_8));
+        }
+        maven.forProject(basedir)
+                .execute("package")
+                .assertLogText("BUILD FAILURE")
+                .assertLogText("Not find classes implements java.lang.Runnable");
+
+        assertFalse(new File(basedir, "target/classes/META-INF/services/java.lang.Runnable").exists());
+        assertTrue(new File(basedir, "target/classes/" + DESCRIPTOR).exists());
+        assertTrue(new File(basedir, "target/classes/" + PluginIndex.RESOURCE).exists());
+        assertTrue(new File(basedir, "target/classes/" + PluginMetadata.RESOURCE).exists());
+    }
+
+    @Test
+    public void testPluginIndex() throws Exception
+    {
+        File basedir = testProjectPackaging("simplest", "its.SimplestPlugin");
+
+        PluginIndex index;
+        try (InputStream in = new FileInputStream(new File(basedir, "target/classes/" + PluginIndex.RESOURCE))) {
+            index = PluginIndex.read(in);
+        }
+        assertEquals("its.SimplestPlugin", index.getPluginClassName());
+        assertEquals("org.apache.dolphinscheduler.spi.DolphinSchedulerPlugin", index.getSpiInterfaceName());
+        assertEquals(singletonList("simplest-1.0.jar"), index.getJars());
+        assertEquals(singletonList("its.SimplestPlugin"), index.getClasses("simplest-1.0.jar"));
+        assertEquals("simplest-1.0.jar", index.findJar("its.SimplestPlugin"));
+    }
+
+    @Test
+    public void testPluginMetadata() throws Exception
+    {
+        File basedir = testProjectPackaging("plugin-metadata", "its.MetadataPlugin");
+
+        PluginMetadata metadata;
+        try (InputStream in = new FileInputStream(new File(basedir, "target/classes/" + PluginMetadata.RESOURCE))) {
+            metadata = PluginMetadata.read(in);
+        }
+        assertEquals("its.MetadataPlugin", metadata.getPluginClassName());
+        assertEquals("org.apache.dolphinscheduler.spi.DolphinSchedulerPlugin", metadata.getSpiInterfaceName());
+        Map<String, String> constants = new TreeMap<>();
+        constants.put("TYPE", "SHELL");
+        constants.put("VERSION", "2");
+        assertEquals(constants, metadata.getConstants());
+        Map<String, String> elements = new TreeMap<>();
+        elements.put("name", "shell");
+        elements.put("params.0.name", "script");
+        elements.put("params.0.order", "1");
+        elements.put("tags.0", "task");
+        elements.put("tags.1", "local");
+        assertEquals(singletonList("its.PluginInfo"), metadata.getAnnotationNames());
+        assertEquals(elements, metadata.getAnnotation("its.PluginInfo"));
+    }
+
+    @Test
+    public void testMetrics() throws Exception
+    {
+        File basedir = resources.getBasedir("simplest");
+        maven.forProject(basedir)
+                .withCliOptions("-Ddolphinscheduler.logMetrics=true")
+                .execute("package")
+                .assertErrorFreeLog()
+                .assertLogText("Dolphinscheduler plugin generate-dolphin-service-descriptor took")
+                .assertLogText("Dolphinscheduler plugin spi-dependencies-check took");
+
+        String descriptorMetrics = new String(readAllBytes(new File(basedir, "target/dolphinscheduler-descriptor-metrics.json").toPath()), UTF_8);
+        assertTrue(descriptorMetrics.contains("\"project\": \"org.apache.dolphinscheduler.maven.test:simplest:1.0\""));
+        assertTrue(descriptorMetrics.contains("\"classesScanned\": 1"));
+        String spiMetrics = new String(readAllBytes(new File(basedir, "target/dolphinscheduler-spi-check-metrics.json").toPath()), UTF_8);
+        assertTrue(spiMetrics.contains("\"resolveSpiDependencies\""));
+        assertTrue(spiMetrics.contains("\"artifactsChecked\""));
+    }
+
+    @Test
+    public void testImplementationArtifact() throws Exception
+    {
+        File basedir = resources.getBasedir("implementation-artifact");
+        maven.forProject(basedir)
+                .execute("package")
+                .assertErrorFreeLog();
+
+        File output = new File(basedir, "assembly/target/classes/" + DESCRIPTOR);
+        assertEquals(singletonList("its.ImplementedPlugin"), readAllLines(output.toPath(), UTF_8));
+        List<String> state = readAllLines(new File(basedir, "assembly/target/dolphinscheduler-descriptor.state").toPath(), UTF_8);
+        assertTrue(state.stream().anyMatch(line -> line.startsWith("implementation\t") && line.contains("\tits.ImplementedPlugin\t")));
+
+        // a repeated build finds the same implementation, from the state as long as the jar is unchanged
+        maven.forProject(basedir)
+                .execute("package")
+                .assertErrorFreeLog();
+        assertEquals(singletonList("its.ImplementedPlugin"), readAllLines(output.toPath(), UTF_8));
+    }
+
+    @Test
+    public void testParallelReactor() throws Exception
+    {
+        File basedir = resources.getBasedir("parallel-reactor");
+        maven.forProject(basedir)
+                .execute("package")
+                .assertErrorFreeLog();
+        Map<String, String> serial = readReactorOutputs(basedir);
+
+        maven.forProject(basedir)
+                .withCliOptions("-T", "4")
+                .execute("clean", "package")
+                .assertErrorFreeLog()
+                // the parallel builder lists the plugins whose goals are not thread safe by their coordinates
+                .assertNoLogText("org.apache.dolphinscheduler:dolphinscheduler-maven-plugin:");
+        Map<String, String> parallel = readReactorOutputs(basedir);
+
+        assertEquals(12, serial.size());
+        assertEquals(serial, parallel);
+    }
+
+    /**
+     * A supertype in the classes directory of a sibling module starts implementing the SPI, which leaves the modification time
+     * of that directory alone, so only fingerprinting its class files notices that the plugin has a second implementation.
+     */
+    @Test
+    public void testChangedReactorSupertype() throws Exception
+    {
+        File basedir = resources.getBasedir("parallel-reactor");
+        File base = new File(basedir, "common/src/main/java/its/common/Base.java");
+        write(base.toPath(), "package its.common;\n\npublic abstract class Base {\n}\n".getBytes(UTF_8));
+        write(new File(basedir, "plugin-a/src/main/java/its/a/Helper.java").toPath(),
+                "package its.a;\n\npublic class Helper extends its.common.Base {\n}\n".getBytes(UTF_8));
+        maven.forProject(basedir)
+                .execute("compile")
+                .assertErrorFreeLog();
+
+        write(base.toPath(), "package its.common;\n\npublic abstract class Base extends AbstractTestPlugin {\n}\n".getBytes(UTF_8));
+        maven.forProject(basedir)
+                .execute("compile")
+                .assertLogText("BUILD FAILURE")
+                .assertLogText("Found more than one class that implements")
+                .assertLogText("its.a.Helper");
+    }
+
+    /**
+     * @return the generated descriptors of every plugin module and the entry names of its archives,
+     * whose content differs between builds by the timestamps of the archiver
+     */
+    private static Map<String, String> readReactorOutputs(File basedir)
+            throws Exception
+    {
+        Map<String, String> outputs = new TreeMap<>();
+        for (String module : asList("plugin-a", "plugin-b", "plugin-c")) {
+            File classes = new File(basedir, module + "/target/classes");
+            outputs.put(module + ":" + DESCRIPTOR, new String(readAllBytes(new File(classes, DESCRIPTOR).toPath()), UTF_8));
+            outputs.put(module + ":" + PluginIndex.RESOURCE, new String(readAllBytes(new File(classes, PluginIndex.RESOURCE).toPath()), UTF_8));
+            outputs.put(module + ":" + ".zip", String.join("\n", readZipEntries(new File(basedir, module + "/target/" + module + "-1.0.zip"))));
+            outputs.put(module + ":" + ".jar", String.join("\n", readZipEntries(new File(basedir, module + "/target/" + module + "-1.0.jar"))));
+        }
+        return outputs;
+    }
+
+    private static List<String> readZipEntries(File file)
+            throws Exception
+    {
+        List<String> entries = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(file)) {
+            zipFile.stream().forEach(entry -> entries.add(entry.getName()));
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+
+    protected File testProjectPackaging(String projectId, String expectedPluginClass)
             throws Exception
     {
         File basedir = resources.getBasedir(projectId);
@@ -80,5 +363,6 @@ public class DolphinDescriptorGeneratorTest {
 
         List<String> lines = readAllLines(output.toPath(), UTF_8);
         assertEquals(singletonList(expectedPluginClass), lines);
+        return basedir;
     }
 }
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenExecutionResult;
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+
+public class DuplicateClassCheckerTest extends PluginTestSupport {
+
+    public DuplicateClassCheckerTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testNoDuplicates() throws Exception
+    {
+        File basedir = resources.getBasedir("simplest");
+        build(basedir, "verify", goal("duplicate-classes-check"))
+                .assertNoLogText("Dolphinscheduler plugin dependencies");
+    }
+
+    @Test
+    public void testDuplicateClasses() throws Exception
+    {
+        File basedir = resources.getBasedir("duplicate-classes");
+        MavenExecutionResult verify = maven.forProject(basedir)
+                .execute("verify");
+        verify.assertLogText("BUILD FAILURE");
+        verify.assertLogText("Dolphinscheduler plugin dependencies com.google.guava:guava (compile), com.google.collections:google-collections (compile) contain ");
+    }
+
+    @Test
+    public void testAllowedDuplicateArtifact() throws Exception
+    {
+        File basedir = resources.getBasedir("duplicate-classes-allowed");
+        build(basedir, "verify")
+                .assertNoLogText("Dolphinscheduler plugin dependencies");
+    }
+}
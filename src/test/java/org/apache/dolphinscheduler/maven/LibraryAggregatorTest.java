@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenExecutionResult;
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static java.nio.file.Files.write;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class LibraryAggregatorTest extends PluginTestSupport {
+
+    public LibraryAggregatorTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testSharedLibraries() throws Exception
+    {
+        File basedir = resources.getBasedir("shared-libraries");
+        build(basedir, "package", goal("aggregate-libraries"), goal("verify-libraries"))
+                .assertLogText("Aggregated 2 plugins into ")
+                .assertLogText("1 of 2 bundled libraries are distinct");
+
+        // the thin archives only hold the manifest and the plugin jar
+        File distribution = new File(basedir, "target/dolphinscheduler-distribution");
+        for (String plugin : Arrays.asList("plugin-a", "plugin-b")) {
+            List<String> names = new ArrayList<>();
+            try (ZipFile zipFile = new ZipFile(new File(distribution, "plugins/" + plugin + "-1.0.zip"))) {
+                zipFile.stream().forEach(entry -> names.add(entry.getName()));
+            }
+            assertEquals(Arrays.asList(LibraryManifest.RESOURCE, plugin + "-1.0.jar"), names);
+        }
+
+        // guava is stored once, under its hash
+        File[] libraries = new File(distribution, "lib").listFiles();
+        assertNotNull(libraries);
+        assertEquals(1, libraries.length);
+        assertEquals(LibraryManifest.sha256(libraries[0]) + ".jar", libraries[0].getName());
+    }
+
+    @Test
+    public void testVerifyDamagedStore() throws Exception
+    {
+        File basedir = resources.getBasedir("shared-libraries");
+        build(basedir, "package", goal("aggregate-libraries"));
+
+        File[] libraries = new File(basedir, "target/dolphinscheduler-distribution/lib").listFiles();
+        assertNotNull(libraries);
+        write(libraries[0].toPath(), new byte[(int) libraries[0].length()]);
+
+        MavenExecutionResult verify = maven.forProject(basedir)
+                .execute(goal("verify-libraries"));
+        verify.assertLogText("does not match the plugins");
+        verify.assertLogText("has another content, needed by plugin-a-1.0.zip guava-24.1.1-jre.jar, plugin-b-1.0.zip guava-24.1.1-jre.jar");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.zip.ZipFile;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class NativeImageConfigGeneratorTest extends PluginTestSupport {
+
+    private static final String CONFIG_DIRECTORY = "META-INF/native-image/org.apache.dolphinscheduler.maven.test/plugin/";
+
+    public NativeImageConfigGeneratorTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    /**
+     * Compares the generated configuration with the expected files of the project, which register the plugin class,
+     * the reached service implementation and the class loaded by name, and include the resources the plugin loads,
+     * but leave out the implementation of a service nothing uses and the resource of the library no reached class names.
+     */
+    @Test
+    public void testExpectedConfig() throws Exception
+    {
+        File basedir = resources.getBasedir("native-image-config");
+        build(basedir, "package")
+                .assertLogText("Dolphinscheduler plugin native image configuration generated: 3 reflective classes, 7 resources, 1 resource bundles");
+
+        File classes = new File(basedir, "plugin/target/classes");
+        for (String config : new String[] {NativeImageConfigGenerator.REFLECT_CONFIG, NativeImageConfigGenerator.RESOURCE_CONFIG}) {
+            assertEquals(config,
+                    new String(readAllBytes(new File(basedir, "expected/" + config).toPath()), UTF_8),
+                    new String(readAllBytes(new File(classes, CONFIG_DIRECTORY + config).toPath()), UTF_8));
+        }
+        try (ZipFile jar = new ZipFile(new File(basedir, "plugin/target/plugin-1.0.jar"))) {
+            assertNotNull(jar.getEntry(CONFIG_DIRECTORY + NativeImageConfigGenerator.REFLECT_CONFIG));
+        }
+    }
+
+    @Test
+    public void testUpToDate() throws Exception
+    {
+        File basedir = resources.getBasedir("native-image-config");
+        build(basedir, "package");
+        File config = new File(basedir, "plugin/target/classes/" + CONFIG_DIRECTORY + NativeImageConfigGenerator.REFLECT_CONFIG);
+        long lastModified = config.lastModified();
+
+        build(basedir, "package")
+                .assertLogText("Dolphinscheduler plugin native image configuration is up to date");
+        assertEquals(lastModified, config.lastModified());
+    }
+}
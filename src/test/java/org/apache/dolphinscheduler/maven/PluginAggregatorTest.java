@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static org.junit.Assert.assertTrue;
+
+public class PluginAggregatorTest extends PluginTestSupport {
+
+    public PluginAggregatorTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testAggregatePlugins() throws Exception
+    {
+        File basedir = resources.getBasedir("shared-libraries");
+        File distribution = new File(basedir, "target/plugins");
+        maven.forProject(basedir)
+                .withCliOptions("-T", "2", "-X", "-Ddolphinscheduler.distributionDirectory=" + distribution)
+                .execute("package", goal("aggregate-plugins"))
+                .assertErrorFreeLog()
+                .assertLogText("Leaving the Dolphinscheduler SPI dependency checks to the aggregate-plugins goal")
+                .assertLogText("Checked 2 Dolphinscheduler plugins");
+
+        String report = new String(readAllBytes(new File(basedir, "target/dolphinscheduler-plugins.json").toPath()), UTF_8);
+        assertTrue(report.contains("\"project\": \"org.apache.dolphinscheduler.maven.test:plugin-a:1.0\""));
+        assertTrue(report.contains("\"project\": \"org.apache.dolphinscheduler.maven.test:plugin-b:1.0\""));
+        assertTrue(report.contains("\"problems\": []"));
+        assertTrue(new File(distribution, "plugins/plugin-a-1.0.zip").isFile());
+        assertTrue(new File(distribution, "plugins/plugin-b-1.0.zip").isFile());
+    }
+
+    /**
+     * Each module is checked with the configuration of its own spi-dependencies-check goal: plugin-a allows
+     * the provided dependency it adds, and plugin-b skips the check.
+     */
+    @Test
+    public void testModuleConfiguration() throws Exception
+    {
+        File basedir = resources.getBasedir("shared-libraries");
+        addProvidedDependency(new File(basedir, "plugin-a/pom.xml"),
+                "<configuration><allowedProvidedDependencies><allowedProvidedDependency>commons-io:commons-io</allowedProvidedDependency></allowedProvidedDependencies></configuration>");
+        addProvidedDependency(new File(basedir, "plugin-b/pom.xml"), "<configuration><skipCheckSpiDependencies>true</skipCheckSpiDependencies></configuration>");
+        build(basedir, "package", goal("aggregate-plugins"))
+                .assertLogText("Checked 2 Dolphinscheduler plugins")
+                .assertLogText("with 0 problems");
+    }
+
+    /**
+     * Every execution of the spi-dependencies-check goal is checked, with its configuration merged over the plugin's:
+     * plugin-a allows the provided dependency in a named execution and skips the bound one, plugin-b skips the check
+     * in the plugin configuration but runs it again in a named execution.
+     */
+    @Test
+    public void testExecutionConfiguration() throws Exception
+    {
+        File basedir = resources.getBasedir("shared-libraries");
+        addProvidedDependency(new File(basedir, "plugin-a/pom.xml"), "<executions><execution><id>default-spi-dependencies-check</id>"
+                + "<configuration><skipCheckSpiDependencies>true</skipCheckSpiDependencies></configuration></execution>"
+                + "<execution><id>check-commons-io</id><goals><goal>spi-dependencies-check</goal></goals>"
+                + "<configuration><skipCheckSpiDependencies>false</skipCheckSpiDependencies>"
+                + "<allowedProvidedDependencies><allowedProvidedDependency>commons-io:commons-io</allowedProvidedDependency></allowedProvidedDependencies>"
+                + "</configuration></execution></executions>");
+        addProvidedDependency(new File(basedir, "plugin-b/pom.xml"), "<configuration><skipCheckSpiDependencies>true</skipCheckSpiDependencies></configuration>"
+                + "<executions><execution><id>check-again</id><goals><goal>spi-dependencies-check</goal></goals>"
+                + "<configuration><skipCheckSpiDependencies>false</skipCheckSpiDependencies></configuration></execution></executions>");
+        build(basedir, "package", goal("aggregate-plugins"))
+                .assertLogText("Checked 2 Dolphinscheduler plugins")
+                .assertLogText("with 1 problems")
+                .assertLogText("plugin-b:1.0: Dolphinscheduler plugin dependency commons-io:commons-io must not have scope 'provided'.")
+                .assertNoLogText("plugin-a:1.0: ");
+    }
+
+    /**
+     * The modules leave their checks to the goal bound in the pom of the last module, as long as the build reaches its phase.
+     */
+    @Test
+    public void testBoundAggregator() throws Exception
+    {
+        File basedir = resources.getBasedir("shared-libraries");
+        File root = new File(basedir, "pom.xml");
+        String pom = new String(readAllBytes(root.toPath()), UTF_8).replace("<module>plugin-b</module>", "<module>plugin-b</module>\n        <module>distribution</module>");
+        write(root.toPath(), pom.getBytes(UTF_8));
+        File distribution = new File(basedir, "distribution");
+        assertTrue(distribution.mkdirs());
+        write(new File(distribution, "pom.xml").toPath(), ("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "    <modelVersion>4.0.0</modelVersion>\n"
+                + "    <parent>\n"
+                + "        <groupId>org.apache.dolphinscheduler.maven.test</groupId>\n"
+                + "        <artifactId>shared-libraries</artifactId>\n"
+                + "        <version>1.0</version>\n"
+                + "    </parent>\n"
+                + "    <artifactId>distribution</artifactId>\n"
+                + "    <packaging>pom</packaging>\n"
+                + "    <dependencies>\n"
+                + "        <dependency><groupId>${project.groupId}</groupId><artifactId>plugin-a</artifactId><version>1.0</version><type>dolphinscheduler-plugin-native</type></dependency>\n"
+                + "        <dependency><groupId>${project.groupId}</groupId><artifactId>plugin-b</artifactId><version>1.0</version><type>dolphinscheduler-plugin-native</type></dependency>\n"
+                + "    </dependencies>\n"
+                + "    <build>\n"
+                + "        <plugins>\n"
+                + "            <plugin>\n"
+                + "                <groupId>org.apache.dolphinscheduler</groupId>\n"
+                + "                <artifactId>dolphinscheduler-maven-plugin</artifactId>\n"
+                + "                <executions>\n"
+                + "                    <execution>\n"
+                + "                        <phase>package</phase>\n"
+                + "                        <goals>\n"
+                + "                            <goal>aggregate-plugins</goal>\n"
+                + "                        </goals>\n"
+                + "                    </execution>\n"
+                + "                </executions>\n"
+                + "            </plugin>\n"
+                + "        </plugins>\n"
+                + "    </build>\n"
+                + "</project>\n").getBytes(UTF_8));
+
+        maven.forProject(basedir)
+                .withCliOptions("-X")
+                .execute("package")
+                .assertErrorFreeLog()
+                .assertLogText("Leaving the Dolphinscheduler SPI dependency checks to the aggregate-plugins goal")
+                .assertLogText("Checked 2 Dolphinscheduler plugins");
+        maven.forProject(basedir)
+                .withCliOptions("-X")
+                .execute("compile")
+                .assertErrorFreeLog()
+                .assertNoLogText("Leaving the Dolphinscheduler SPI dependency checks to the aggregate-plugins goal");
+    }
+
+    private static void addProvidedDependency(File pom, String pluginSettings)
+            throws Exception
+    {
+        String changed = new String(readAllBytes(pom.toPath()), UTF_8)
+                .replace("</dependencies>", "    <dependency>\n"
+                        + "            <groupId>commons-io</groupId>\n"
+                        + "            <artifactId>commons-io</artifactId>\n"
+                        + "            <version>2.6</version>\n"
+                        + "            <scope>provided</scope>\n"
+                        + "        </dependency>\n"
+                        + "    </dependencies>")
+                .replace("<artifactId>dolphinscheduler-maven-plugin</artifactId>",
+                        "<artifactId>dolphinscheduler-maven-plugin</artifactId>\n                " + pluginSettings);
+        write(pom.toPath(), changed.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.jar.JarFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class PluginFlattenerTest extends PluginTestSupport {
+
+    public PluginFlattenerTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testFlattenedPlugin() throws Exception
+    {
+        File basedir = resources.getBasedir("flattened-plugin");
+        maven.forProject(basedir)
+                .execute("package")
+                .assertLogText("Flattened 3 jars into ")
+                .assertLogText("[WARNING] Dolphinscheduler plugin dependencies google-collections-1.0.jar and guava-24.1.1-jre.jar contain ");
+
+        try (JarFile jarFile = new JarFile(new File(basedir, "target/flattened-plugin-1.0-flat.jar"))) {
+            assertNotNull(jarFile.getEntry("its/SimplestPlugin.class"));
+            assertNotNull(jarFile.getEntry("com/google/common/graph/Graph.class"));
+
+            // the plugin index names the flattened jar for every class, and keeps the plugin class
+            PluginIndex index;
+            try (InputStream in = jarFile.getInputStream(jarFile.getEntry(PluginIndex.RESOURCE))) {
+                index = PluginIndex.read(in);
+            }
+            assertEquals("its.SimplestPlugin", index.getPluginClassName());
+            assertEquals(Collections.singletonList("flattened-plugin-1.0-flat.jar"), index.getJars());
+            assertEquals("flattened-plugin-1.0-flat.jar", index.findJar("com.google.common.base.Strings"));
+            assertNotNull(jarFile.getEntry("META-INF/services/org.apache.dolphinscheduler.spi.DolphinSchedulerPlugin"));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static org.junit.Assert.assertTrue;
+
+public class PluginLoadBenchmarkTest extends PluginTestSupport {
+
+    public PluginLoadBenchmarkTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testLoadReport() throws Exception
+    {
+        File basedir = resources.getBasedir("plugin-load");
+        build(basedir, "verify")
+                .assertLogText("Dolphinscheduler plugin its.LoadedPlugin loads in ");
+
+        String report = new String(readAllBytes(new File(basedir, "target/dolphinscheduler-plugin-load.json").toPath()), UTF_8);
+        assertTrue(report.contains("\"plugin\": \"its.LoadedPlugin\""));
+        assertTrue(report.contains("\"iterations\": 3"));
+        // guava is read, the plugin class does not get by without it
+        assertTrue(report.contains("\"name\": \"guava-24.1.1-jre.jar\",\n      \"touched\": true"));
+    }
+
+    @Test
+    public void testThreshold() throws Exception
+    {
+        File basedir = resources.getBasedir("plugin-load");
+        maven.forProject(basedir)
+                .withCliOptions("-DmaxLoadedClasses=1")
+                .execute("verify")
+                .assertLogText("is too expensive to load: loaded classes ");
+    }
+}
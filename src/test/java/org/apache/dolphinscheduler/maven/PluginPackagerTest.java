@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PluginPackagerTest extends PluginTestSupport {
+
+    public PluginPackagerTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testNativePackaging() throws Exception
+    {
+        File basedir = resources.getBasedir("native-packaging");
+        build(basedir, "package");
+
+        File zip = new File(basedir, "target/native-packaging-1.0.zip");
+        List<String> names = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            zipFile.stream().forEach(entry -> names.add(entry.getName()));
+            ZipEntry guava = zipFile.getEntry("guava-24.1.1-jre.jar");
+            assertEquals(ZipEntry.STORED, guava.getMethod());
+        }
+        // the plugin jar, the entry most likely to change, comes last
+        assertEquals("native-packaging-1.0.jar", names.get(names.size() - 1));
+        assertTrue(names.contains("guava-24.1.1-jre.jar"));
+    }
+
+    @Test
+    public void testReproducibleArchive() throws Exception
+    {
+        File basedir = resources.getBasedir("native-packaging");
+        build(basedir, "package");
+
+        File zip = new File(basedir, "target/native-packaging-1.0.zip");
+        byte[] first = readAllBytes(zip.toPath());
+        long lastModified = zip.lastModified();
+
+        // new timestamps of the inputs do not change the archive
+        File jar = new File(basedir, "target/native-packaging-1.0.jar");
+        assertTrue(jar.setLastModified(jar.lastModified() + 60_000));
+        build(basedir, goal("package-plugin"))
+                .assertLogText("is up to date");
+
+        assertArrayEquals(first, readAllBytes(zip.toPath()));
+        assertEquals(lastModified, zip.lastModified());
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws Exception
+    {
+        File basedir = resources.getBasedir("native-packaging");
+        build(basedir, "package");
+
+        // a change to the plugin's own code only rewrites its jar, the last entry
+        write(new File(basedir, "src/main/java/its/Helper.java").toPath(), "package its;\n\nclass Helper {\n}\n".getBytes(UTF_8));
+        build(basedir, "package")
+                .assertLogText("Updated 1 of ");
+
+        File zip = new File(basedir, "target/native-packaging-1.0.zip");
+        try (ZipFile zipFile = new ZipFile(zip);
+                ZipInputStream pluginJar = new ZipInputStream(zipFile.getInputStream(zipFile.getEntry("native-packaging-1.0.jar")))) {
+            List<String> classes = new ArrayList<>();
+            for (ZipEntry entry = pluginJar.getNextEntry(); entry != null; entry = pluginJar.getNextEntry()) {
+                classes.add(entry.getName());
+            }
+            assertTrue(classes.contains("its/Helper.class"));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.TestResources;
+import io.takari.maven.testing.executor.MavenExecutionResult;
+import io.takari.maven.testing.executor.MavenRuntime;
+import io.takari.maven.testing.executor.MavenVersions;
+import io.takari.maven.testing.executor.junit.MavenJUnitTestRunner;
+import org.junit.Rule;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+/**
+ * The setup the integration tests of the goals share: each test builds fresh copies of the projects
+ * in {@code src/test/projects}, once with each of the Maven versions, in batch mode.
+ */
+@RunWith(MavenJUnitTestRunner.class)
+@MavenVersions({"3.3.9", "3.5.4", "3.6.2"})
+@SuppressWarnings({"JUnitTestNG", "PublicField"})
+public abstract class PluginTestSupport {
+    private static final String PLUGIN = "org.apache.dolphinscheduler:dolphinscheduler-maven-plugin";
+
+    @Rule
+    public final TestResources resources = new TestResources();
+
+    public final MavenRuntime maven;
+
+    protected PluginTestSupport(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        this.maven = mavenRuntimeBuilder.withCliOptions("-B", "-U").build();
+    }
+
+    /**
+     * Builds the project and asserts that the build succeeds without an error in the log.
+     */
+    protected MavenExecutionResult build(File basedir, String... goals)
+            throws Exception
+    {
+        return maven.forProject(basedir)
+                .execute(goals)
+                .assertErrorFreeLog();
+    }
+
+    /**
+     * @return the fully qualified goal of the plugin, to run a goal the project does not bind
+     */
+    protected static String goal(String name)
+    {
+        return PLUGIN + ":" + name;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PluginWatcherTest extends PluginTestSupport {
+
+    public PluginWatcherTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testDeploy() throws Exception
+    {
+        File basedir = resources.getBasedir("native-packaging");
+        File deployDirectory = new File(basedir, "target/plugins");
+        maven.forProject(basedir)
+                .withCliOptions("-Ddolphinscheduler.deployDirectory=" + deployDirectory, "-Ddolphinscheduler.watchTimeout=1")
+                .execute("package", goal("watch"))
+                .assertErrorFreeLog()
+                .assertLogText("Dolphinscheduler plugin deployed to")
+                .assertLogText("Dolphinscheduler plugin stopped watching");
+
+        // the layout of the packaged archive, without the temporary directories of the swap
+        assertEquals(Arrays.asList("native-packaging"), Arrays.asList(deployDirectory.list()));
+        File pluginDirectory = new File(deployDirectory, "native-packaging");
+        assertTrue(new File(pluginDirectory, "guava-24.1.1-jre.jar").isFile());
+        try (ZipFile jar = new ZipFile(new File(pluginDirectory, "native-packaging-1.0.jar"))) {
+            assertNotNull(jar.getEntry("META-INF/services/org.apache.dolphinscheduler.spi.DolphinSchedulerPlugin"));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dolphinscheduler.maven;
+
+import io.takari.maven.testing.executor.MavenRuntime;
+import org.junit.Test;
+
+import java.io.File;
+
+public class SpiCompatibilityCheckerTest extends PluginTestSupport {
+
+    public SpiCompatibilityCheckerTest(MavenRuntime.MavenRuntimeBuilder mavenRuntimeBuilder)
+            throws Exception
+    {
+        super(mavenRuntimeBuilder);
+    }
+
+    @Test
+    public void testCompatible() throws Exception
+    {
+        File basedir = resources.getBasedir("spi-compatibility");
+        build(new File(basedir, "spi-1"), "install");
+
+        maven.forProject(new File(basedir, "plugin"))
+                .withCliOptions("-Ddolphinscheduler.logMetrics=true")
+                .execute("verify")
+                .assertErrorFreeLog()
+                .assertLogText("Dolphinscheduler plugin spi-compatibility-check took");
+    }
+
+    @Test
+    public void testIncompatibleSpiVersion() throws Exception
+    {
+        File basedir = resources.getBasedir("spi-compatibility");
+        build(new File(basedir, "spi-1"), "install");
+        build(new File(basedir, "spi-2"), "install");
+
+        maven.forProject(new File(basedir, "plugin"))
+                .withCliOptions("-Ddolphinscheduler.spiVersions=1.0,2.0")
+                .execute("verify")
+                .assertLogText("BUILD FAILURE")
+                .assertLogText("Dolphinscheduler plugin is not compatible with org.apache.dolphinscheduler.maven.test:compatibility-spi:2.0:")
+                .assertLogText("its.TestPlugin does not implement the abstract method its.spi.TestSpiPlugin.getVersion()I")
+                .assertLogText("its.TestPlugin refers to the missing method its.spi.Tasks.run(Ljava/lang/String;)V")
+                .assertNoLogText("not compatible with org.apache.dolphinscheduler.maven.test:compatibility-spi:1.0");
+    }
+}
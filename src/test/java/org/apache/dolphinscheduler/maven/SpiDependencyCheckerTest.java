@@ -27,6 +27,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.readAllLines;
+import static org.junit.Assert.assertEquals;
 
 @RunWith(MavenJUnitTestRunner.class)
 @MavenVersions({"3.3.9", "3.5.4", "3.6.2"})
@@ -115,4 +121,40 @@ public class SpiDependencyCheckerTest {
                 .execute("verify");
         verify.assertErrorFreeLog();
     }
+
+    @Test
+    public void testSpiDependencyManifest() throws Exception
+    {
+        File basedir = resources.getBasedir("spi-dependency-manifest");
+        maven.forProject(basedir)
+                .execute("verify")
+                .assertErrorFreeLog();
+
+        File manifest = new File(basedir, "spi/target/classes/META-INF/dolphinscheduler/spi-dependencies");
+        assertEquals("spi\torg.apache.dolphinscheduler.maven.test:spi:1.0\ndependency\tcom.google.guava:guava\n",
+                new String(readAllBytes(manifest.toPath()), UTF_8));
+    }
+
+    /**
+     * The three plugin modules of the reactor share one SPI, so the first module to check collects its dependencies
+     * and the other two, running at the same time, take them from the cache.
+     */
+    @Test
+    public void testSharedSpiDependencyCache() throws Exception
+    {
+        File basedir = resources.getBasedir("parallel-reactor");
+        maven.forProject(basedir)
+                .withCliOptions("-X", "-T", "4")
+                .execute("package")
+                .assertErrorFreeLog();
+
+        List<String> log = readAllLines(new File(basedir, "log.txt").toPath(), UTF_8);
+        assertEquals(1, countLines(log, "SPI dependency cache miss for org.apache.dolphinscheduler:dolphinscheduler-spi:"));
+        assertEquals(2, countLines(log, "SPI dependency cache hit for org.apache.dolphinscheduler:dolphinscheduler-spi:"));
+    }
+
+    private static long countLines(List<String> log, String text)
+    {
+        return log.stream().filter(line -> line.contains(text)).count();
+    }
 }
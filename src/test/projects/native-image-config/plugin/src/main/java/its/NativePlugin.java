@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package its;
+
+import its.lib.Templates;
+import org.apache.dolphinscheduler.spi.DolphinSchedulerPlugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.ServiceLoader;
+
+public class NativePlugin implements DolphinSchedulerPlugin {
+
+    public List<TaskFactory> getTaskFactories()
+    {
+        List<TaskFactory> factories = new ArrayList<>();
+        ServiceLoader.load(TaskFactory.class).forEach(factories::add);
+        return factories;
+    }
+
+    public Object newChannel() throws ReflectiveOperationException
+    {
+        return Class.forName("its.ReflectiveChannel").newInstance();
+    }
+
+    public String readTemplate() throws IOException
+    {
+        return Templates.loadDefault();
+    }
+
+    public String getTitle()
+    {
+        return ResourceBundle.getBundle("its.Messages").getString("title");
+    }
+}